@@ -0,0 +1,65 @@
+package it.matrix.benchmark;
+import it.matrix.Matrix;
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark delle operazioni aritmetiche e strutturali su matrici quadrate NxN:
+ * prodotto, somma, differenza, trasposta e generazione randomica
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArithmeticBenchmark {
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private Matrix a;
+    private Matrix b;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        a = BenchmarkData.matrix(size, size, random);
+        b = BenchmarkData.matrix(size, size, random);
+    }
+
+    @Benchmark
+    public Matrix multiply() {
+        return a.multiply(b);
+    }
+
+    @Benchmark
+    public Matrix sum() {
+        return a.sum(b);
+    }
+
+    @Benchmark
+    public Matrix sumScalar() {
+        return a.sum(1.5);
+    }
+
+    @Benchmark
+    public Matrix diff() {
+        return a.diff(b);
+    }
+
+    @Benchmark
+    public Matrix diffScalar() {
+        return a.diff(1.5);
+    }
+
+    @Benchmark
+    public Matrix transposed() {
+        return a.transposed();
+    }
+
+    @Benchmark
+    public Matrix random() {
+        return Matrix.randMatrix(size, size);
+    }
+}
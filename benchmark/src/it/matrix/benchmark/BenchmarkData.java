@@ -0,0 +1,43 @@
+package it.matrix.benchmark;
+import it.matrix.Matrix;
+import java.util.Random;
+
+/**
+ * Generazione dei dati di input dei benchmark con seme fisso,
+ * così che ogni esecuzione misuri le stesse matrici
+ */
+final class BenchmarkData {
+    /**
+     * Seme del generatore dei dati
+     */
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Genera una matrice NxM con elementi uniformi in [-1, 1)
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param random Generatore da utilizzare
+     * @return La matrice generata
+     */
+    static Matrix matrix(int rows, int columns, Random random) {
+        double[] elements = new double[rows * columns];
+        for (int i = 0; i < elements.length; i++) elements[i] = 2 * random.nextDouble() - 1;
+        return new Matrix(elements, rows);
+    }
+
+    /**
+     * Genera una matrice quadrata NxN ben condizionata, a diagonale dominante,
+     * adatta a determinante e inversa anche sulle dimensioni maggiori
+     * @param n Ordine della matrice
+     * @param random Generatore da utilizzare
+     * @return La matrice generata
+     */
+    static Matrix wellConditioned(int n, Random random) {
+        Matrix m = matrix(n, n, random);
+        for (int i = 0; i < n; i++) m.set(m.get(i, i) + n, i, i);
+        return m;
+    }
+}
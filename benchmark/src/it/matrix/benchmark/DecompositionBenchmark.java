@@ -0,0 +1,48 @@
+package it.matrix.benchmark;
+import it.matrix.Matrix;
+import it.matrix.exception.MatrixException;
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark delle operazioni basate sull'eliminazione di Gauss su matrici quadrate NxN:
+ * determinante, inversa, riduzione a scala e rango
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecompositionBenchmark {
+    @Param({"4", "16", "64", "256", "1024"})
+    public int size;
+
+    private Matrix a;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        a = BenchmarkData.wellConditioned(size, new Random(BenchmarkData.SEED));
+    }
+
+    @Benchmark
+    public double determinant() throws MatrixException {
+        return a.determinant();
+    }
+
+    @Benchmark
+    public Matrix inverse() throws MatrixException {
+        return a.inverse();
+    }
+
+    @Benchmark
+    public Matrix scale() {
+        return a.scale();
+    }
+
+    @Benchmark
+    public int rank() {
+        return a.rank();
+    }
+}
@@ -0,0 +1,56 @@
+package it.matrix.benchmark;
+import it.matrix.Matrix;
+import it.matrix.MatrixFormat;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark della rappresentazione testuale di matrici quadrate NxN e della scrittura e lettura
+ * in streaming con {@link MatrixFormat}. Le stringhe sono costruite in un unico buffer, per cui il costo
+ * è lineare nel numero di elementi e le dimensioni sono le stesse degli altri benchmark;
+ * l'esportazione di matrici più grandi, ad esempio 10000x10000, si misura con {@code -p size=10000}.
+ * La scrittura avviene su un {@link Writer} che scarta il testo, così da misurare la formattazione e
+ * il buffering senza il costo del dispositivo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private Matrix a;
+    private String csv;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        a = BenchmarkData.matrix(size, size, new Random(BenchmarkData.SEED));
+        csv = MatrixFormat.CSV.format(a);
+    }
+
+    @Benchmark
+    public String toStringTable() {
+        return a.toString();
+    }
+
+    @Benchmark
+    public String toLineString() {
+        return a.toLineString();
+    }
+
+    @Benchmark
+    public void writeCsv() throws IOException {
+        MatrixFormat.CSV.write(a, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public Matrix parseCsv() throws IOException {
+        return MatrixFormat.CSV.parse(csv);
+    }
+}
@@ -0,0 +1,416 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decomposizione spettrale di una matrice simmetrica, A = V D Vᵀ, con V ortogonale e D diagonale.
+ * La matrice viene ridotta in forma tridiagonale T = Qᵀ A Q con riflessioni di Householder in O(n³)
+ * e gli autovalori di T sono calcolati con l'algoritmo QL implicito in O(n²).
+ * Quando sono richiesti tutti gli autovettori, le rotazioni del QL vengono accumulate e riportate
+ * nella base originale in O(n³); quando sono richieste solo le prime k componenti, gli autovettori
+ * di T vengono calcolati per iterazione inversa in O(n * k) e riportati nella base originale in O(n² * k),
+ * per cui oltre alla riduzione il costo dipende solo dal numero di componenti richieste.
+ * Gli autovalori sono ordinati in modo decrescente e l'autovettore j-esimo è la colonna j-esima di V
+ * @author Erik Gurzau
+ */
+public class EigenDecomposition {
+    /**
+     * Numero minimo di elementi aggiornati da un passo perché venga eseguito in parallelo
+     */
+    static final long PARALLEL = 1 << 16;
+    /**
+     * Numero massimo di iterazioni QL per ogni autovalore
+     */
+    static final int MAX_ITERATIONS = 64;
+    /**
+     * Numero di passi dell'iterazione inversa per ogni autovettore
+     */
+    private static final int INVERSE_ITERATIONS = 3;
+    /**
+     * Seme dei vettori iniziali dell'iterazione inversa, fisso perché il risultato sia riproducibile
+     */
+    private static final long SEED = 0x5deece66dL;
+
+    /**
+     * Autovalori calcolati, in ordine decrescente
+     */
+    private final double[] values;
+    /**
+     * Autovettori calcolati, memorizzati per righe: l'autovettore j-esimo occupa gli elementi da j * n
+     */
+    private final double[] vectors;
+    /**
+     * Ordine della matrice
+     */
+    private final int n;
+
+    /**
+     * Costruttore della decomposizione spettrale completa di una matrice simmetrica
+     * @param a Matrice da decomporre, non viene modificata
+     * @throws MatrixException Se la matrice non è quadrata o non è simmetrica
+     */
+    public EigenDecomposition(Matrix a) throws MatrixException {
+        this(a, a.getNumRows(), null);
+    }
+
+    /**
+     * Costruttore della decomposizione spettrale di una matrice simmetrica limitata ai k autovalori
+     * maggiori e ai relativi autovettori
+     * @param a Matrice da decomporre, non viene modificata
+     * @param k Numero di componenti, tra 0 e l'ordine della matrice
+     * @throws MatrixException Se la matrice non è quadrata o non è simmetrica
+     */
+    public EigenDecomposition(Matrix a, int k) throws MatrixException {
+        this(a, k, null);
+    }
+
+    /**
+     * Costruttore della decomposizione spettrale di una matrice simmetrica limitata ai k autovalori
+     * maggiori e ai relativi autovettori, con la riduzione e il calcolo degli autovettori eseguiti in parallelo
+     * @param a Matrice da decomporre, non viene modificata
+     * @param k Numero di componenti, tra 0 e l'ordine della matrice
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} viene eseguito in modo seriale
+     * @throws MatrixException Se la matrice non è quadrata o non è simmetrica
+     */
+    public EigenDecomposition(Matrix a, int k, ForkJoinPool pool) throws MatrixException {
+        if (!a.isSquare())
+            throw new MatrixException("Illegal matrix type: must be a square matrix");
+        n = a.getNumRows();
+        if (k < 0 || k > n)
+            throw new RuntimeException("Illegal number of components: " + k + " out of bounds 0 - " + n);
+
+        double[] work = new double[n * n];
+        for (int i = 0; i < n; i++) a.copyRowTo(i, work, i * n);
+        symmetrize(work, n);
+
+        double[] d = new double[n], e = new double[n];
+        tridiagonalize(work, n, d, e, pool);
+        values = new double[k];
+        vectors = new double[k * n];
+        if (k == 0) return;
+
+        if (k == n) {
+            double[] z = new double[n * n];
+            for (int i = 0; i < n; i++) z[i * n + i] = 1;
+            tql(d, e, z);
+            Integer[] order = descending(d);
+            for (int j = 0; j < k; j++) {
+                values[j] = d[order[j]];
+                System.arraycopy(z, order[j] * n, vectors, j * n, n);
+            }
+        } else {
+            double[] diagonal = d.clone(), offDiagonal = e.clone();
+            tql(d, e, null);
+            Arrays.sort(d);
+            for (int j = 0; j < k; j++) values[j] = d[n - 1 - j];
+            System.arraycopy(tridiagonalVectors(diagonal, offDiagonal, values, k), 0, vectors, 0, k * n);
+        }
+
+        run(pool, 0, k, (long) k * n * n, (start, end) -> {
+            for (int j = start; j < end; j++) reflect(work, n, vectors, j * n);
+        });
+    }
+
+    /**
+     * Controlla che la matrice sia simmetrica, a meno degli errori di arrotondamento con cui viene
+     * tipicamente calcolata, e ne sostituisce gli elementi con la media tra (i,j) e (j,i)
+     */
+    private static void symmetrize(double[] a, int n) throws MatrixException {
+        double norm = 0;
+        for (double x: a) norm = Math.max(norm, Math.abs(x));
+        double tolerance = 16 * n * Math.ulp(1.0) * norm;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                double x = a[i * n + j], y = a[j * n + i];
+                if (!(Math.abs(x - y) <= tolerance))
+                    throw new MatrixException("Illegal matrix type: must be a symmetric matrix");
+                a[i * n + j] = a[j * n + i] = (x + y) / 2;
+            }
+        }
+    }
+
+    /**
+     * Riduce la matrice in forma tridiagonale applicando a ogni passo k una riflessione di Householder
+     * H = I - v vᵀ / v[0] da entrambi i lati della sottomatrice restante, con l'aggiornamento di rango 2
+     * A22 = A22 - v wᵀ - w vᵀ, dove w = p - (pᵀv / 2v[0]) v e p = A22 v / v[0].
+     * Il vettore v del passo k viene memorizzato nella riga k, a destra della diagonale,
+     * con v[0] = 0 se la riflessione non è necessaria
+     * @param a Buffer di lavoro, per righe
+     * @param n Ordine della matrice
+     * @param d Diagonale della tridiagonale
+     * @param e Sottodiagonale della tridiagonale: e[i] = T(i+1,i), con e[n-1] = 0
+     */
+    private static void tridiagonalize(double[] a, int n, double[] d, double[] e, ForkJoinPool pool) {
+        double[] p = new double[n];
+        for (int k = 0; k < n - 2; k++) {
+            final int v = k * n + k + 1, from = k + 1, length = n - from;
+            d[k] = a[k * n + k];
+            double nrm = norm(a, v, length);
+            if (nrm == 0) {
+                e[k] = 0;
+                continue;
+            }
+            if (a[v] < 0) nrm = -nrm;
+            Kernels.affine(a, v, 1 / nrm, 0, a, v, length);
+            a[v] += 1;
+            e[k] = -nrm;
+
+            final double tau = 1 / a[v];
+            long work = (long) length * length;
+            run(pool, from, n, work, (start, end) -> {
+                for (int i = start; i < end; i++) p[i] = tau * Kernels.dot(a, i * n + from, a, v, length);
+            });
+            Kernels.combine(p, from, -tau / 2 * Kernels.dot(p, from, a, v, length), a, v, p, from, length);
+            run(pool, from, n, work, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    int row = i * n + from;
+                    Kernels.combine(a, row, -a[v + i - from], p, from, a, row, length);
+                    Kernels.combine(a, row, -p[i], a, v, a, row, length);
+                }
+            });
+        }
+        if (n >= 2) {
+            d[n - 2] = a[(n - 2) * n + n - 2];
+            e[n - 2] = a[(n - 2) * n + n - 1];
+        }
+        if (n >= 1) {
+            d[n - 1] = a[n * n - 1];
+            e[n - 1] = 0;
+        }
+    }
+
+    /**
+     * Riporta un autovettore della tridiagonale nella base originale, x = Q z = H0 H1 ... z
+     * @param a Buffer con i vettori di Householder della riduzione
+     * @param n Ordine della matrice
+     * @param z Vettore, sostituito dal risultato
+     * @param zi Indice del primo elemento del vettore
+     */
+    private static void reflect(double[] a, int n, double[] z, int zi) {
+        for (int k = n - 3; k >= 0; k--) {
+            int v = k * n + k + 1, length = n - k - 1;
+            if (a[v] == 0) continue;
+            double s = -Kernels.dot(a, v, z, zi + k + 1, length) / a[v];
+            Kernels.combine(z, zi + k + 1, s, a, v, z, zi + k + 1, length);
+        }
+    }
+
+    /**
+     * Calcola gli autovalori di una matrice tridiagonale simmetrica con l'algoritmo QL implicito
+     * con shift di Wilkinson e, se indicato, accumula le rotazioni nelle righe di z
+     * @param d Diagonale, sostituita dagli autovalori non ordinati
+     * @param e Sottodiagonale, e[i] = T(i+1,i) con e[n-1] = 0, viene distrutta
+     * @param z Vettori per righe, n x n, la riga j-esima diventa l'autovettore del j-esimo autovalore; può essere {@code null}
+     */
+    static void tql(double[] d, double[] e, double[] z) {
+        int n = d.length;
+        double f = 0, tst1 = 0, eps = Math.ulp(1.0);
+        for (int l = 0; l < n; l++) {
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1 && Math.abs(e[m]) > eps * tst1) m++;
+
+            for (int iteration = 0; m > l && Math.abs(e[l]) > eps * tst1; iteration++) {
+                if (iteration == MAX_ITERATIONS)
+                    throw new RuntimeException("Illegal state: eigenvalues did not converge");
+                double g = d[l];
+                double p = (d[l + 1] - g) / (2 * e[l]);
+                double r = Math.hypot(p, 1);
+                if (p < 0) r = -r;
+                d[l] = e[l] / (p + r);
+                d[l + 1] = e[l] * (p + r);
+                double dl1 = d[l + 1];
+                double h = g - d[l];
+                for (int i = l + 2; i < n; i++) d[i] -= h;
+                f += h;
+
+                p = d[m];
+                double c = 1, c2 = c, c3 = c, el1 = e[l + 1], s = 0, s2 = 0;
+                for (int i = m - 1; i >= l; i--) {
+                    c3 = c2;
+                    c2 = c;
+                    s2 = s;
+                    g = c * e[i];
+                    h = c * p;
+                    r = Math.hypot(p, e[i]);
+                    e[i + 1] = s * r;
+                    s = e[i] / r;
+                    c = p / r;
+                    p = c * d[i] - s * g;
+                    d[i + 1] = h + s * (c * g + s * d[i]);
+                    if (z != null) rotate(z, i * n, (i + 1) * n, n, c, -s);
+                }
+                p = -s * s2 * c3 * el1 * e[l] / dl1;
+                e[l] = s * p;
+                d[l] = c * p;
+            }
+            d[l] += f;
+            e[l] = 0;
+        }
+    }
+
+    /**
+     * Calcola per iterazione inversa gli autovettori di una matrice tridiagonale simmetrica relativi
+     * ad autovalori già noti. Per ogni autovalore la matrice T - λI viene fattorizzata una sola volta
+     * con pivoting parziale e ogni passo costa O(n); gli autovettori di autovalori vicini, che l'iterazione
+     * da sola non separa, vengono ortogonalizzati con Gram-Schmidt
+     * @param d Diagonale
+     * @param e Sottodiagonale, e[i] = T(i+1,i)
+     * @param values Autovalori in ordine decrescente
+     * @param count Numero di autovettori da calcolare
+     * @return Gli autovettori normalizzati, per righe
+     */
+    static double[] tridiagonalVectors(double[] d, double[] e, double[] values, int count) {
+        int n = d.length;
+        double[] vectors = new double[count * n];
+        double norm = 0;
+        for (int i = 0; i < n; i++)
+            norm = Math.max(norm, Math.abs(d[i]) + (i > 0 ? Math.abs(e[i - 1]) : 0) + (i < n - 1 ? Math.abs(e[i]) : 0));
+        if (norm == 0) {
+            for (int j = 0; j < count; j++) vectors[j * n + j] = 1;
+            return vectors;
+        }
+        //gli autovettori non dipendono dalla scala, che viene normalizzata per evitare overflow nella soluzione
+        double[] diagonal = new double[n], lower = new double[n], upper = new double[n], upper2 = new double[n];
+        boolean[] swapped = new boolean[n];
+        double eps = Math.ulp(1.0), gap = 1e-3;
+        SplittableRandom random = new SplittableRandom(SEED);
+        int cluster = 0;
+        for (int j = 0; j < count; j++) {
+            if (j > 0 && (values[j - 1] - values[j]) / norm > gap) cluster = j;
+            double shift = values[j] / norm;
+            for (int i = 0; i < n; i++) {
+                diagonal[i] = d[i] / norm - shift;
+                lower[i] = upper[i] = e[i] / norm;
+                upper2[i] = 0;
+                swapped[i] = false;
+            }
+            for (int i = 0; i < n - 1; i++) {
+                if (Math.abs(diagonal[i]) >= Math.abs(lower[i])) {
+                    if (diagonal[i] == 0) diagonal[i] = eps;
+                    lower[i] /= diagonal[i];
+                    diagonal[i + 1] -= lower[i] * upper[i];
+                } else {
+                    double f = diagonal[i] / lower[i];
+                    diagonal[i] = lower[i];
+                    lower[i] = f;
+                    double t = upper[i];
+                    upper[i] = diagonal[i + 1];
+                    diagonal[i + 1] = t - f * diagonal[i + 1];
+                    if (i < n - 2) {
+                        upper2[i] = upper[i + 1];
+                        upper[i + 1] = -f * upper[i + 1];
+                    }
+                    swapped[i] = true;
+                }
+            }
+            for (int i = 0; i < n; i++)
+                if (Math.abs(diagonal[i]) < eps) diagonal[i] = diagonal[i] < 0 ? -eps : eps;
+
+            int x = j * n;
+            for (int i = 0; i < n; i++) vectors[x + i] = random.nextDouble(-1, 1);
+            for (int iteration = 0; iteration < INVERSE_ITERATIONS; iteration++) {
+                for (int i = 0; i < n - 1; i++) {
+                    if (!swapped[i]) {
+                        vectors[x + i + 1] -= lower[i] * vectors[x + i];
+                    } else {
+                        double t = vectors[x + i];
+                        vectors[x + i] = vectors[x + i + 1];
+                        vectors[x + i + 1] = t - lower[i] * vectors[x + i];
+                    }
+                }
+                vectors[x + n - 1] /= diagonal[n - 1];
+                if (n > 1) vectors[x + n - 2] = (vectors[x + n - 2] - upper[n - 2] * vectors[x + n - 1]) / diagonal[n - 2];
+                for (int i = n - 3; i >= 0; i--)
+                    vectors[x + i] = (vectors[x + i] - upper[i] * vectors[x + i + 1] - upper2[i] * vectors[x + i + 2]) / diagonal[i];
+
+                double scale = norm(vectors, x, n);
+                Kernels.affine(vectors, x, 1 / scale, 0, vectors, x, n);
+                for (int c = cluster; c < j; c++) {
+                    double s = -Kernels.dot(vectors, c * n, vectors, x, n);
+                    Kernels.combine(vectors, x, s, vectors, c * n, vectors, x, n);
+                }
+                scale = norm(vectors, x, n);
+                Kernels.affine(vectors, x, 1 / scale, 0, vectors, x, n);
+            }
+        }
+        return vectors;
+    }
+
+    /**
+     * Applica una rotazione piana a due righe: a = c a + s b, b = c b - s a
+     */
+    static void rotate(double[] z, int a, int b, int length, double c, double s) {
+        for (int t = 0; t < length; t++) {
+            double x = z[a + t], y = z[b + t];
+            z[a + t] = c * x + s * y;
+            z[b + t] = c * y - s * x;
+        }
+    }
+
+    /**
+     * Norma euclidea di un intervallo di elementi, calcolata con riscalamento per evitare overflow e underflow
+     */
+    static double norm(double[] x, int from, int length) {
+        double scale = 0, sum = 1;
+        for (int i = from, end = from + length; i < end; i++) {
+            double v = Math.abs(x[i]);
+            if (v == 0) continue;
+            if (scale < v) {
+                sum = 1 + sum * (scale / v) * (scale / v);
+                scale = v;
+            } else {
+                sum += (v / scale) * (v / scale);
+            }
+        }
+        return scale * Math.sqrt(sum);
+    }
+
+    /**
+     * Ritorna gli indici dei valori in ordine decrescente
+     */
+    private static Integer[] descending(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(values[y], values[x]));
+        return order;
+    }
+
+    /**
+     * Esegue un intervallo di righe, in parallelo se il pool è impostato e il lavoro è sufficiente
+     */
+    static void run(ForkJoinPool pool, int from, int to, long work, Gemm.RowRange range) {
+        if (pool == null || work < PARALLEL || to - from < 2 || pool.getParallelism() < 2) range.compute(from, to);
+        else pool.invoke(new Gemm.RowBlockTask(from, to, Math.max(1, (to - from) / (4 * pool.getParallelism())), range));
+    }
+
+    /**
+     * Ritorna gli autovalori calcolati, in ordine decrescente
+     * @return Copia degli autovalori
+     */
+    public double[] getEigenvalues() {
+        return values.clone();
+    }
+
+    /**
+     * Ritorna la matrice diagonale D degli autovalori calcolati, di dimensione kxk
+     * @return La matrice D
+     */
+    public Matrix getD() {
+        Matrix diagonal = new Matrix(values.length, values.length);
+        for (int i = 0; i < values.length; i++) diagonal.unsafeSet(values[i], i, i);
+        return diagonal;
+    }
+
+    /**
+     * Ritorna la matrice V degli autovettori calcolati, di dimensione nxk,
+     * le cui colonne sono ortonormali e nello stesso ordine degli autovalori
+     * @return La matrice V
+     */
+    public Matrix getV() {
+        int k = values.length;
+        return k == 0 ? new Matrix(n, 0) : new Matrix(vectors.clone(), k).transposedView().materialize();
+    }
+}
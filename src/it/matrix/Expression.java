@@ -0,0 +1,519 @@
+package it.matrix;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Espressione tra matrici valutata in modo differito. Le operazioni vengono registrate
+ * in un albero e calcolate solo con {@link #evaluate()} o {@link #into(Matrix)}, leggendo
+ * gli elementi delle matrici operande al momento della valutazione.
+ * Le catene di operazioni elemento per elemento (somme, differenze, prodotti e somme
+ * per scalari) vengono fuse in un unico passaggio: il risultato è calcolato a tessere di
+ * {@value #TILE} colonne di una riga, che restano in cache L1, senza allocare matrici intermedie.
+ * I prodotti righe per colonne consecutivi formano una catena il cui ordine di calcolo
+ * viene scelto con la programmazione dinamica in modo da minimizzare il numero di moltiplicazioni;
+ * un prodotto scalato, o sommato a un'altra espressione, viene accumulato direttamente
+ * nella destinazione attraverso {@link Matrix#multiplyAdd(Matrix, Matrix, Matrix, double, double)}
+ * @author Erik Gurzau
+ */
+public abstract class Expression {
+    /**
+     * Numero di colonne di una tessera del passaggio fuso
+     */
+    static final int TILE = 512;
+
+    /**
+     * Numero di righe del risultato
+     */
+    final int rows;
+    /**
+     * Numero di colonne del risultato
+     */
+    final int columns;
+
+    private Expression(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Crea un'espressione costituita da una sola matrice
+     * @param m Matrice operanda, letta al momento della valutazione
+     * @return L'espressione
+     */
+    public static Expression of(Matrix m) {
+        return new Leaf(m);
+    }
+
+    /**
+     * Ritorna il numero di righe del risultato
+     * @return Il numero di righe
+     */
+    public int getNumRows() {
+        return rows;
+    }
+
+    /**
+     * Ritorna il numero di colonne del risultato
+     * @return Il numero di colonne
+     */
+    public int getNumColumns() {
+        return columns;
+    }
+
+    /**
+     * Somma elemento per elemento con un'altra espressione
+     * @param other Espressione della stessa dimensione
+     * @return L'espressione somma
+     */
+    public Expression sum(Expression other) {
+        return new Combine(this, 1, other);
+    }
+
+    /**
+     * Somma elemento per elemento con una matrice
+     * @param other Matrice della stessa dimensione
+     * @return L'espressione somma
+     */
+    public Expression sum(Matrix other) {
+        return sum(of(other));
+    }
+
+    /**
+     * Somma uno scalare a ogni elemento
+     * @param scalar Valore da sommare
+     * @return L'espressione somma
+     */
+    public Expression sum(double scalar) {
+        return Affine.of(this, 1, scalar);
+    }
+
+    /**
+     * Differenza elemento per elemento con un'altra espressione
+     * @param other Espressione della stessa dimensione
+     * @return L'espressione differenza
+     */
+    public Expression diff(Expression other) {
+        return new Combine(this, -1, other);
+    }
+
+    /**
+     * Differenza elemento per elemento con una matrice
+     * @param other Matrice della stessa dimensione
+     * @return L'espressione differenza
+     */
+    public Expression diff(Matrix other) {
+        return diff(of(other));
+    }
+
+    /**
+     * Sottrae uno scalare a ogni elemento
+     * @param scalar Valore da sottrarre
+     * @return L'espressione differenza
+     */
+    public Expression diff(double scalar) {
+        return Affine.of(this, 1, -scalar);
+    }
+
+    /**
+     * Moltiplica ogni elemento per uno scalare
+     * @param scalar Valore per cui moltiplicare
+     * @return L'espressione prodotto
+     */
+    public Expression multiply(double scalar) {
+        return Affine.of(this, scalar, 0);
+    }
+
+    /**
+     * Prodotto righe per colonne con un'altra espressione
+     * @param other Espressione NxK da moltiplicare a questa
+     * @return L'espressione prodotto
+     */
+    public Expression multiply(Expression other) {
+        return new Product(this, other);
+    }
+
+    /**
+     * Prodotto righe per colonne con una matrice
+     * @param other Matrice NxK da moltiplicare a questa
+     * @return L'espressione prodotto
+     */
+    public Expression multiply(Matrix other) {
+        return multiply(of(other));
+    }
+
+    /**
+     * Valuta l'espressione in una nuova matrice
+     * @return La matrice risultante
+     */
+    public Matrix evaluate() {
+        return into(new Matrix(rows, columns));
+    }
+
+    /**
+     * Valuta l'espressione scrivendo il risultato in una matrice di destinazione.
+     * La destinazione può coincidere con una delle matrici operande: se è un fattore
+     * di un prodotto righe per colonne, o se un operando ne è una vista sovrapposta o trasposta,
+     * il risultato viene calcolato su una matrice temporanea
+     * @param dest Matrice della stessa dimensione del risultato
+     * @return La matrice di destinazione
+     */
+    public Matrix into(Matrix dest) {
+        if (dest.getNumRows() != rows || dest.getNumColumns() != columns)
+            throw new RuntimeException("Illegal matrices length: the result must be " + rows + "x" + columns);
+
+        //alpha * (A * B) + beta * E: il prodotto viene accumulato nella destinazione
+        Expression e = this;
+        double alpha = 1;
+        if (e instanceof Affine && ((Affine) e).shift == 0 && ((Affine) e).operand instanceof Product) {
+            alpha = ((Affine) e).alpha;
+            e = ((Affine) e).operand;
+        }
+        if (e instanceof Product) {
+            if (!e.reads(dest)) {
+                multiplyChain(factors(e), dest, alpha, 0);
+            } else {
+                //la destinazione è un fattore del prodotto: si calcola su una matrice temporanea
+                Matrix result = new Matrix(rows, columns);
+                multiplyChain(factors(e), result, alpha, 0);
+                fuse(new Leaf(result), dest);
+            }
+            return dest;
+        }
+        if (alpha == 1 && e instanceof Combine) {
+            Combine c = (Combine) e;
+            if (c.right instanceof Product && !c.right.reads(dest)) {
+                c.left.into(dest);
+                multiplyChain(factors(c.right), dest, c.beta, 1);
+                return dest;
+            }
+            if (c.left instanceof Product && !c.left.reads(dest)) {
+                Affine.of(c.right, c.beta, 0).into(dest);
+                multiplyChain(factors(c.left), dest, 1, 1);
+                return dest;
+            }
+        }
+        Expression resolved = resolveProducts();
+        if (!resolved.overlaps(dest)) {
+            fuse(resolved, dest);
+        } else {
+            //un operando è una vista sovrapposta o trasposta della destinazione: si calcola su una matrice temporanea
+            Matrix result = new Matrix(rows, columns);
+            fuse(resolved, result);
+            fuse(new Leaf(result), dest);
+        }
+        return dest;
+    }
+
+    /**
+     * Controlla se il calcolo dei prodotti di questa espressione legge gli elementi di una matrice
+     * @param m Matrice da cercare tra gli operandi
+     * @return {@code true} Se e solo se, la matrice può condividere elementi con un operando;
+     *         Altrimenti {@code false}.
+     */
+    abstract boolean reads(Matrix m);
+
+    /**
+     * Controlla se un operando di questa espressione condivide elementi con una matrice senza esserne
+     * la stessa vista, per cui il passaggio fuso non può scrivere direttamente nella matrice
+     * @param m Matrice di destinazione
+     * @return {@code true} Se e solo se, un operando può avere elementi in comune con la matrice in posizioni diverse;
+     *         Altrimenti {@code false}.
+     */
+    abstract boolean overlaps(Matrix m);
+
+    /**
+     * Ritorna un'espressione equivalente in cui ogni prodotto righe per colonne
+     * è stato calcolato e sostituito dalla matrice risultante
+     * @return L'espressione composta solo da operazioni elemento per elemento
+     */
+    abstract Expression resolveProducts();
+
+    /**
+     * Calcola una tessera di una riga del risultato, le operazioni elemento per elemento
+     * sono applicate sulla tessera che resta in cache tra un'operazione e l'altra
+     * @param row Indice della riga
+     * @param column Indice della prima colonna della tessera
+     * @param count Numero di colonne della tessera
+     * @param out Vettore che riceve la tessera
+     * @param buffers Vettori di appoggio, uno per livello dell'albero
+     * @param level Livello di questo nodo
+     */
+    abstract void tile(int row, int column, int count, double[] out, double[][] buffers, int level);
+
+    /**
+     * Profondità dell'albero delle operazioni elemento per elemento
+     * @return Il numero di vettori di appoggio necessari
+     */
+    abstract int depth();
+
+    /**
+     * Passaggio fuso: ogni tessera di ogni riga viene calcolata dall'albero e scritta nella destinazione.
+     * Una tessera della destinazione viene scritta solo dopo aver letto le tessere corrispondenti
+     * degli operandi, per cui la destinazione può coincidere con un operando ma non essere una sua vista
+     * sovrapposta o trasposta
+     */
+    private static void fuse(Expression e, Matrix dest) {
+        int width = Math.min(TILE, Math.max(1, e.columns));
+        double[] out = new double[width];
+        double[][] buffers = new double[e.depth()][width];
+        for (int i = 0; i < e.rows; i++) {
+            for (int j = 0; j < e.columns; j += width) {
+                int count = Math.min(width, e.columns - j);
+                e.tile(i, j, count, out, buffers, 0);
+                dest.copyRowFrom(out, 0, i, j, count);
+            }
+        }
+    }
+
+    /**
+     * Valuta l'espressione ritornando direttamente la matrice se è una foglia
+     */
+    Matrix toMatrix() {
+        return evaluate();
+    }
+
+    /**
+     * Raccoglie i fattori di una catena di prodotti righe per colonne, da sinistra a destra
+     */
+    private static List<Matrix> factors(Expression e) {
+        List<Matrix> factors = new ArrayList<>();
+        collect(e, factors);
+        return factors;
+    }
+
+    private static void collect(Expression e, List<Matrix> factors) {
+        if (e instanceof Product) {
+            collect(((Product) e).left, factors);
+            collect(((Product) e).right, factors);
+        } else {
+            factors.add(e.toMatrix());
+        }
+    }
+
+    /**
+     * Calcola dest = alpha * (F1 * F2 * ... * Fk) + beta * dest scegliendo l'ordine dei prodotti
+     * che minimizza il numero di moltiplicazioni scalari, in O(k³)
+     * @param factors Fattori della catena
+     * @param dest Destinazione
+     * @param alpha Coefficiente del prodotto
+     * @param beta Coefficiente della destinazione
+     */
+    static void multiplyChain(List<Matrix> factors, Matrix dest, double alpha, double beta) {
+        int k = factors.size();
+        long[] dims = new long[k + 1];
+        for (int i = 0; i < k; i++) dims[i] = factors.get(i).getNumRows();
+        dims[k] = factors.get(k - 1).getNumColumns();
+
+        long[][] cost = new long[k][k];
+        int[][] split = new int[k][k];
+        for (int length = 2; length <= k; length++) {
+            for (int i = 0; i + length - 1 < k; i++) {
+                int j = i + length - 1;
+                cost[i][j] = Long.MAX_VALUE;
+                for (int s = i; s < j; s++) {
+                    long c = cost[i][s] + cost[s + 1][j] + dims[i] * dims[s + 1] * dims[j + 1];
+                    if (c < cost[i][j]) {
+                        cost[i][j] = c;
+                        split[i][j] = s;
+                    }
+                }
+            }
+        }
+        int s = split[0][k - 1];
+        Matrix left = chain(factors, split, 0, s), right = chain(factors, split, s + 1, k - 1);
+        Matrix.multiplyAdd(left, right, dest, alpha, beta);
+    }
+
+    /**
+     * Calcola il prodotto dei fattori [i, j] secondo l'ordine scelto
+     */
+    private static Matrix chain(List<Matrix> factors, int[][] split, int i, int j) {
+        if (i == j) return factors.get(i);
+        int s = split[i][j];
+        return chain(factors, split, i, s).multiply(chain(factors, split, s + 1, j));
+    }
+
+    /**
+     * Foglia dell'albero: una matrice operanda
+     */
+    private static final class Leaf extends Expression {
+        private final Matrix matrix;
+
+        Leaf(Matrix matrix) {
+            super(matrix.getNumRows(), matrix.getNumColumns());
+            this.matrix = matrix;
+        }
+
+        @Override
+        boolean reads(Matrix m) {
+            return Matrix.shareElements(matrix, m);
+        }
+
+        @Override
+        boolean overlaps(Matrix m) {
+            return Matrix.overlaps(m, matrix);
+        }
+
+        @Override
+        Expression resolveProducts() {
+            return this;
+        }
+
+        @Override
+        void tile(int row, int column, int count, double[] out, double[][] buffers, int level) {
+            matrix.copyRowTo(row, column, count, out, 0);
+        }
+
+        @Override
+        int depth() {
+            return 0;
+        }
+
+        @Override
+        Matrix toMatrix() {
+            return matrix;
+        }
+    }
+
+    /**
+     * Operazione alpha * x + shift applicata a ogni elemento dell'operando
+     */
+    private static final class Affine extends Expression {
+        private final Expression operand;
+        private final double alpha;
+        private final double shift;
+
+        private Affine(Expression operand, double alpha, double shift) {
+            super(operand.rows, operand.columns);
+            this.operand = operand;
+            this.alpha = alpha;
+            this.shift = shift;
+        }
+
+        /**
+         * Crea l'operazione componendola con un'eventuale operazione dello stesso tipo sull'operando
+         */
+        static Expression of(Expression operand, double alpha, double shift) {
+            if (operand instanceof Affine) {
+                Affine inner = (Affine) operand;
+                return new Affine(inner.operand, alpha * inner.alpha, alpha * inner.shift + shift);
+            }
+            return new Affine(operand, alpha, shift);
+        }
+
+        @Override
+        boolean reads(Matrix m) {
+            return operand.reads(m);
+        }
+
+        @Override
+        boolean overlaps(Matrix m) {
+            return operand.overlaps(m);
+        }
+
+        @Override
+        Expression resolveProducts() {
+            Expression resolved = operand.resolveProducts();
+            return resolved == operand ? this : new Affine(resolved, alpha, shift);
+        }
+
+        @Override
+        void tile(int row, int column, int count, double[] out, double[][] buffers, int level) {
+            operand.tile(row, column, count, out, buffers, level);
+            Kernels.affine(out, 0, alpha, shift, out, 0, count);
+        }
+
+        @Override
+        int depth() {
+            return operand.depth();
+        }
+    }
+
+    /**
+     * Operazione left + beta * right elemento per elemento
+     */
+    private static final class Combine extends Expression {
+        private final Expression left;
+        private final double beta;
+        private final Expression right;
+
+        Combine(Expression left, double beta, Expression right) {
+            super(left.rows, left.columns);
+            if (left.rows != right.rows || left.columns != right.columns)
+                throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+            this.left = left;
+            this.beta = beta;
+            this.right = right;
+        }
+
+        @Override
+        boolean reads(Matrix m) {
+            return left.reads(m) || right.reads(m);
+        }
+
+        @Override
+        boolean overlaps(Matrix m) {
+            return left.overlaps(m) || right.overlaps(m);
+        }
+
+        @Override
+        Expression resolveProducts() {
+            Expression l = left.resolveProducts(), r = right.resolveProducts();
+            return l == left && r == right ? this : new Combine(l, beta, r);
+        }
+
+        @Override
+        void tile(int row, int column, int count, double[] out, double[][] buffers, int level) {
+            double[] tmp = buffers[level];
+            left.tile(row, column, count, out, buffers, level + 1);
+            right.tile(row, column, count, tmp, buffers, level + 1);
+            Kernels.combine(out, 0, beta, tmp, 0, out, 0, count);
+        }
+
+        @Override
+        int depth() {
+            return 1 + Math.max(left.depth(), right.depth());
+        }
+    }
+
+    /**
+     * Prodotto righe per colonne, calcolato prima del passaggio fuso
+     */
+    private static final class Product extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        Product(Expression left, Expression right) {
+            super(left.rows, right.columns);
+            if (left.columns != right.rows)
+                throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + left.columns + " != " + right.rows);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean reads(Matrix m) {
+            return left.reads(m) || right.reads(m);
+        }
+
+        @Override
+        boolean overlaps(Matrix m) {
+            return left.overlaps(m) || right.overlaps(m);
+        }
+
+        @Override
+        Expression resolveProducts() {
+            return new Leaf(evaluate());
+        }
+
+        @Override
+        void tile(int row, int column, int count, double[] out, double[][] buffers, int level) {
+            throw new IllegalStateException("products are resolved before the fused pass");
+        }
+
+        @Override
+        int depth() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Matrice di elementi in singola precisione (float), memorizzati per righe in un unico vettore.
+ * Rispetto a {@link Matrix} occupa metà della memoria e i kernel elaborano il doppio
+ * degli elementi per istruzione SIMD, a fronte di circa 7 cifre decimali significative.
+ * Le operazioni numericamente delicate (determinante, inversa, sistemi lineari, rango)
+ * vengono calcolate in doppia precisione e il risultato viene riconvertito
+ * @author Erik Gurzau
+ */
+public class FloatMatrix implements RealMatrix {
+    /**
+     * Elementi della matrice memorizzati per righe: l'elemento (i,j) si trova in posizione i * columns + j
+     */
+    private final float[] data;
+    /**
+     * Numero di righe
+     */
+    private final int rows;
+    /**
+     * Numero di colonne
+     */
+    private final int columns;
+
+    /**
+     * Costruttore di una matrice nulla
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     */
+    public FloatMatrix(int rows, int columns) {
+        if (rows < 0 || columns < 0)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        this.rows = rows;
+        this.columns = columns;
+        this.data = new float[rows * columns];
+    }
+
+    /**
+     * Costruttore di una matrice a partire da una matrice di float, che viene copiata
+     * @param matrix Elementi della matrice
+     */
+    public FloatMatrix(float[][] matrix) {
+        this(matrix.length, matrix.length == 0 ? 0 : matrix[0].length);
+        for (int i = 0; i < rows; i++) {
+            if (matrix[i].length != columns)
+                throw new RuntimeException("Illegal matrix: row " + i + " has " + matrix[i].length + " elements but " + columns + " are expected");
+            System.arraycopy(matrix[i], 0, data, i * columns, columns);
+        }
+    }
+
+    /**
+     * Costruttore di una matrice che utilizza direttamente un vettore di elementi memorizzati per righe,
+     * senza copiarlo: le modifiche al vettore sono visibili nella matrice e viceversa
+     * @param elements Elementi della matrice memorizzati per righe
+     * @param rows Numero di righe, deve dividere la lunghezza del vettore
+     */
+    public FloatMatrix(float[] elements, int rows) {
+        if (rows <= 0 || elements.length % rows != 0)
+            throw new RuntimeException("Illegal number of rows: " + rows + " does not divide " + elements.length + " elements");
+        this.data = elements;
+        this.rows = rows;
+        this.columns = elements.length / rows;
+    }
+
+    /**
+     * Converte una matrice in doppia precisione, arrotondando ogni elemento al float più vicino
+     * @param m Matrice da convertire
+     * @return La matrice in singola precisione
+     */
+    public static FloatMatrix of(Matrix m) {
+        FloatMatrix result = new FloatMatrix(m.getNumRows(), m.getNumColumns());
+        double[] row = new double[m.getNumColumns()];
+        for (int i = 0; i < result.rows; i++) {
+            m.copyRowTo(i, row, 0);
+            for (int j = 0; j < result.columns; j++) result.data[i * result.columns + j] = (float) row[j];
+        }
+        return result;
+    }
+
+    /**
+     * Converte questa matrice in doppia precisione, la conversione è esatta
+     * @return La matrice in doppia precisione
+     */
+    public Matrix toMatrix() {
+        if (rows == 0 || columns == 0) return new Matrix(rows, columns);
+        double[] elements = new double[data.length];
+        for (int k = 0; k < data.length; k++) elements[k] = data[k];
+        return new Matrix(elements, rows);
+    }
+
+    /**
+     * Ritorna una copia densa della matrice in doppia precisione
+     * @return La matrice densa con gli stessi elementi
+     * @see #toMatrix()
+     */
+    public Matrix toDense() {
+        return toMatrix();
+    }
+
+    public int getNumRows() {
+        return rows;
+    }
+
+    public int getNumColumns() {
+        return columns;
+    }
+
+    /**
+     * Controlla gli indici di un elemento
+     */
+    private int index(int row, int column) {
+        if (row < 0 || row >= rows)
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + rows);
+        if (column < 0 || column >= columns)
+            throw new RuntimeException("Illegal column index: " + column + " out of bounds 0 - " + columns);
+        return row * columns + column;
+    }
+
+    /**
+     * Ritorna un elemento in una posizione specifica della matrice
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    public float getFloat(int row, int column) {
+        return data[index(row, column)];
+    }
+
+    /**
+     * Ritorna un elemento in una posizione specifica della matrice convertito in doppia precisione,
+     * la conversione è esatta
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    public double get(int row, int column) {
+        return data[index(row, column)];
+    }
+
+    /**
+     * Rimpiazza un elemento in una posizione specifica della matrice con un altro elemento
+     * @param value Elemento da inserire nella matrice
+     * @param row Indice della riga dell'elemento da rimpiazzare
+     * @param column Indice della colonna dell'elemento da rimpiazzare
+     */
+    public void set(float value, int row, int column) {
+        data[index(row, column)] = value;
+    }
+
+    /**
+     * Ritorna una copia degli elementi di una riga
+     * @param row Indice della riga
+     * @return Gli elementi della riga
+     */
+    public float[] getRow(int row) {
+        float[] elements = new float[columns];
+        System.arraycopy(data, index(row, 0), elements, 0, columns);
+        return elements;
+    }
+
+    /**
+     * Ritorna una copia degli elementi come matrice di float
+     * @return Gli elementi della matrice
+     */
+    public float[][] getMatrix() {
+        float[][] matrix = new float[rows][columns];
+        for (int i = 0; i < rows; i++) System.arraycopy(data, i * columns, matrix[i], 0, columns);
+        return matrix;
+    }
+
+    /**
+     * Controlla se questa e un'altra matrice hanno lo stesso numero di righe e di colonne
+     * @param other Matrice da confrontare
+     * @return {@code true} Se e solo se, le dimensioni coincidono;
+     *         Altrimenti {@code false}.
+     */
+    public boolean hasEqualsOrder(FloatMatrix other) {
+        return rows == other.rows && columns == other.columns;
+    }
+
+    /**
+     * Somma elemento per elemento
+     * @param other Matrice della stessa dimensione
+     * @return La matrice somma
+     */
+    public FloatMatrix sum(FloatMatrix other) {
+        return combine(this, 1, other, new FloatMatrix(rows, columns));
+    }
+
+    /**
+     * Differenza elemento per elemento
+     * @param other Matrice della stessa dimensione
+     * @return La matrice differenza
+     */
+    public FloatMatrix diff(FloatMatrix other) {
+        return combine(this, -1, other, new FloatMatrix(rows, columns));
+    }
+
+    /**
+     * Somma uno scalare a ogni elemento
+     * @param scalar Valore da sommare
+     * @return La matrice risultante
+     */
+    public FloatMatrix sum(float scalar) {
+        return affine(this, 1, scalar, new FloatMatrix(rows, columns));
+    }
+
+    /**
+     * Sottrae uno scalare a ogni elemento
+     * @param scalar Valore da sottrarre
+     * @return La matrice risultante
+     */
+    public FloatMatrix diff(float scalar) {
+        return affine(this, 1, -scalar, new FloatMatrix(rows, columns));
+    }
+
+    /**
+     * Somma in place un'altra matrice a questa
+     * @param other Matrice della stessa dimensione
+     * @return Questa matrice
+     */
+    public FloatMatrix addInPlace(FloatMatrix other) {
+        return combine(this, 1, other, this);
+    }
+
+    /**
+     * Sottrae in place un'altra matrice da questa
+     * @param other Matrice della stessa dimensione
+     * @return Questa matrice
+     */
+    public FloatMatrix subInPlace(FloatMatrix other) {
+        return combine(this, -1, other, this);
+    }
+
+    /**
+     * Moltiplica in place ogni elemento per uno scalare
+     * @param scalar Valore per cui moltiplicare
+     * @return Questa matrice
+     */
+    public FloatMatrix scaleInPlace(float scalar) {
+        return affine(this, scalar, 0, this);
+    }
+
+    /**
+     * Aggiorna in place questa matrice con this = this + alpha * x
+     * @param alpha Coefficiente di x
+     * @param x Matrice della stessa dimensione
+     * @return Questa matrice
+     */
+    public FloatMatrix axpy(float alpha, FloatMatrix x) {
+        return combine(this, alpha, x, this);
+    }
+
+    /**
+     * Somma due matrici dello stesso ordine scrivendo il risultato in una matrice di destinazione,
+     * che può coincidere con uno degli operandi
+     * @param a Primo addendo
+     * @param b Secondo addendo
+     * @param dest Matrice dello stesso ordine che riceve la somma
+     * @return La matrice di destinazione
+     */
+    public static FloatMatrix sum(FloatMatrix a, FloatMatrix b, FloatMatrix dest) {
+        return combine(a, 1, b, dest);
+    }
+
+    /**
+     * Esegue la sottrazione tra due matrici dello stesso ordine scrivendo il risultato in una matrice
+     * di destinazione, che può coincidere con uno degli operandi
+     * @param a Matrice minuendo
+     * @param b Matrice sottraendo
+     * @param dest Matrice dello stesso ordine che riceve la differenza
+     * @return La matrice di destinazione
+     */
+    public static FloatMatrix diff(FloatMatrix a, FloatMatrix b, FloatMatrix dest) {
+        return combine(a, -1, b, dest);
+    }
+
+    private static FloatMatrix combine(FloatMatrix a, float beta, FloatMatrix b, FloatMatrix dest) {
+        if (!a.hasEqualsOrder(b) || !a.hasEqualsOrder(dest))
+            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+        Kernels.combine(a.data, 0, beta, b.data, 0, dest.data, 0, a.data.length);
+        return dest;
+    }
+
+    private static FloatMatrix affine(FloatMatrix a, float alpha, float shift, FloatMatrix dest) {
+        Kernels.affine(a.data, 0, alpha, shift, dest.data, 0, a.data.length);
+        return dest;
+    }
+
+    /**
+     * Prodotto righe per colonne
+     * @param other Matrice NxK da moltiplicare a questa
+     * @return La matrice risultante dal prodotto
+     */
+    public FloatMatrix multiply(FloatMatrix other) {
+        return multiplyAdd(this, other, new FloatMatrix(rows, other.columns), 1, 0, null);
+    }
+
+    /**
+     * Prodotto righe per colonne eseguito in parallelo sul pool comune
+     * @param other Matrice NxK da moltiplicare a questa
+     * @return La matrice risultante dal prodotto
+     */
+    public FloatMatrix parallelMultiply(FloatMatrix other) {
+        return multiply(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Prodotto righe per colonne eseguito in parallelo su un pool specifico
+     * @param other Matrice NxK da moltiplicare a questa
+     * @param pool Pool su cui eseguire il prodotto
+     * @return La matrice risultante dal prodotto
+     */
+    public FloatMatrix multiply(FloatMatrix other, ForkJoinPool pool) {
+        return multiplyAdd(this, other, new FloatMatrix(rows, other.columns), 1, 0, pool);
+    }
+
+    /**
+     * Prodotto righe per colonne con una matrice in doppia precisione, calcolato in doppia precisione
+     * @param other Matrice NxK da moltiplicare a questa
+     * @return La matrice risultante dal prodotto
+     */
+    public Matrix multiply(Matrix other) {
+        return toMatrix().multiply(other);
+    }
+
+    /**
+     * Prodotto righe per colonne tra una matrice MxN e una NxK scrivendo il risultato
+     * in una matrice MxK di destinazione, che non deve condividere elementi con gli operandi
+     * @param a Matrice MxN
+     * @param b Matrice NxK
+     * @param dest Matrice MxK che riceve il prodotto
+     * @return La matrice di destinazione
+     */
+    public static FloatMatrix multiply(FloatMatrix a, FloatMatrix b, FloatMatrix dest) {
+        return multiplyAdd(a, b, dest, 1, 0, null);
+    }
+
+    /**
+     * Prodotto generale tra matrici: calcola C = alpha * A * B + beta * C scrivendo il risultato in C
+     * @param a Matrice A di dimensione MxN
+     * @param b Matrice B di dimensione NxK
+     * @param c Matrice C di dimensione MxK, distinta da A e B, che riceve il risultato
+     * @param alpha Coefficiente del prodotto A * B
+     * @param beta Coefficiente di C, se pari a 0 il contenuto iniziale di C viene ignorato
+     * @param pool Pool su cui eseguire il prodotto, se {@code null} il prodotto viene calcolato in modo seriale
+     * @return La matrice C
+     */
+    public static FloatMatrix multiplyAdd(FloatMatrix a, FloatMatrix b, FloatMatrix c, float alpha, float beta, ForkJoinPool pool) {
+        if (a.columns != b.rows)
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + a.columns + " != " + b.rows);
+        if (c.rows != a.rows || c.columns != b.columns)
+            throw new RuntimeException("Illegal matrices length: the result must be " + a.rows + "x" + b.columns);
+        if (c.data == a.data || c.data == b.data)
+            throw new RuntimeException("Illegal product destination: the result matrix must not share elements with an operand");
+        Gemm.multiplyAdd(a.data, a.columns, b.data, b.columns, c.data, c.columns, c.rows, c.columns, a.columns, alpha, beta, pool);
+        return c;
+    }
+
+    /**
+     * Ritorna la matrice trasposta
+     * @return La matrice trasposta
+     */
+    public FloatMatrix transposed() {
+        FloatMatrix result = new FloatMatrix(columns, rows);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++) result.data[j * rows + i] = data[i * columns + j];
+        return result;
+    }
+
+    /**
+     * Riduce a scala questa matrice con il metodo di eliminazione di Gauss, eseguito in doppia precisione
+     * @return La matrice in forma scala, in singola precisione
+     */
+    public FloatMatrix scale() {
+        return of(toMatrix().scale());
+    }
+
+    /**
+     * Riduce a scala ridotta questa matrice con il metodo di eliminazione di Gauss-Jordan,
+     * eseguito in doppia precisione
+     * @return La matrice in forma scala ridotta, in singola precisione
+     */
+    public FloatMatrix reducedScale() {
+        return of(toMatrix().reducedScale());
+    }
+
+    /**
+     * Calcola la matrice aggiunta in doppia precisione e la arrotonda in singola precisione
+     * @return La matrice aggiunta
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public FloatMatrix adjugate() throws MatrixException {
+        return of(toMatrix().adjugate());
+    }
+
+    /**
+     * Calcola la matrice dei cofattori, trasposta della matrice aggiunta
+     * @return La matrice dei cofattori
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public FloatMatrix cofactors() throws MatrixException {
+        return adjugate().transposed();
+    }
+
+    /**
+     * Calcolo del determinante, eseguito in doppia precisione
+     * @return Il valore del determinante
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public double determinant() throws MatrixException {
+        return toMatrix().determinant();
+    }
+
+    /**
+     * Calcola la matrice inversa in doppia precisione e la arrotonda in singola precisione
+     * @return La matrice inversa
+     * @throws MatrixException Se la matrice non è quadrata oppure è singolare
+     */
+    public FloatMatrix inverse() throws MatrixException {
+        return of(toMatrix().inverse());
+    }
+
+    /**
+     * Risolve il sistema lineare AX = B in doppia precisione
+     * @param b Matrice NxK dei termini noti
+     * @return La matrice NxK delle soluzioni, in singola precisione
+     * @throws MatrixException Se la matrice non è quadrata oppure è singolare
+     */
+    public FloatMatrix solve(FloatMatrix b) throws MatrixException {
+        return of(toMatrix().solve(b.toMatrix()));
+    }
+
+    /**
+     * Calcola il rango in doppia precisione, con la tolleranza riferita alla precisione dei float:
+     * sono considerati nulli gli elementi diagonali di R non superiori a max(M,N) * eps(float) * |R11|
+     * @return Il rango della matrice
+     */
+    public int rank() {
+        QRDecomposition qr = toMatrix().qr();
+        return qr.rank(qr.defaultTolerance() / Math.ulp(1.0) * Math.ulp(1.0f));
+    }
+
+    public boolean isSquare() {
+        return rows == columns;
+    }
+
+    /**
+     * Controlla se la matrice è nulla
+     * @return {@code true} Se e solo se, ogni elemento della matrice è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isNull() {
+        for (float x: data) if (x != 0) return false;
+        return true;
+    }
+
+    /**
+     * Controlla se la matrice è diagonale
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è diverso da 0, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isDiagonal() {
+        if (!isSquare()) return false;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++)
+                if ((data[i * columns + j] == 0) == (i == j)) return false;
+        return true;
+    }
+
+    /**
+     * Controlla se la matrice è identità
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è uguale a 1, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isIdentity() {
+        if (!isSquare()) return false;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++)
+                if (data[i * columns + j] != (i == j ? 1 : 0)) return false;
+        return true;
+    }
+
+    /**
+     * Ritorna una stringa che rappresenta in una singola linea la matrice,
+     * con ogni elemento arrotondato a due cifre decimali
+     * @return Rappresentazione String della matrice
+     */
+    public String toLineString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            if (i != 0) s.append(',');
+            s.append('{');
+            for (int j = 0; j < columns; j++) {
+                if (j != 0) s.append(',');
+                MatrixFormat.append(s, data[i * columns + j], 2);
+            }
+            s.append('}');
+        }
+        return s.toString();
+    }
+
+    /**
+     * Ritorna una stringa che rappresenta in forma tabellare la matrice,
+     * con ogni elemento arrotondato a due cifre decimali
+     * @return Rappresentazione String della matrice
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("\n");
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                MatrixFormat.append(s, data[i * columns + j], 2);
+                s.append("  ");
+            }
+            s.append('\n');
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,289 @@
+package it.matrix;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Kernel del prodotto tra matrici dense nella forma C = alpha * A * B + beta * C.
+ * Le matrici sono memorizzate per righe in vettori contigui, descritte dalla posizione
+ * del primo elemento e dalla distanza tra due righe consecutive (ld).
+ * Il calcolo è suddiviso in blocchi dimensionati sulle cache: un pannello KC x NC di B
+ * viene copiato in un'area di lavoro che resta in L2, mentre la riga di C aggiornata
+ * e le righe del pannello scorse dal ciclo interno restano in L1.
+ * L'ordine dei cicli i-k-j accede a B e C per righe, in modo contiguo, così il ciclo
+ * interno può essere vettorizzato dal compilatore JIT
+ */
+final class Gemm {
+    /**
+     * Numero minimo di righe di C assegnate ad ogni task parallelo
+     */
+    static final int MC = 64;
+    /**
+     * Dimensione condivisa (colonne di A, righe di B) elaborata per ogni blocco
+     */
+    static final int KC = 128;
+    /**
+     * Numero di colonne di B e C elaborate per ogni blocco
+     */
+    static final int NC = 256;
+    /**
+     * Numero di moltiplicazioni-addizioni (M * N * K) sotto il quale il prodotto
+     * parallelo ricade sul calcolo seriale, evitando il costo di creazione dei task
+     */
+    static final long PARALLEL_THRESHOLD = 128L * 128 * 128;
+
+    private Gemm() {
+    }
+
+    /**
+     * Calcola C = alpha * A * B + beta * C
+     * @param a Elementi di A, matrice MxK
+     * @param aOff Posizione di A(0,0)
+     * @param lda Distanza tra due righe di A
+     * @param b Elementi di B, matrice KxN
+     * @param bOff Posizione di B(0,0)
+     * @param ldb Distanza tra due righe di B
+     * @param c Elementi di C, matrice MxN sovrascritta con il risultato
+     * @param cOff Posizione di C(0,0)
+     * @param ldc Distanza tra due righe di C
+     * @param m Numero di righe di C
+     * @param n Numero di colonne di C
+     * @param k Dimensione condivisa tra A e B
+     * @param alpha Coefficiente del prodotto
+     * @param beta Coefficiente di C
+     */
+    static void multiplyAdd(double[] a, int aOff, int lda, double[] b, int bOff, int ldb, double[] c, int cOff, int ldc,
+                            int m, int n, int k, double alpha, double beta) {
+        scale(c, cOff, ldc, 0, m, n, beta);
+        if (alpha == 0 || k == 0) return;
+        multiplyAdd(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, 0, m, n, k, alpha);
+    }
+
+    /**
+     * Calcola C = alpha * A * B + beta * C suddividendo le righe di C in blocchi
+     * eseguiti in parallelo sul pool indicato. Ogni blocco scrive righe distinte di C,
+     * per cui non è necessaria alcuna sincronizzazione oltre all'attesa dei task
+     * @see #multiplyAdd(double[], int, int, double[], int, int, double[], int, int, int, int, int, double, double)
+     * @param pool Pool su cui eseguire i task
+     */
+    static void multiplyAdd(double[] a, int aOff, int lda, double[] b, int bOff, int ldb, double[] c, int cOff, int ldc,
+                            int m, int n, int k, double alpha, double beta, ForkJoinPool pool) {
+        if (!isParallel(m, n, k, pool)) {
+            multiplyAdd(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, m, n, k, alpha, beta);
+            return;
+        }
+        pool.invoke(new RowBlockTask(0, m, grain(m, pool), (rowStart, rowEnd) -> {
+            scale(c, cOff, ldc, rowStart, rowEnd, n, beta);
+            if (alpha != 0 && k != 0)
+                multiplyAdd(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, rowStart, rowEnd, n, k, alpha);
+        }));
+    }
+
+    /**
+     * Controlla se un prodotto MxK per KxN è abbastanza grande da essere eseguito in parallelo
+     */
+    static boolean isParallel(int m, int n, int k, ForkJoinPool pool) {
+        return (long) m * n * k >= PARALLEL_THRESHOLD && m >= 2 * MC && pool.getParallelism() >= 2;
+    }
+
+    /**
+     * Numero di righe per task: almeno quattro blocchi per thread per bilanciare il carico,
+     * mai più piccoli di MC righe
+     */
+    static int grain(int m, ForkJoinPool pool) {
+        return Math.max(MC, m / (4 * pool.getParallelism()));
+    }
+
+    /**
+     * Calcolo di un intervallo di righe [rowStart, rowEnd)
+     */
+    interface RowRange {
+        void compute(int rowStart, int rowEnd);
+    }
+
+    /**
+     * Task che calcola un intervallo di righe, suddividendolo a metà
+     * finché non scende sotto la granularità stabilita
+     */
+    static final class RowBlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int rowStart, rowEnd, grain;
+        private final transient RowRange range;
+
+        RowBlockTask(int rowStart, int rowEnd, int grain, RowRange range) {
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.grain = grain;
+            this.range = range;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart <= grain) {
+                range.compute(rowStart, rowEnd);
+                return;
+            }
+            int mid = (rowStart + rowEnd) >>> 1;
+            invokeAll(new RowBlockTask(rowStart, mid, grain, range), new RowBlockTask(mid, rowEnd, grain, range));
+        }
+    }
+
+    /**
+     * Moltiplica per beta le righe [rowStart, rowEnd) di C
+     */
+    static void scale(double[] c, int cOff, int ldc, int rowStart, int rowEnd, int n, double beta) {
+        if (beta == 1) return;
+        for (int i = rowStart; i < rowEnd; i++) {
+            int ci = cOff + i * ldc;
+            if (beta == 0) {
+                for (int j = 0; j < n; j++) c[ci + j] = 0; //evita la propagazione di NaN e infiniti presenti in C
+            } else {
+                for (int j = 0; j < n; j++) c[ci + j] *= beta;
+            }
+        }
+    }
+
+    /**
+     * Accumula alpha * A * B nelle righe [rowStart, rowEnd) di C, già scalate per beta.
+     * Ogni pannello KC x NC di B viene copiato in righe contigue separate e ogni riga di C
+     * viene accumulata in un vettore di appoggio: in questo modo il ciclo interno accede
+     * a vettori distinti con lo stesso indice e il compilatore JIT può vettorizzarlo
+     */
+    static void multiplyAdd(double[] a, int aOff, int lda, double[] b, int bOff, int ldb, double[] c, int cOff, int ldc,
+                            int rowStart, int rowEnd, int n, int k, double alpha) {
+        if (n == 1) {
+            multiplyVector(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, rowStart, rowEnd, k, alpha);
+            return;
+        }
+        double[][] panel = new double[Math.min(KC, k)][Math.min(NC, n)];
+        double[] acc = new double[Math.min(NC, n)];
+        for (int jj = 0; jj < n; jj += NC) {
+            int width = Math.min(NC, n - jj);
+            for (int kk = 0; kk < k; kk += KC) {
+                int depth = Math.min(KC, k - kk);
+                for (int p = 0; p < depth; p++)
+                    System.arraycopy(b, bOff + (kk + p) * ldb + jj, panel[p], 0, width);
+
+                for (int i = rowStart; i < rowEnd; i++) {
+                    int ci = cOff + i * ldc + jj;
+                    System.arraycopy(c, ci, acc, 0, width);
+                    kernel(a, aOff + i * lda + kk, panel, acc, depth, width, alpha);
+                    System.arraycopy(acc, 0, c, ci, width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prodotto matrice per vettore colonna: ogni elemento di C è il prodotto scalare
+     * tra una riga di A e la colonna B, copiata una sola volta in un vettore contiguo
+     */
+    private static void multiplyVector(double[] a, int aOff, int lda, double[] b, int bOff, int ldb, double[] c, int cOff, int ldc,
+                                       int rowStart, int rowEnd, int k, double alpha) {
+        double[] x = new double[k];
+        for (int p = 0; p < k; p++) x[p] = b[bOff + p * ldb];
+        for (int i = rowStart; i < rowEnd; i++)
+            c[cOff + i * ldc] += alpha * Kernels.dot(a, aOff + i * lda, x, 0, k);
+    }
+
+    /**
+     * Aggiorna una riga di C, già copiata nel vettore di appoggio, con il contributo
+     * delle righe del pannello di B. Le righe del pannello vengono combinate
+     * a quattro per volta per ridurre le letture e scritture sulla riga di C
+     */
+    private static void kernel(double[] a, int ai, double[][] panel, double[] acc, int depth, int width, double alpha) {
+        int p = 0;
+        for (; p + 3 < depth; p += 4) {
+            double a0 = alpha * a[ai + p], a1 = alpha * a[ai + p + 1], a2 = alpha * a[ai + p + 2], a3 = alpha * a[ai + p + 3];
+            double[] b0 = panel[p], b1 = panel[p + 1], b2 = panel[p + 2], b3 = panel[p + 3];
+            for (int j = 0; j < width; j++)
+                acc[j] += a0 * b0[j] + a1 * b1[j] + a2 * b2[j] + a3 * b3[j];
+        }
+        for (; p < depth; p++) {
+            double a0 = alpha * a[ai + p];
+            double[] b0 = panel[p];
+            for (int j = 0; j < width; j++) acc[j] += a0 * b0[j];
+        }
+    }
+
+    /**
+     * Calcola C = alpha * A * B + beta * C in singola precisione, con la stessa suddivisione
+     * in blocchi del prodotto in doppia precisione; un pannello KC x NC di float occupa
+     * metà della memoria, per cui a parità di banda vengono elaborati il doppio degli elementi
+     * @param pool Pool su cui eseguire i task, se {@code null} il prodotto viene calcolato in modo seriale
+     * @see #multiplyAdd(double[], int, int, double[], int, int, double[], int, int, int, int, int, double, double)
+     */
+    static void multiplyAdd(float[] a, int lda, float[] b, int ldb, float[] c, int ldc,
+                            int m, int n, int k, float alpha, float beta, ForkJoinPool pool) {
+        RowRange range = (rowStart, rowEnd) -> {
+            for (int i = rowStart; i < rowEnd; i++) {
+                if (beta == 0) Arrays.fill(c, i * ldc, i * ldc + n, 0); //evita la propagazione di NaN e infiniti presenti in C
+                else if (beta != 1) Kernels.affine(c, i * ldc, beta, 0, c, i * ldc, n);
+            }
+            if (alpha != 0 && k != 0) multiplyAdd(a, lda, b, ldb, c, ldc, rowStart, rowEnd, n, k, alpha);
+        };
+        if (pool == null || !isParallel(m, n, k, pool)) range.compute(0, m);
+        else pool.invoke(new RowBlockTask(0, m, grain(m, pool), range));
+    }
+
+    /**
+     * Accumula alpha * A * B nelle righe [rowStart, rowEnd) di C, in singola precisione
+     */
+    private static void multiplyAdd(float[] a, int lda, float[] b, int ldb, float[] c, int ldc,
+                                    int rowStart, int rowEnd, int n, int k, float alpha) {
+        float[][] panel = new float[Math.min(KC, k)][Math.min(NC, n)];
+        float[] acc = new float[Math.min(NC, n)];
+        for (int jj = 0; jj < n; jj += NC) {
+            int width = Math.min(NC, n - jj);
+            for (int kk = 0; kk < k; kk += KC) {
+                int depth = Math.min(KC, k - kk);
+                for (int p = 0; p < depth; p++)
+                    System.arraycopy(b, (kk + p) * ldb + jj, panel[p], 0, width);
+
+                for (int i = rowStart; i < rowEnd; i++) {
+                    int ci = i * ldc + jj, ai = i * lda + kk;
+                    System.arraycopy(c, ci, acc, 0, width);
+                    int p = 0;
+                    for (; p + 3 < depth; p += 4) {
+                        float a0 = alpha * a[ai + p], a1 = alpha * a[ai + p + 1], a2 = alpha * a[ai + p + 2], a3 = alpha * a[ai + p + 3];
+                        float[] b0 = panel[p], b1 = panel[p + 1], b2 = panel[p + 2], b3 = panel[p + 3];
+                        for (int j = 0; j < width; j++)
+                            acc[j] += a0 * b0[j] + a1 * b1[j] + a2 * b2[j] + a3 * b3[j];
+                    }
+                    for (; p < depth; p++) {
+                        float a0 = alpha * a[ai + p];
+                        float[] b0 = panel[p];
+                        for (int j = 0; j < width; j++) acc[j] += a0 * b0[j];
+                    }
+                    System.arraycopy(acc, 0, c, ci, width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcola C = A * B tra matrici intere memorizzate per righe in vettori contigui.
+     * Le righe di B vengono copiate in vettori separati e ogni riga di C viene accumulata
+     * in un vettore di appoggio, così il ciclo interno può essere vettorizzato
+     * @param pool Pool su cui eseguire i task, se {@code null} il prodotto viene calcolato in modo seriale
+     */
+    static void multiply(int[] a, int[] b, int[] c, int m, int n, int k, ForkJoinPool pool) {
+        int[][] rowsOfB = new int[k][];
+        for (int p = 0; p < k; p++) rowsOfB[p] = Arrays.copyOfRange(b, p * n, p * n + n);
+        RowRange range = (rowStart, rowEnd) -> {
+            int[] acc = new int[n];
+            for (int i = rowStart; i < rowEnd; i++) {
+                Arrays.fill(acc, 0);
+                for (int p = 0; p < k; p++) {
+                    int aip = a[i * k + p];
+                    if (aip == 0) continue;
+                    int[] bp = rowsOfB[p];
+                    for (int j = 0; j < n; j++) acc[j] += aip * bp[j];
+                }
+                System.arraycopy(acc, 0, c, i * n, n);
+            }
+        };
+        if (pool == null || !isParallel(m, n, k, pool)) range.compute(0, m);
+        else pool.invoke(new RowBlockTask(0, m, grain(m, pool), range));
+    }
+}
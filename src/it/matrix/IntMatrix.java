@@ -0,0 +1,675 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Matrice di elementi interi (int), memorizzati per righe in un unico vettore.
+ * Le operazioni aritmetiche seguono l'aritmetica int di Java: in caso di overflow il
+ * risultato viene troncato ai 32 bit meno significativi. Determinante e rango sono calcolati
+ * in modo esatto con l'eliminazione di Bareiss, che non introduce frazioni
+ * @author Erik Gurzau
+ */
+public class IntMatrix implements RealMatrix {
+    /**
+     * Elementi della matrice memorizzati per righe: l'elemento (i,j) si trova in posizione i * columns + j
+     */
+    private final int[] data;
+    /**
+     * Numero di righe
+     */
+    private final int rows;
+    /**
+     * Numero di colonne
+     */
+    private final int columns;
+
+    /**
+     * Costruttore di una matrice nulla
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     */
+    public IntMatrix(int rows, int columns) {
+        if (rows < 0 || columns < 0)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        this.rows = rows;
+        this.columns = columns;
+        this.data = new int[rows * columns];
+    }
+
+    /**
+     * Costruttore di una matrice a partire da una matrice di interi, che viene copiata
+     * @param matrix Elementi della matrice
+     */
+    public IntMatrix(int[][] matrix) {
+        this(matrix.length, matrix.length == 0 ? 0 : matrix[0].length);
+        for (int i = 0; i < rows; i++) {
+            if (matrix[i].length != columns)
+                throw new RuntimeException("Illegal matrix: row " + i + " has " + matrix[i].length + " elements but " + columns + " are expected");
+            System.arraycopy(matrix[i], 0, data, i * columns, columns);
+        }
+    }
+
+    /**
+     * Costruttore di una matrice che utilizza direttamente un vettore di elementi memorizzati per righe,
+     * senza copiarlo: le modifiche al vettore sono visibili nella matrice e viceversa
+     * @param elements Elementi della matrice memorizzati per righe
+     * @param rows Numero di righe, deve dividere la lunghezza del vettore
+     */
+    public IntMatrix(int[] elements, int rows) {
+        if (rows <= 0 || elements.length % rows != 0)
+            throw new RuntimeException("Illegal number of rows: " + rows + " does not divide " + elements.length + " elements");
+        this.data = elements;
+        this.rows = rows;
+        this.columns = elements.length / rows;
+    }
+
+    /**
+     * Genera una matrice con elementi interi nell'intervallo
+     * ({@link Matrix#MIN_RAND_VALUE} =< x && x < {@link Matrix#MAX_RAND_VALUE})
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @return La matrice generata
+     */
+    public static IntMatrix random(int rows, int columns) {
+        IntMatrix m = new IntMatrix(rows, columns);
+        Random rand = ThreadLocalRandom.current();
+        for (int k = 0; k < m.data.length; k++)
+            m.data[k] = Matrix.MIN_RAND_VALUE + rand.nextInt(Matrix.MAX_RAND_VALUE - Matrix.MIN_RAND_VALUE);
+        return m;
+    }
+
+    /**
+     * Converte una matrice in doppia precisione arrotondando ogni elemento all'intero più vicino
+     * @param m Matrice da convertire
+     * @return La matrice intera
+     */
+    public static IntMatrix of(Matrix m) {
+        IntMatrix result = new IntMatrix(m.getNumRows(), m.getNumColumns());
+        double[] row = new double[m.getNumColumns()];
+        for (int i = 0; i < result.rows; i++) {
+            m.copyRowTo(i, row, 0);
+            for (int j = 0; j < result.columns; j++) {
+                double x = Math.rint(row[j]);
+                if (!(x >= Integer.MIN_VALUE && x <= Integer.MAX_VALUE))
+                    throw new RuntimeException("Illegal integer conversion: " + row[j] + " at (" + i + "," + j + ") is not representable as int");
+                result.data[i * result.columns + j] = (int) x;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converte questa matrice in doppia precisione, la conversione è esatta
+     * @return La matrice in doppia precisione
+     */
+    public Matrix toMatrix() {
+        if (rows == 0 || columns == 0) return new Matrix(rows, columns);
+        double[] elements = new double[data.length];
+        for (int k = 0; k < data.length; k++) elements[k] = data[k];
+        return new Matrix(elements, rows);
+    }
+
+    /**
+     * Ritorna una copia densa della matrice in doppia precisione
+     * @return La matrice densa con gli stessi elementi
+     * @see #toMatrix()
+     */
+    public Matrix toDense() {
+        return toMatrix();
+    }
+
+    /**
+     * Converte questa matrice in singola precisione, arrotondando gli interi
+     * con modulo superiore a 2^24 al float più vicino
+     * @return La matrice in singola precisione
+     */
+    public FloatMatrix toFloatMatrix() {
+        if (rows == 0 || columns == 0) return new FloatMatrix(rows, columns);
+        float[] elements = new float[data.length];
+        for (int k = 0; k < data.length; k++) elements[k] = data[k];
+        return new FloatMatrix(elements, rows);
+    }
+
+    public int getNumRows() {
+        return rows;
+    }
+
+    public int getNumColumns() {
+        return columns;
+    }
+
+    /**
+     * Controlla gli indici di un elemento
+     */
+    private int index(int row, int column) {
+        if (row < 0 || row >= rows)
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + rows);
+        if (column < 0 || column >= columns)
+            throw new RuntimeException("Illegal column index: " + column + " out of bounds 0 - " + columns);
+        return row * columns + column;
+    }
+
+    /**
+     * Ritorna un elemento in una posizione specifica della matrice
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    public int getInt(int row, int column) {
+        return data[index(row, column)];
+    }
+
+    /**
+     * Ritorna un elemento in una posizione specifica della matrice convertito in doppia precisione,
+     * la conversione è esatta
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    public double get(int row, int column) {
+        return data[index(row, column)];
+    }
+
+    /**
+     * Rimpiazza un elemento in una posizione specifica della matrice con un altro elemento
+     * @param value Elemento da inserire nella matrice
+     * @param row Indice della riga dell'elemento da rimpiazzare
+     * @param column Indice della colonna dell'elemento da rimpiazzare
+     */
+    public void set(int value, int row, int column) {
+        data[index(row, column)] = value;
+    }
+
+    /**
+     * Ritorna una copia degli elementi di una riga
+     * @param row Indice della riga
+     * @return Gli elementi della riga
+     */
+    public int[] getRow(int row) {
+        int[] elements = new int[columns];
+        System.arraycopy(data, index(row, 0), elements, 0, columns);
+        return elements;
+    }
+
+    /**
+     * Ritorna una copia degli elementi come matrice di interi
+     * @return Gli elementi della matrice
+     */
+    public int[][] getMatrix() {
+        int[][] matrix = new int[rows][columns];
+        for (int i = 0; i < rows; i++) System.arraycopy(data, i * columns, matrix[i], 0, columns);
+        return matrix;
+    }
+
+    /**
+     * Controlla se questa e un'altra matrice hanno lo stesso numero di righe e di colonne
+     * @param other Matrice da confrontare
+     * @return {@code true} Se e solo se, le dimensioni coincidono;
+     *         Altrimenti {@code false}.
+     */
+    public boolean hasEqualsOrder(IntMatrix other) {
+        return rows == other.rows && columns == other.columns;
+    }
+
+    /**
+     * Somma elemento per elemento
+     * @param other Matrice della stessa dimensione
+     * @return La matrice somma
+     */
+    public IntMatrix sum(IntMatrix other) {
+        return combine(this, 1, other, new IntMatrix(rows, columns));
+    }
+
+    /**
+     * Differenza elemento per elemento
+     * @param other Matrice della stessa dimensione
+     * @return La matrice differenza
+     */
+    public IntMatrix diff(IntMatrix other) {
+        return combine(this, -1, other, new IntMatrix(rows, columns));
+    }
+
+    /**
+     * Somma uno scalare a ogni elemento
+     * @param scalar Valore da sommare
+     * @return La matrice risultante
+     */
+    public IntMatrix sum(int scalar) {
+        return affine(this, 1, scalar, new IntMatrix(rows, columns));
+    }
+
+    /**
+     * Sottrae uno scalare a ogni elemento
+     * @param scalar Valore da sottrarre
+     * @return La matrice risultante
+     */
+    public IntMatrix diff(int scalar) {
+        return affine(this, 1, -scalar, new IntMatrix(rows, columns));
+    }
+
+    /**
+     * Moltiplica ogni elemento per uno scalare
+     * @param scalar Valore per cui moltiplicare
+     * @return La matrice risultante
+     */
+    public IntMatrix multiply(int scalar) {
+        return affine(this, scalar, 0, new IntMatrix(rows, columns));
+    }
+
+    /**
+     * Somma in place un'altra matrice a questa
+     * @param other Matrice della stessa dimensione
+     * @return Questa matrice
+     */
+    public IntMatrix addInPlace(IntMatrix other) {
+        return combine(this, 1, other, this);
+    }
+
+    /**
+     * Sottrae in place un'altra matrice da questa
+     * @param other Matrice della stessa dimensione
+     * @return Questa matrice
+     */
+    public IntMatrix subInPlace(IntMatrix other) {
+        return combine(this, -1, other, this);
+    }
+
+    /**
+     * Moltiplica in place ogni elemento per uno scalare
+     * @param scalar Valore per cui moltiplicare
+     * @return Questa matrice
+     */
+    public IntMatrix scaleInPlace(int scalar) {
+        return affine(this, scalar, 0, this);
+    }
+
+    /**
+     * Aggiorna in place questa matrice con this = this + alpha * x
+     * @param alpha Coefficiente di x
+     * @param x Matrice della stessa dimensione
+     * @return Questa matrice
+     */
+    public IntMatrix axpy(int alpha, IntMatrix x) {
+        return combine(this, alpha, x, this);
+    }
+
+    /**
+     * Somma due matrici dello stesso ordine scrivendo il risultato in una matrice di destinazione,
+     * che può coincidere con uno degli operandi
+     * @param a Primo addendo
+     * @param b Secondo addendo
+     * @param dest Matrice dello stesso ordine che riceve la somma
+     * @return La matrice di destinazione
+     */
+    public static IntMatrix sum(IntMatrix a, IntMatrix b, IntMatrix dest) {
+        return combine(a, 1, b, dest);
+    }
+
+    /**
+     * Esegue la sottrazione tra due matrici dello stesso ordine scrivendo il risultato in una matrice
+     * di destinazione, che può coincidere con uno degli operandi
+     * @param a Matrice minuendo
+     * @param b Matrice sottraendo
+     * @param dest Matrice dello stesso ordine che riceve la differenza
+     * @return La matrice di destinazione
+     */
+    public static IntMatrix diff(IntMatrix a, IntMatrix b, IntMatrix dest) {
+        return combine(a, -1, b, dest);
+    }
+
+    private static IntMatrix combine(IntMatrix a, int beta, IntMatrix b, IntMatrix dest) {
+        if (!a.hasEqualsOrder(b) || !a.hasEqualsOrder(dest))
+            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+        Kernels.combine(a.data, 0, beta, b.data, 0, dest.data, 0, a.data.length);
+        return dest;
+    }
+
+    private static IntMatrix affine(IntMatrix a, int alpha, int shift, IntMatrix dest) {
+        Kernels.affine(a.data, 0, alpha, shift, dest.data, 0, a.data.length);
+        return dest;
+    }
+
+    /**
+     * Prodotto righe per colonne
+     * @param other Matrice NxK da moltiplicare a questa
+     * @return La matrice risultante dal prodotto
+     */
+    public IntMatrix multiply(IntMatrix other) {
+        return multiply(other, null);
+    }
+
+    /**
+     * Prodotto righe per colonne eseguito in parallelo su un pool specifico
+     * @param other Matrice NxK da moltiplicare a questa
+     * @param pool Pool su cui eseguire il prodotto, se {@code null} il prodotto viene calcolato in modo seriale
+     * @return La matrice risultante dal prodotto
+     */
+    public IntMatrix multiply(IntMatrix other, ForkJoinPool pool) {
+        return multiply(this, other, new IntMatrix(rows, other.columns), pool);
+    }
+
+    /**
+     * Prodotto righe per colonne tra una matrice MxN e una NxK scrivendo il risultato
+     * in una matrice MxK di destinazione, che non deve condividere elementi con gli operandi
+     * @param a Matrice MxN
+     * @param b Matrice NxK
+     * @param dest Matrice MxK che riceve il prodotto
+     * @param pool Pool su cui eseguire il prodotto, se {@code null} il prodotto viene calcolato in modo seriale
+     * @return La matrice di destinazione
+     */
+    public static IntMatrix multiply(IntMatrix a, IntMatrix b, IntMatrix dest, ForkJoinPool pool) {
+        if (a.columns != b.rows)
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + a.columns + " != " + b.rows);
+        if (dest.rows != a.rows || dest.columns != b.columns)
+            throw new RuntimeException("Illegal matrices length: the result must be " + a.rows + "x" + b.columns);
+        if (dest.data == a.data || dest.data == b.data)
+            throw new RuntimeException("Illegal product destination: the result matrix must not share elements with an operand");
+        Gemm.multiply(a.data, b.data, dest.data, a.rows, b.columns, a.columns, pool);
+        return dest;
+    }
+
+    /**
+     * Prodotto righe per colonne con una matrice in doppia precisione
+     * @param other Matrice NxK da moltiplicare a questa
+     * @return La matrice risultante dal prodotto
+     */
+    public Matrix multiply(Matrix other) {
+        return toMatrix().multiply(other);
+    }
+
+    /**
+     * Ritorna la matrice trasposta
+     * @return La matrice trasposta
+     */
+    public IntMatrix transposed() {
+        IntMatrix result = new IntMatrix(columns, rows);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++) result.data[j * rows + i] = data[i * columns + j];
+        return result;
+    }
+
+    /**
+     * Calcolo esatto del determinante con l'eliminazione di Bareiss.
+     * Ogni divisione del metodo è esatta, per cui i valori intermedi restano interi;
+     * se eccedono l'intervallo dei long il calcolo viene ripetuto con {@link BigInteger}
+     * @return Il valore del determinante
+     * @throws MatrixException Se la matrice non è quadrata
+     * @throws ArithmeticException Se il determinante non è rappresentabile come long
+     */
+    public long determinant() throws MatrixException {
+        return exactDeterminant().longValueExact();
+    }
+
+    /**
+     * Calcolo esatto del determinante con l'eliminazione di Bareiss, senza limiti di grandezza
+     * @return Il valore del determinante
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public BigInteger exactDeterminant() throws MatrixException {
+        if (!isSquare())
+            throw new MatrixException("Illegal matrix type: must be a square matrix");
+        try {
+            long[] work = new long[data.length];
+            for (int k = 0; k < data.length; k++) work[k] = data[k];
+            return BigInteger.valueOf(bareiss(work, rows, columns, true));
+        } catch (ArithmeticException overflow) {
+            BigInteger[] work = new BigInteger[data.length];
+            for (int k = 0; k < data.length; k++) work[k] = BigInteger.valueOf(data[k]);
+            return bareiss(work, rows, columns, true);
+        }
+    }
+
+    /**
+     * Calcolo esatto del rango con l'eliminazione di Bareiss
+     * @return Il rango della matrice
+     */
+    public int rank() {
+        try {
+            long[] work = new long[data.length];
+            for (int k = 0; k < data.length; k++) work[k] = data[k];
+            return (int) bareiss(work, rows, columns, false);
+        } catch (ArithmeticException overflow) {
+            BigInteger[] work = new BigInteger[data.length];
+            for (int k = 0; k < data.length; k++) work[k] = BigInteger.valueOf(data[k]);
+            return bareiss(work, rows, columns, false).intValue();
+        }
+    }
+
+    /**
+     * Eliminazione di Bareiss con scambio di righe su long, con controllo degli overflow.
+     * Dopo il passo k ogni elemento è il determinante di un minore (k+1)x(k+1) della matrice,
+     * per cui la divisione per il pivot precedente è sempre esatta
+     * @param a Elementi memorizzati per righe, vengono modificati
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param determinant {@code true} per ritornare il determinante, altrimenti il rango
+     * @return Il determinante oppure il rango
+     * @throws ArithmeticException Se un valore intermedio eccede l'intervallo dei long
+     */
+    private static long bareiss(long[] a, int rows, int columns, boolean determinant) {
+        long previous = 1;
+        int sign = 1, rank = 0;
+        for (int c = 0; c < columns && rank < rows; c++) {
+            int p = rank;
+            while (p < rows && a[p * columns + c] == 0) p++;
+            if (p == rows) {
+                if (determinant) return 0;
+                continue;
+            }
+            if (p != rank) {
+                for (int j = 0; j < columns; j++) {
+                    long tmp = a[p * columns + j];
+                    a[p * columns + j] = a[rank * columns + j];
+                    a[rank * columns + j] = tmp;
+                }
+                sign = -sign;
+            }
+            long pivot = a[rank * columns + c];
+            for (int i = rank + 1; i < rows; i++) {
+                long f = a[i * columns + c];
+                for (int j = c + 1; j < columns; j++)
+                    a[i * columns + j] = Math.subtractExact(Math.multiplyExact(pivot, a[i * columns + j]),
+                            Math.multiplyExact(f, a[rank * columns + j])) / previous;
+                a[i * columns + c] = 0;
+            }
+            previous = pivot;
+            rank++;
+        }
+        return determinant ? (rows == 0 ? 1 : Math.multiplyExact(sign, previous)) : rank;
+    }
+
+    /**
+     * Eliminazione di Bareiss con scambio di righe su interi di precisione arbitraria
+     * @see #bareiss(long[], int, int, boolean)
+     */
+    private static BigInteger bareiss(BigInteger[] a, int rows, int columns, boolean determinant) {
+        BigInteger previous = BigInteger.ONE;
+        int sign = 1, rank = 0;
+        for (int c = 0; c < columns && rank < rows; c++) {
+            int p = rank;
+            while (p < rows && a[p * columns + c].signum() == 0) p++;
+            if (p == rows) {
+                if (determinant) return BigInteger.ZERO;
+                continue;
+            }
+            if (p != rank) {
+                for (int j = 0; j < columns; j++) {
+                    BigInteger tmp = a[p * columns + j];
+                    a[p * columns + j] = a[rank * columns + j];
+                    a[rank * columns + j] = tmp;
+                }
+                sign = -sign;
+            }
+            BigInteger pivot = a[rank * columns + c];
+            for (int i = rank + 1; i < rows; i++) {
+                BigInteger f = a[i * columns + c];
+                for (int j = c + 1; j < columns; j++)
+                    a[i * columns + j] = pivot.multiply(a[i * columns + j]).subtract(f.multiply(a[rank * columns + j])).divide(previous);
+                a[i * columns + c] = BigInteger.ZERO;
+            }
+            previous = pivot;
+            rank++;
+        }
+        if (!determinant) return BigInteger.valueOf(rank);
+        return rows == 0 ? BigInteger.ONE : sign < 0 ? previous.negate() : previous;
+    }
+
+    /**
+     * Calcolo esatto della matrice aggiunta, che soddisfa A * agg(A) = det(A) * I anche se la matrice è singolare.
+     * Viene usato il metodo di Faddeev-LeVerrier su {@link BigInteger}: M(1) = I e
+     * M(k+1) = A * M(k) - tr(A * M(k)) / k * I, dove ogni divisione è esatta perché tr(A * M(k)) / k
+     * è un coefficiente del polinomio caratteristico; l'aggiunta è (-1)^(n+1) * M(n).
+     * Il costo è O(n^4) prodotti tra interi
+     * @return La matrice aggiunta
+     * @throws MatrixException Se la matrice non è quadrata
+     * @throws ArithmeticException Se un elemento dell'aggiunta non è rappresentabile come int
+     */
+    public IntMatrix adjugate() throws MatrixException {
+        if (!isSquare())
+            throw new MatrixException("Illegal matrix type: must be a square matrix");
+        int n = rows;
+        BigInteger[] a = new BigInteger[data.length], m = new BigInteger[data.length], product = new BigInteger[data.length];
+        for (int k = 0; k < data.length; k++) {
+            a[k] = BigInteger.valueOf(data[k]);
+            m[k] = BigInteger.ZERO;
+        }
+        for (int i = 0; i < n; i++) m[i * n + i] = BigInteger.ONE;
+        for (int k = 1; k < n; k++) {
+            BigInteger trace = BigInteger.ZERO;
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    BigInteger s = BigInteger.ZERO;
+                    for (int p = 0; p < n; p++)
+                        if (a[i * n + p].signum() != 0) s = s.add(a[i * n + p].multiply(m[p * n + j]));
+                    product[i * n + j] = s;
+                    if (i == j) trace = trace.add(s);
+                }
+            BigInteger c = trace.divide(BigInteger.valueOf(k));
+            for (int i = 0; i < n; i++) product[i * n + i] = product[i * n + i].subtract(c);
+            BigInteger[] tmp = m;
+            m = product;
+            product = tmp;
+        }
+        IntMatrix result = new IntMatrix(n, n);
+        boolean negate = n % 2 == 0;
+        for (int k = 0; k < data.length; k++) result.data[k] = (negate ? m[k].negate() : m[k]).intValueExact();
+        return result;
+    }
+
+    /**
+     * Calcolo esatto della matrice dei cofattori, trasposta della matrice aggiunta
+     * @return La matrice dei cofattori
+     * @throws MatrixException Se la matrice non è quadrata
+     * @throws ArithmeticException Se un cofattore non è rappresentabile come int
+     * @see #adjugate()
+     */
+    public IntMatrix cofactors() throws MatrixException {
+        return adjugate().transposed();
+    }
+
+    /**
+     * Riduce a scala questa matrice con il metodo di eliminazione di Gauss, i cui elementi
+     * in generale non sono interi
+     * @return La matrice in forma scala in doppia precisione
+     */
+    public Matrix scale() {
+        return toMatrix().scale();
+    }
+
+    /**
+     * Riduce a scala ridotta questa matrice con il metodo di eliminazione di Gauss-Jordan,
+     * i cui elementi in generale non sono interi
+     * @return La matrice in forma scala ridotta in doppia precisione
+     */
+    public Matrix reducedScale() {
+        return toMatrix().reducedScale();
+    }
+
+    /**
+     * Calcola la matrice inversa, i cui elementi in generale non sono interi
+     * @return La matrice inversa in doppia precisione
+     * @throws MatrixException Se la matrice non è quadrata oppure è singolare
+     */
+    public Matrix inverse() throws MatrixException {
+        return toMatrix().inverse();
+    }
+
+    public boolean isSquare() {
+        return rows == columns;
+    }
+
+    /**
+     * Controlla se la matrice è nulla
+     * @return {@code true} Se e solo se, ogni elemento della matrice è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isNull() {
+        for (int x: data) if (x != 0) return false;
+        return true;
+    }
+
+    /**
+     * Controlla se la matrice è diagonale
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è diverso da 0, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isDiagonal() {
+        if (!isSquare()) return false;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++)
+                if ((data[i * columns + j] == 0) == (i == j)) return false;
+        return true;
+    }
+
+    /**
+     * Controlla se la matrice è identità
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è uguale a 1, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isIdentity() {
+        if (!isSquare()) return false;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++)
+                if (data[i * columns + j] != (i == j ? 1 : 0)) return false;
+        return true;
+    }
+
+    /**
+     * Ritorna una stringa che rappresenta in una singola linea la matrice
+     * @return Rappresentazione String della matrice
+     */
+    public String toLineString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            if (i != 0) s.append(',');
+            s.append('{');
+            for (int j = 0; j < columns; j++) {
+                if (j != 0) s.append(',');
+                s.append(data[i * columns + j]);
+            }
+            s.append('}');
+        }
+        return s.toString();
+    }
+
+    /**
+     * Ritorna una stringa che rappresenta in forma tabellare la matrice
+     * @return Rappresentazione String della matrice
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("\n");
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) s.append(data[i * columns + j]).append("  ");
+            s.append('\n');
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package it.matrix;
+
+/**
+ * Kernel elemento per elemento su porzioni contigue di vettori.
+ * I cicli hanno indici lineari, nessuna dipendenza tra iterazioni e nessuna chiamata
+ * interna, così il compilatore JIT li srotola e li traduce in istruzioni SIMD
+ * (SSE, AVX2 o AVX-512 in base al processore) senza dipendere da moduli esterni.
+ * Le riduzioni, come il prodotto scalare, utilizzano più accumulatori indipendenti
+ * per sfruttare il parallelismo delle unità di calcolo, ma il JIT non riordina le somme
+ * in virgola mobile e non le vettorizza: se la classe {@code it.matrix.VectorKernels}, compilata
+ * separatamente da {@code vector/src}, è presente e la JVM è avviata con {@code --add-modules jdk.incubator.vector},
+ * il prodotto scalare viene eseguito con la Vector API, altrimenti, o con {@code -Dit.matrix.vector=false},
+ * con il ciclo scalare
+ */
+final class Kernels {
+    /**
+     * Implementazione vettoriale caricata per riflessione, {@code null} se non disponibile
+     */
+    static final Backend VECTOR = loadVectorBackend();
+
+    private Kernels() {
+    }
+
+    /**
+     * Riduzioni implementate con istruzioni vettoriali esplicite
+     */
+    abstract static class Backend {
+        /**
+         * Calcola il prodotto scalare tra n elementi di a e di b
+         */
+        abstract double dot(double[] a, int ai, double[] b, int bi, int n);
+    }
+
+    /**
+     * Carica l'implementazione vettoriale; la sua assenza, o quella del modulo jdk.incubator.vector,
+     * non è un errore
+     */
+    private static Backend loadVectorBackend() {
+        if (!Boolean.parseBoolean(System.getProperty("it.matrix.vector", "true"))) return null;
+        try {
+            return (Backend) Class.forName("it.matrix.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calcola d = a + beta * b su n elementi
+     */
+    static void combine(double[] a, int ai, double beta, double[] b, int bi, double[] d, int di, int n) {
+        if (beta == 1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + b[bi + j];
+        } else if (beta == -1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] - b[bi + j];
+        } else {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + beta * b[bi + j];
+        }
+    }
+
+    /**
+     * Calcola d = alpha * a + shift su n elementi
+     */
+    static void affine(double[] a, int ai, double alpha, double shift, double[] d, int di, int n) {
+        if (alpha == 1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + shift;
+        } else if (shift == 0) {
+            for (int j = 0; j < n; j++) d[di + j] = alpha * a[ai + j];
+        } else {
+            for (int j = 0; j < n; j++) d[di + j] = alpha * a[ai + j] + shift;
+        }
+    }
+
+    /**
+     * Calcola d = a + beta * b su n elementi in singola precisione
+     */
+    static void combine(float[] a, int ai, float beta, float[] b, int bi, float[] d, int di, int n) {
+        if (beta == 1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + b[bi + j];
+        } else if (beta == -1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] - b[bi + j];
+        } else {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + beta * b[bi + j];
+        }
+    }
+
+    /**
+     * Calcola d = alpha * a + shift su n elementi in singola precisione
+     */
+    static void affine(float[] a, int ai, float alpha, float shift, float[] d, int di, int n) {
+        if (alpha == 1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + shift;
+        } else if (shift == 0) {
+            for (int j = 0; j < n; j++) d[di + j] = alpha * a[ai + j];
+        } else {
+            for (int j = 0; j < n; j++) d[di + j] = alpha * a[ai + j] + shift;
+        }
+    }
+
+    /**
+     * Calcola d = a + beta * b su n elementi interi
+     */
+    static void combine(int[] a, int ai, int beta, int[] b, int bi, int[] d, int di, int n) {
+        if (beta == 1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + b[bi + j];
+        } else if (beta == -1) {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] - b[bi + j];
+        } else {
+            for (int j = 0; j < n; j++) d[di + j] = a[ai + j] + beta * b[bi + j];
+        }
+    }
+
+    /**
+     * Calcola d = alpha * a + shift su n elementi interi
+     */
+    static void affine(int[] a, int ai, int alpha, int shift, int[] d, int di, int n) {
+        for (int j = 0; j < n; j++) d[di + j] = alpha * a[ai + j] + shift;
+    }
+
+    /**
+     * Calcola il prodotto scalare tra n elementi di a e di b,
+     * con quattro accumulatori indipendenti o con l'implementazione vettoriale;
+     * l'ordine delle somme, e quindi l'arrotondamento, dipende dall'implementazione
+     */
+    static double dot(double[] a, int ai, double[] b, int bi, int n) {
+        if (VECTOR != null) return VECTOR.dot(a, ai, b, bi, n);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int j = 0;
+        for (; j + 3 < n; j += 4) {
+            s0 += a[ai + j] * b[bi + j];
+            s1 += a[ai + j + 1] * b[bi + j + 1];
+            s2 += a[ai + j + 2] * b[bi + j + 2];
+            s3 += a[ai + j + 3] * b[bi + j + 3];
+        }
+        for (; j < n; j++) s0 += a[ai + j] * b[bi + j];
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -0,0 +1,438 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decomposizione LU con pivoting parziale di una matrice quadrata, PA = LU.
+ * La fattorizzazione viene calcolata una sola volta in O(n³) su un unico buffer di lavoro
+ * e può essere riutilizzata per il calcolo del determinante, la risoluzione di sistemi
+ * lineari e il calcolo della matrice inversa.
+ * Per le matrici grandi la fattorizzazione procede a blocchi di {@value #BLOCK} colonne:
+ * l'aggiornamento della sottomatrice restante, che contiene quasi tutto il calcolo,
+ * è un prodotto tra matrici eseguito dal kernel a blocchi e, se indicato un pool, in parallelo.
+ */
+public class LUDecomposition {
+    /**
+     * Numero di colonne dei pannelli della fattorizzazione a blocchi
+     */
+    static final int BLOCK = 64;
+    /**
+     * Fattori L (sotto la diagonale, con diagonale unitaria implicita) e U (diagonale compresa),
+     * memorizzati per righe in un unico vettore di n x n elementi
+     */
+    private final double[] lu;
+    /**
+     * Permutazione delle righe: la riga i-esima di PA corrisponde alla riga pivot[i] di A
+     */
+    private final int[] pivot;
+    /**
+     * Ordine della matrice
+     */
+    private final int n;
+    /**
+     * Segno della permutazione, +1 se il numero di scambi è pari, -1 altrimenti
+     */
+    private int pivotSign;
+    /**
+     * Soglia sotto la quale un pivot viene considerato nullo
+     */
+    private final double tolerance;
+
+    /**
+     * Costruttore della decomposizione LU di una matrice quadrata
+     * @param m Matrice da fattorizzare, non viene modificata
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public LUDecomposition(Matrix m) throws MatrixException {
+        this(m, null);
+    }
+
+    /**
+     * Costruttore della decomposizione LU di una matrice quadrata, con l'aggiornamento
+     * dei blocchi eseguito in parallelo
+     * @param m Matrice da fattorizzare, non viene modificata
+     * @param pool Pool su cui eseguire la fattorizzazione, se {@code null} viene eseguita in modo seriale
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public LUDecomposition(Matrix m, ForkJoinPool pool) throws MatrixException {
+        if (!m.isSquare())
+            throw new MatrixException("Illegal matrix type: must be a square matrix");
+
+        n = m.getNumRows();
+        lu = new double[n * n];
+        pivot = new int[n];
+        pivotSign = 1;
+
+        for (int i = 0; i < n; i++) {
+            m.copyRowTo(i, lu, i * n);
+            pivot[i] = i;
+        }
+        double norm = 0;
+        for (double x: lu) norm = Math.max(norm, Math.abs(x));
+        tolerance = n * Math.ulp(1.0) * norm;
+        if (n <= 2 * BLOCK) factor(0, n, n);
+        else factorBlocked(pool);
+    }
+
+    /**
+     * Fattorizzazione a blocchi (right-looking): per ogni pannello di {@value #BLOCK} colonne
+     * vengono fattorizzate le colonne del pannello, calcolate le righe corrispondenti di U
+     * e aggiornata la sottomatrice restante con A22 = A22 - L21 * U12
+     * @param pool Pool su cui eseguire gli aggiornamenti, se {@code null} vengono eseguiti in modo seriale
+     */
+    private void factorBlocked(ForkJoinPool pool) {
+        for (int k0 = 0; k0 < n; k0 += BLOCK) {
+            int k1 = Math.min(n, k0 + BLOCK);
+            factor(k0, k1, k1);
+            if (k1 == n) break;
+            //U12 = L11^-1 * A12, L11 triangolare inferiore con diagonale unitaria
+            for (int i = k0 + 1; i < k1; i++)
+                for (int p = k0; p < i; p++) {
+                    double f = lu[i * n + p];
+                    if (f != 0) Kernels.combine(lu, i * n + k1, -f, lu, p * n + k1, lu, i * n + k1, n - k1);
+                }
+            int m = n - k1;
+            if (pool == null)
+                Gemm.multiplyAdd(lu, k1 * n + k0, n, lu, k0 * n + k1, n, lu, k1 * n + k1, n, m, m, k1 - k0, -1.0, 1.0);
+            else
+                Gemm.multiplyAdd(lu, k1 * n + k0, n, lu, k0 * n + k1, n, lu, k1 * n + k1, n, m, m, k1 - k0, -1.0, 1.0, pool);
+        }
+    }
+
+    /**
+     * Eliminazione di Gauss con pivoting parziale delle colonne [from, to), eseguita sul buffer di lavoro.
+     * Gli scambi riguardano le righe intere, mentre l'eliminazione aggiorna solo le colonne
+     * fino a {@code last}, così il ciclo interno scorre memoria contigua
+     * @param from Prima colonna da eliminare
+     * @param to Colonna successiva all'ultima da eliminare
+     * @param last Colonna successiva all'ultima da aggiornare
+     */
+    private void factor(int from, int to, int last) {
+        for (int k = from; k < to; k++) {
+            int p = k;
+            double max = Math.abs(lu[k * n + k]);
+            for (int i = k + 1; i < n; i++) {
+                double v = Math.abs(lu[i * n + k]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            if (p != k) swapRows(p, k);
+
+            double pkk = lu[k * n + k];
+            if (pkk == 0) continue; //colonna nulla, nessuna eliminazione da eseguire
+
+            int rk = k * n;
+            for (int i = k + 1; i < n; i++) {
+                int ri = i * n;
+                double f = lu[ri + k] / pkk;
+                lu[ri + k] = f;
+                if (f != 0)
+                    for (int j = k + 1; j < last; j++) lu[ri + j] -= f * lu[rk + j];
+            }
+        }
+    }
+
+    /**
+     * Scambia due righe del buffer di lavoro aggiornando la permutazione
+     * @param a Primo indice
+     * @param b Secondo indice
+     */
+    private void swapRows(int a, int b) {
+        int ra = a * n, rb = b * n;
+        for (int j = 0; j < n; j++) {
+            double tmp = lu[ra + j];
+            lu[ra + j] = lu[rb + j];
+            lu[rb + j] = tmp;
+        }
+        int tmp = pivot[a];
+        pivot[a] = pivot[b];
+        pivot[b] = tmp;
+        pivotSign = -pivotSign;
+    }
+
+    /**
+     * Ritorna l'ordine della matrice fattorizzata
+     * @return Il numero di righe (e colonne) della matrice
+     */
+    public int getOrder() {
+        return n;
+    }
+
+    /**
+     * Controlla se la matrice fattorizzata è singolare
+     * @return {@code true} Se e solo se, almeno un pivot ha valore assoluto
+     *         non superiore alla tolleranza;
+     *         Altrimenti {@code false}.
+     */
+    public boolean isSingular() {
+        for (int k = 0; k < n; k++)
+            if (Math.abs(lu[k * n + k]) <= tolerance) return true;
+        return false;
+    }
+
+    /**
+     * Calcolo del determinante come prodotto dei pivot di U per il segno della permutazione
+     * @return Il valore del determinante
+     */
+    public double determinant() {
+        double det = pivotSign;
+        for (int k = 0; k < n; k++) det *= lu[k * n + k];
+        return det;
+    }
+
+    /**
+     * Ritorna il fattore triangolare inferiore L, con diagonale unitaria
+     * @return La matrice L
+     */
+    public Matrix getL() {
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n, l, i * n, i);
+            l[i * n + i] = 1;
+        }
+        return new Matrix(l, n);
+    }
+
+    /**
+     * Ritorna il fattore triangolare superiore U
+     * @return La matrice U
+     */
+    public Matrix getU() {
+        double[] u = new double[n * n];
+        for (int i = 0; i < n; i++)
+            System.arraycopy(lu, i * n + i, u, i * n + i, n - i);
+        return new Matrix(u, n);
+    }
+
+    /**
+     * Ritorna la permutazione delle righe, l'elemento i-esimo è l'indice
+     * della riga della matrice originale che occupa la posizione i in PA
+     * @return Copia del vettore di permutazione
+     */
+    public int[] getPivot() {
+        return pivot.clone();
+    }
+
+    /**
+     * Risolve il sistema AX = B tramite sostituzione in avanti e all'indietro,
+     * tutte le colonne di B vengono risolte contemporaneamente
+     * @param b Matrice dei termini noti con n righe
+     * @return La matrice soluzione X
+     * @throws MatrixException Se la matrice fattorizzata è singolare
+     */
+    public Matrix solve(Matrix b) throws MatrixException {
+        return solveInto(b, new Matrix(n, b.getNumColumns()));
+    }
+
+    /**
+     * Risolve il sistema AX = B scrivendo la soluzione in una matrice di destinazione.
+     * L'unica allocazione è il vettore di lavoro delle soluzioni
+     * @param b Matrice NxK dei termini noti
+     * @param x Matrice NxK che riceve la soluzione, può coincidere con B
+     * @return La matrice di destinazione
+     * @throws MatrixException Se la matrice fattorizzata è singolare
+     */
+    public Matrix solveInto(Matrix b, Matrix x) throws MatrixException {
+        if (b.getNumRows() != n)
+            throw new RuntimeException("Illegal matrices length: the number of rows must be " + n + " but is " + b.getNumRows());
+        if (!b.hasEqualsOrder(x))
+            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+        if (isSingular())
+            throw new MatrixException("Illegal determinant: must be not equals to 0");
+
+        int k = b.getNumColumns();
+        double[] work = new double[n * k];
+        for (int i = 0; i < n; i++)
+            b.copyRowTo(pivot[i], work, i * k);
+        if (k == 1) substitute(work);
+        else substitute(work, k, 0, k);
+        for (int i = 0; i < n; i++)
+            x.copyRowFrom(work, i * k, i);
+        return x;
+    }
+
+    /**
+     * Calcola la matrice inversa risolvendo il sistema AX = I
+     * @return La matrice inversa
+     * @throws MatrixException Se la matrice fattorizzata è singolare
+     */
+    public Matrix inverse() throws MatrixException {
+        return inverse(null);
+    }
+
+    /**
+     * Calcola la matrice inversa risolvendo il sistema AX = I; le colonne di X
+     * sono indipendenti e vengono suddivise in blocchi risolti in parallelo
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} viene eseguito in modo seriale
+     * @return La matrice inversa
+     * @throws MatrixException Se la matrice fattorizzata è singolare
+     */
+    public Matrix inverse(ForkJoinPool pool) throws MatrixException {
+        if (isSingular())
+            throw new MatrixException("Illegal determinant: must be not equals to 0");
+        if (n == 0) return new Matrix(0, 0);
+        double[] x = new double[n * n];
+        for (int i = 0; i < n; i++) x[i * n + pivot[i]] = 1; //identità permutata
+        Gemm.RowRange range = (columnStart, columnEnd) -> substitute(x, n, columnStart, columnEnd);
+        if (pool == null || n <= 2 * BLOCK || pool.getParallelism() < 2) range.compute(0, n);
+        else pool.invoke(new Gemm.RowBlockTask(0, n, Math.max(BLOCK, n / (4 * pool.getParallelism())), range));
+        return new Matrix(x, n);
+    }
+
+    /**
+     * Sostituzione in avanti (LY = Pb) e all'indietro (UX = Y) eseguita in place
+     * su un singolo vettore dei termini noti, già permutato: ogni elemento
+     * è ottenuto con un prodotto scalare su una riga contigua dei fattori
+     * @param x Termini noti permutati, al termine contiene la soluzione
+     */
+    private void substitute(double[] x) {
+        for (int i = 1; i < n; i++)
+            x[i] -= Kernels.dot(lu, i * n, x, 0, i);
+        for (int i = n - 1; i >= 0; i--) {
+            int ri = i * n;
+            x[i] = (x[i] - Kernels.dot(lu, ri + i + 1, x, i + 1, n - i - 1)) / lu[ri + i];
+        }
+    }
+
+    /**
+     * Sostituzione in avanti (LY = PB) e all'indietro (UX = Y) eseguita in place
+     * sulle colonne [c0, c1) di un vettore di n righe da k elementi, già permutato.
+     * Le colonne sono indipendenti, per cui intervalli disgiunti possono essere risolti in parallelo
+     * @param x Termini noti permutati, al termine contiene la soluzione
+     * @param k Numero di colonne dei termini noti
+     * @param c0 Prima colonna da risolvere
+     * @param c1 Colonna successiva all'ultima da risolvere
+     */
+    private void substitute(double[] x, int k, int c0, int c1) {
+        int width = c1 - c0;
+        //Righe a blocchi di BLOCK: il contributo dei blocchi già risolti è un prodotto tra matrici
+        for (int i0 = 0; i0 < n; i0 += BLOCK) {
+            int i1 = Math.min(n, i0 + BLOCK);
+            if (i0 > 0)
+                Gemm.multiplyAdd(lu, i0 * n, n, x, c0, k, x, i0 * k + c0, k, i1 - i0, width, i0, -1.0, 1.0);
+            for (int i = i0 + 1; i < i1; i++) {
+                int ri = i * k + c0;
+                for (int j = i0; j < i; j++) {
+                    double f = lu[i * n + j];
+                    if (f != 0) Kernels.combine(x, ri, -f, x, j * k + c0, x, ri, width);
+                }
+            }
+        }
+        for (int i1 = n; i1 > 0; i1 -= BLOCK) {
+            int i0 = Math.max(0, i1 - BLOCK);
+            if (i1 < n)
+                Gemm.multiplyAdd(lu, i0 * n + i1, n, x, i1 * k + c0, k, x, i0 * k + c0, k, i1 - i0, width, n - i1, -1.0, 1.0);
+            for (int i = i1 - 1; i >= i0; i--) {
+                int ri = i * k + c0;
+                for (int j = i + 1; j < i1; j++) {
+                    double f = lu[i * n + j];
+                    if (f != 0) Kernels.combine(x, ri, -f, x, j * k + c0, x, ri, width);
+                }
+                Kernels.affine(x, ri, 1 / lu[i * n + i], 0, x, ri, width);
+            }
+        }
+    }
+
+    /**
+     * Calcola la matrice aggiunta di una matrice di rango n-1 o inferiore attraverso una
+     * fattorizzazione con pivoting completo PAQ = LU, in cui l'eventuale pivot nullo è l'ultimo.
+     * Scrivendo U = [U11 u; 0 unn], l'aggiunta di U è det(U11) * [unn * U11^-1, -U11^-1 u; 0, 1],
+     * espressione valida anche per unn = 0, e agg(A) = det(P) det(Q) * Q * agg(U) * L^-1 * P.
+     * Se il rango è inferiore a n-1 tutti i minori di ordine n-1 sono nulli e l'aggiunta è nulla
+     * @param m Matrice quadrata
+     * @return La matrice aggiunta
+     */
+    static Matrix singularAdjugate(Matrix m) {
+        int n = m.getNumRows();
+        double[] a = new double[n * n];
+        for (int i = 0; i < n; i++) m.copyRowTo(i, a, i * n);
+        int[] rowPerm = new int[n], columnPerm = new int[n];
+        for (int i = 0; i < n; i++) rowPerm[i] = columnPerm[i] = i;
+        double norm = 0;
+        for (double x: a) norm = Math.max(norm, Math.abs(x));
+        double tolerance = n * Math.ulp(1.0) * norm;
+        int sign = 1, rank = n;
+
+        for (int k = 0; k < n; k++) {
+            int pr = k, pc = k;
+            double max = -1;
+            for (int i = k; i < n; i++)
+                for (int j = k; j < n; j++)
+                    if (Math.abs(a[i * n + j]) > max) {
+                        max = Math.abs(a[i * n + j]);
+                        pr = i;
+                        pc = j;
+                    }
+            if (max <= tolerance && rank == n) rank = k;
+            if (pr != k) {
+                for (int j = 0; j < n; j++) {
+                    double tmp = a[k * n + j];
+                    a[k * n + j] = a[pr * n + j];
+                    a[pr * n + j] = tmp;
+                }
+                int tmp = rowPerm[k];
+                rowPerm[k] = rowPerm[pr];
+                rowPerm[pr] = tmp;
+                sign = -sign;
+            }
+            if (pc != k) {
+                for (int i = 0; i < n; i++) {
+                    double tmp = a[i * n + k];
+                    a[i * n + k] = a[i * n + pc];
+                    a[i * n + pc] = tmp;
+                }
+                int tmp = columnPerm[k];
+                columnPerm[k] = columnPerm[pc];
+                columnPerm[pc] = tmp;
+                sign = -sign;
+            }
+            double pkk = a[k * n + k];
+            if (pkk == 0) continue;
+            for (int i = k + 1; i < n; i++) {
+                double f = a[i * n + k] / pkk;
+                a[i * n + k] = f;
+                if (f != 0) Kernels.combine(a, i * n + k + 1, -f, a, k * n + k + 1, a, i * n + k + 1, n - k - 1);
+            }
+        }
+        if (rank < n - 1) return new Matrix(n, n);
+
+        //W = agg(U): inversa di U11 per colonne con sostituzione all'indietro
+        int h = n - 1;
+        double detU11 = 1;
+        for (int k = 0; k < h; k++) detU11 *= a[k * n + k];
+        double[] w = new double[n * n];
+        for (int c = 0; c < h; c++) {
+            w[c * n + c] = 1 / a[c * n + c];
+            for (int i = c - 1; i >= 0; i--) {
+                double s = 0;
+                for (int j = i + 1; j <= c; j++) s += a[i * n + j] * w[j * n + c];
+                w[i * n + c] = -s / a[i * n + i];
+            }
+        }
+        double unn = a[h * n + h];
+        for (int i = 0; i < h; i++) {
+            double s = 0; //-(U11^-1 u)_i
+            for (int j = i; j < h; j++) s += w[i * n + j] * a[j * n + h];
+            w[i * n + h] = -s * detU11;
+            for (int j = i; j < h; j++) w[i * n + j] *= unn * detU11;
+        }
+        w[h * n + h] = detU11;
+
+        //B = W * L^-1, riga per riga risolvendo b L = w da destra a sinistra
+        for (int i = 0; i < n; i++) {
+            int ri = i * n;
+            for (int j = n - 1; j >= 0; j--) {
+                double s = w[ri + j];
+                for (int p = j + 1; p < n; p++) s -= w[ri + p] * a[p * n + j];
+                w[ri + j] = s;
+            }
+        }
+
+        double[] adj = new double[n * n];
+        for (int j = 0; j < n; j++)
+            for (int i = 0; i < n; i++) adj[columnPerm[j] * n + rowPerm[i]] = sign * w[j * n + i];
+        return new Matrix(adj, n);
+    }
+}
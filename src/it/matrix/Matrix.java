@@ -1,6 +1,8 @@
 package it.matrix;
 import it.matrix.exception.MatrixException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 /**
  * Classe che gestisce una matrice
  * @author Erik Gurzau
@@ -8,11 +10,80 @@ import java.util.*;
  * @see <a href="www.linkedin.com/in/erikgurzau">Linkedin</a>
  * @see <a mailto="gurzau10@gmail.com">Email</a>
  */
-public class Matrix {
+public class Matrix implements RealMatrix {
     /**
-     * Matrice
+     * Algoritmo del prodotto tra matrici dense
      */
-    private double[][] matrix;
+    public enum MultiplicationStrategy {
+        /**
+         * Kernel classico a blocchi, O(n^3), con la stima d'errore per componenti |C - Ĉ| ≤ n·u·|A|·|B|
+         */
+        CLASSICAL,
+        /**
+         * Variante di Winograd dell'algoritmo di Strassen, O(n^2.81), applicata quando tutte le dimensioni
+         * del prodotto sono almeno 512; sotto questa soglia viene usato il kernel classico.
+         * L'errore è limitato solo in norma, con una costante che cresce come (n/256)^4.17:
+         * gli elementi piccoli del risultato possono perdere accuratezza relativa
+         */
+        STRASSEN_WINOGRAD
+    }
+
+    /**
+     * Algoritmo utilizzato dai prodotti che non ne indicano uno esplicitamente
+     */
+    private static volatile MultiplicationStrategy multiplicationStrategy = MultiplicationStrategy.CLASSICAL;
+    /**
+     * Elementi della matrice memorizzati per righe in un unico vettore contiguo:
+     * l'elemento (i,j) si trova in posizione offset + i * rowStride + j * columnStride.
+     * Il vettore può essere condiviso con altre matrici, di cui questa è una vista.
+     * Vale {@code null} se gli elementi si trovano in memoria fuori dallo heap
+     */
+    private double[] data;
+    /**
+     * Memoria fuori dallo heap che contiene gli elementi, con la stessa disposizione
+     * del vettore data; vale {@code null} per le matrici sullo heap
+     */
+    private OffHeapStorage storage;
+    /**
+     * Numero di righe
+     */
+    private int rows;
+    /**
+     * Numero di colonne
+     */
+    private int columns;
+    /**
+     * Posizione nel vettore degli elementi dell'elemento (0,0)
+     */
+    private int offset;
+    /**
+     * Distanza, in elementi, tra l'inizio di una riga e l'inizio della successiva
+     */
+    private int rowStride;
+    /**
+     * Distanza, in elementi, tra due elementi consecutivi della stessa riga:
+     * vale 1 per le matrici memorizzate per righe, mentre nelle viste trasposte
+     * le distanze di riga e colonna sono scambiate
+     */
+    private int columnStride;
+    /**
+     * Matrice proprietaria degli elementi: la matrice stessa oppure, per le viste,
+     * la matrice da cui sono state ottenute
+     */
+    private Matrix root = this;
+    /**
+     * Contatore delle modifiche agli elementi, mantenuto sulla matrice proprietaria
+     * e condiviso quindi da tutte le sue viste
+     */
+    private int version;
+    /**
+     * Decomposizione LU calcolata sugli elementi correnti, riutilizzata finché non vengono modificati
+     */
+    private LUDecomposition lu;
+    /**
+     * Valore del contatore delle modifiche al momento del calcolo della decomposizione LU
+     */
+    private int luVersion;
     /**
      * Valore minimo degli elementi generati in modo randomico
      */
@@ -21,6 +92,20 @@ public class Matrix {
      * Valore massimo degli elementi generati in modo randomico
      */
     public static final int MAX_RAND_VALUE = 4;
+    /**
+     * Numero indicativo di elementi dei blocchi di righe copiati sullo heap
+     * quando un operando del prodotto si trova in memoria fuori dallo heap
+     */
+    static final int STAGING_ELEMENTS = 1 << 20;
+    /**
+     * Lato dei blocchi della trasposizione: un blocco di double della sorgente
+     * e uno della destinazione occupano insieme 16 KB, entro la cache L1
+     */
+    private static final int TRANSPOSE_TILE = 32;
+    /**
+     * Numero di elementi sotto il quale la trasposizione parallela ricade sul calcolo seriale
+     */
+    private static final long PARALLEL_TRANSPOSE = 1 << 20;
 
     /**
      * Costruttore di una matrice generata randomicamente con una dimensione determinata
@@ -31,8 +116,8 @@ public class Matrix {
      *               Altrimenti {@code false} per generare una matrice vuota.
      */
     public Matrix(int rows, int columns, boolean random) {
-        if (random) matrix = Matrix.random(rows, columns);
-        else matrix = new double[rows][columns];
+        this(rows, columns);
+        if (random) random();
     }
 
     /**
@@ -41,15 +126,86 @@ public class Matrix {
      * @param columns Numero di colonne
      */
     public Matrix(int rows, int columns) {
-        matrix = new double[rows][columns];
+        if (rows < 0 || columns < 0)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        this.data = new double[rows * columns];
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStride = columns;
+        this.columnStride = 1;
     }
 
     /**
-     * Costruttore di una matrice contenente gli elementi di una specifica collezione
+     * Costruttore di una matrice contenente gli elementi di una specifica collezione,
+     * gli elementi vengono copiati nella memoria contigua della matrice
      * @param matrix Matrice
      */
     public Matrix(double[][] matrix) {
-        this.matrix = matrix;
+        this(matrix.length, matrix.length == 0 ? 0 : matrix[0].length);
+        for (int i = 0; i < rows; i++) {
+            if (matrix[i].length != columns)
+                throw new RuntimeException("Illegal row length: " + matrix[i].length + " at row " + i + " must be " + columns);
+            System.arraycopy(matrix[i], 0, data, i * rowStride, columns);
+        }
+    }
+
+    /**
+     * Costruttore di una matrice che utilizza direttamente un vettore di elementi memorizzati per righe,
+     * senza copiarlo: le modifiche al vettore sono visibili nella matrice e viceversa
+     * @param elements Elementi della matrice memorizzati per righe
+     * @param rows Numero di righe, deve dividere la lunghezza del vettore
+     */
+    public Matrix(double[] elements, int rows) {
+        if (rows <= 0 || elements.length % rows != 0)
+            throw new RuntimeException("Illegal number of rows: " + rows + " does not divide " + elements.length + " elements");
+        this.data = elements;
+        this.rows = rows;
+        this.columns = elements.length / rows;
+        this.rowStride = columns;
+        this.columnStride = 1;
+    }
+
+    /**
+     * Costruttore di una matrice i cui elementi, memorizzati per righe, si trovano in memoria
+     * fuori dallo heap, senza copiarli. La matrice e le sue viste possono essere usate con
+     * tutte le operazioni della classe finché la memoria non viene rilasciata; le operazioni
+     * che richiedono gli elementi sullo heap li copiano temporaneamente, a blocchi di righe
+     * dove possibile
+     * @param storage Memoria che contiene gli elementi
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     */
+    public Matrix(OffHeapStorage storage, int rows, int columns) {
+        if (rows < 0 || columns < 0)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        if ((long) rows * columns > Integer.MAX_VALUE || (long) rows * columns > storage.length())
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns + " exceeds the storage length " + storage.length());
+        this.storage = storage;
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStride = columns;
+        this.columnStride = 1;
+    }
+
+    /**
+     * Costruttore di una vista che condivide gli elementi di un'altra matrice
+     * @param data Vettore degli elementi condiviso
+     * @param offset Posizione dell'elemento (0,0)
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param rowStride Distanza tra due righe consecutive
+     * @param columnStride Distanza tra due colonne consecutive
+     * @param root Matrice proprietaria degli elementi
+     */
+    private Matrix(double[] data, int offset, int rows, int columns, int rowStride, int columnStride, Matrix root) {
+        this.root = root;
+        this.data = data;
+        this.storage = root.storage;
+        this.offset = offset;
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
     }
 
     /**
@@ -57,7 +213,8 @@ public class Matrix {
      * @param m Matrice da copiare
      */
     private Matrix(Matrix m) {
-        this.matrix = m.getMatrix();
+        this(m.getNumRows(), m.getNumColumns());
+        for (int i = 0; i < rows; i++) m.copyRowTo(i, data, i * rowStride);
     }
 
 
@@ -90,7 +247,7 @@ public class Matrix {
      * @return Il numero di righe della matrice
      */
     public int getNumRows() {
-        return matrix.length;
+        return rows;
     }
 
     /**
@@ -98,17 +255,255 @@ public class Matrix {
      * @return Il numero di colonne della matrice
      */
     public int getNumColumns() {
-        return matrix[0].length;
+        return columns;
     }
 
     /**
-     * Ritorna la matrice
+     * Ritorna una copia della matrice nella forma di vettore di righe.
+     * Le modifiche alla copia non si riflettono sulla matrice
      * @return La matrice
      */
     public double[][] getMatrix() {
+        double[][] matrix = new double[rows][columns];
+        for (int i = 0; i < rows; i++) copyRowTo(i, matrix[i], 0);
         return matrix;
     }
 
+    /**
+     * Ritorna la posizione nel vettore degli elementi dell'elemento (i,j)
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return La posizione dell'elemento
+     */
+    private int index(int row, int column) {
+        return offset + row * rowStride + column * columnStride;
+    }
+
+    /**
+     * Registra una modifica agli elementi, invalidando le decomposizioni memorizzate
+     * di questa matrice e di tutte le viste che ne condividono gli elementi
+     */
+    private void modified() {
+        root.version++;
+    }
+
+    /**
+     * Legge un elemento dal vettore degli elementi oppure dalla memoria fuori dallo heap
+     * @param k Posizione dell'elemento
+     * @return Il valore dell'elemento
+     */
+    private double load(int k) {
+        return data != null ? data[k] : storage.get(k);
+    }
+
+    /**
+     * Scrive un elemento nel vettore degli elementi oppure nella memoria fuori dallo heap
+     * @param k Posizione dell'elemento
+     * @param value Nuovo valore
+     */
+    private void store(int k, double value) {
+        if (data != null) data[k] = value;
+        else storage.set(k, value);
+    }
+
+    /**
+     * Controlla se gli elementi di ogni riga sono contigui in un vettore sullo heap,
+     * accessibile direttamente dai kernel di calcolo
+     * @return {@code true} Se e solo se, gli elementi sono sullo heap e la distanza
+     *         tra due colonne consecutive è 1;
+     *         Altrimenti {@code false}.
+     */
+    private boolean hasContiguousRows() {
+        return columnStride == 1 && data != null;
+    }
+
+    /**
+     * Controlla se gli elementi di questa matrice si trovano in memoria fuori dallo heap
+     * @return {@code true} Se e solo se, la matrice è stata creata su un {@link OffHeapStorage}
+     *         o è una sua vista;
+     *         Altrimenti {@code false}.
+     */
+    public boolean isOffHeap() {
+        return storage != null;
+    }
+
+    /**
+     * Controlla se due matrici condividono lo stesso vettore degli elementi o la stessa memoria
+     * @param a Prima matrice
+     * @param b Seconda matrice
+     * @return {@code true} Se e solo se, le due matrici possono avere elementi in comune;
+     *         Altrimenti {@code false}.
+     */
+    static boolean shareElements(Matrix a, Matrix b) {
+        return a.data != null ? a.data == b.data : a.storage == b.storage;
+    }
+
+    /**
+     * Copia gli elementi di una riga in un vettore di destinazione
+     * @param row Indice della riga
+     * @param dest Vettore di destinazione
+     * @param destPos Posizione iniziale nel vettore di destinazione
+     */
+    void copyRowTo(int row, double[] dest, int destPos) {
+        copyRowTo(row, 0, columns, dest, destPos);
+    }
+
+    /**
+     * Copia una parte degli elementi di una riga in un vettore di destinazione
+     * @param row Indice della riga
+     * @param column Indice della prima colonna da copiare
+     * @param count Numero di elementi da copiare
+     * @param dest Vettore di destinazione
+     * @param destPos Posizione iniziale nel vettore di destinazione
+     */
+    void copyRowTo(int row, int column, int count, double[] dest, int destPos) {
+        if (hasContiguousRows()) {
+            System.arraycopy(data, index(row, column), dest, destPos, count);
+            return;
+        }
+        if (data == null && columnStride == 1) {
+            storage.get(index(row, column), dest, destPos, count);
+            return;
+        }
+        for (int j = 0, k = index(row, column); j < count; j++, k += columnStride) dest[destPos + j] = load(k);
+    }
+
+    /**
+     * Copia gli elementi di un vettore in una riga della matrice
+     * @param src Vettore sorgente
+     * @param srcPos Posizione iniziale nel vettore sorgente
+     * @param row Indice della riga
+     */
+    void copyRowFrom(double[] src, int srcPos, int row) {
+        copyRowFrom(src, srcPos, row, 0, columns);
+    }
+
+    /**
+     * Copia gli elementi di un vettore in una parte di una riga della matrice
+     * @param src Vettore sorgente
+     * @param srcPos Posizione iniziale nel vettore sorgente
+     * @param row Indice della riga
+     * @param column Indice della prima colonna da sovrascrivere
+     * @param count Numero di elementi da copiare
+     */
+    void copyRowFrom(double[] src, int srcPos, int row, int column, int count) {
+        modified();
+        if (hasContiguousRows()) {
+            System.arraycopy(src, srcPos, data, index(row, column), count);
+            return;
+        }
+        if (data == null && columnStride == 1) {
+            storage.put(src, srcPos, index(row, column), count);
+            return;
+        }
+        for (int j = 0, k = index(row, column); j < count; j++, k += columnStride) store(k, src[srcPos + j]);
+    }
+
+    /**
+     * Ritorna una matrice con righe contigue in memoria con gli stessi elementi di questa:
+     * questa stessa matrice se le sue righe sono già contigue, altrimenti una copia
+     * @return Una matrice con righe contigue
+     */
+    private Matrix withContiguousRows() {
+        return hasContiguousRows() ? this : copy(this);
+    }
+
+    /**
+     * Ritorna una vista su un blocco rettangolare di questa matrice. La vista condivide
+     * gli elementi con questa matrice, senza copiarli: le modifiche di una sono visibili nell'altra
+     * @param row Indice della prima riga del blocco
+     * @param column Indice della prima colonna del blocco
+     * @param rows Numero di righe del blocco
+     * @param columns Numero di colonne del blocco
+     * @return La vista sul blocco
+     */
+    public Matrix block(int row, int column, int rows, int columns) {
+        if (rows < 0 || row < 0 || row + rows > getNumRows())
+            throw new RuntimeException("Illegal row range: " + row + " - " + (row + rows) + " out of bounds 0 - " + getNumRows());
+        if (columns < 0 || column < 0 || column + columns > getNumColumns())
+            throw new RuntimeException("Illegal column range: " + column + " - " + (column + columns) + " out of bounds 0 - " + getNumColumns());
+        return new Matrix(data, index(row, column), rows, columns, rowStride, columnStride, root);
+    }
+
+    /**
+     * Ritorna una vista 1xN su una riga di questa matrice, senza copiarne gli elementi
+     * @param row Indice della riga
+     * @return La vista sulla riga
+     */
+    public Matrix rowView(int row) {
+        return block(row, 0, 1, getNumColumns());
+    }
+
+    /**
+     * Ritorna una vista Nx1 su una colonna di questa matrice, senza copiarne gli elementi
+     * @param column Indice della colonna
+     * @return La vista sulla colonna
+     */
+    public Matrix columnView(int column) {
+        return block(0, column, getNumRows(), 1);
+    }
+
+    /**
+     * Ritorna una vista trasposta di questa matrice: l'elemento (i,j) della vista è
+     * l'elemento (j,i) di questa matrice. Nessun elemento viene copiato, vengono solo
+     * scambiate le distanze tra righe e colonne
+     * @return La vista trasposta
+     */
+    public Matrix transposedView() {
+        return new Matrix(data, offset, columns, rows, columnStride, rowStride, root);
+    }
+
+    /**
+     * Controlla se questa matrice è una vista che condivide gli elementi con un'altra matrice
+     * o con un vettore esterno, oppure se ne occupa solo una parte
+     * @return {@code true} Se e solo se, gli elementi non occupano per righe l'intero vettore;
+     *         Altrimenti {@code false}.
+     */
+    public boolean isView() {
+        long length = data != null ? data.length : storage.length();
+        return offset != 0 || columnStride != 1 || rowStride != columns || length != (long) rows * columns;
+    }
+
+    /**
+     * Crea una nuova matrice, indipendente e con righe contigue, con gli elementi di questa matrice.
+     * Su una vista è l'operazione che ne copia effettivamente gli elementi
+     * @return La matrice materializzata
+     */
+    public Matrix materialize() {
+        return copy(this);
+    }
+
+    /**
+     * Ritorna un'espressione differita costituita da questa matrice, su cui registrare
+     * operazioni che vengono fuse e calcolate solo alla valutazione
+     * @return L'espressione
+     * @see Expression
+     */
+    public Expression lazy() {
+        return Expression.of(this);
+    }
+
+    /**
+     * Ritorna una copia densa e indipendente di questa matrice
+     * @return La matrice materializzata
+     * @see #materialize()
+     */
+    public Matrix toDense() {
+        return materialize();
+    }
+
+    /**
+     * Controlla gli indici di un elemento, una sola volta per accesso
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     */
+    private void checkIndex(int row, int column) {
+        if (outOfRange(row, rows))
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + rows);
+        if (outOfRange(column, columns))
+            throw new RuntimeException("Illegal column index: " + column + " out of bounds 0 - " + columns);
+    }
+
     /**
      * Rimpiazza un elemento in una posizione specifica della matrice con un altro elemento
      * @param value Elemento da inserire nella matrice
@@ -116,11 +511,8 @@ public class Matrix {
      * @param column Indice della colonna dell'elemento da rimpiazzare
      */
     public void set(double value, int row, int column) {
-        if (outOfRange(row, getNumRows()))
-            throw new RuntimeException("Illegal row index: " + row + "out of bounds 0 - " + getNumRows());
-        if (outOfRange(column, getNumRows()))
-            throw new RuntimeException("Illegal column index: " + column + "out of bounds 0 - " + getNumColumns());
-        matrix[row][column] = value;
+        checkIndex(row, column);
+        unsafeSet(value, row, column);
     }
 
     /**
@@ -130,11 +522,8 @@ public class Matrix {
      * @return L'elemento nella posizione specificata
      */
     public double get(int row, int column) {
-        if (outOfRange(row, getNumRows()))
-            throw new RuntimeException("Illegal row index: " + row + "out of bounds 0 - " + getNumRows());
-        if (outOfRange(column, getNumRows()))
-            throw new RuntimeException("Illegal column index: " + column + "out of bounds 0 - " + getNumColumns());
-        return matrix[row][column];
+        checkIndex(row, column);
+        return unsafeGet(row, column);
     }
 
     /**
@@ -142,35 +531,101 @@ public class Matrix {
      * @param row    Indice della riga
      * @param column Indice della colonna
      * @return L'elemento in una posizione specifica
+     * @see #get(int, int)
      */
     public double at(int row, int column) {
-        if (outOfRange(row, getNumRows()))
-            throw new RuntimeException("Illegal row index: " + row + "out of bounds 0 - " + getNumRows());
-        if (outOfRange(column, getNumRows()))
-            throw new RuntimeException("Illegal column index: " + column + "out of bounds 0 - " + getNumColumns());
         return get(row, column);
     }
 
     /**
-     * Ritorna la riga della matrice in una posizione specifica
+     * Ritorna un elemento senza controllare gli indici, per i cicli del chiamante
+     * che hanno già verificato le dimensioni della matrice.
+     * Con indici fuori dalla matrice il risultato non è definito: può essere sollevata
+     * un'eccezione oppure, in una vista, letto un elemento esterno alla vista
+     * @param row Indice della riga, tra 0 e {@link #getNumRows()} - 1
+     * @param column Indice della colonna, tra 0 e {@link #getNumColumns()} - 1
+     * @return L'elemento nella posizione specificata
+     */
+    public double unsafeGet(int row, int column) {
+        return load(index(row, column));
+    }
+
+    /**
+     * Rimpiazza un elemento senza controllare gli indici, per i cicli del chiamante
+     * che hanno già verificato le dimensioni della matrice.
+     * Con indici fuori dalla matrice il risultato non è definito: può essere sollevata
+     * un'eccezione oppure, in una vista, modificato un elemento esterno alla vista
+     * @param value Elemento da inserire nella matrice
+     * @param row Indice della riga, tra 0 e {@link #getNumRows()} - 1
+     * @param column Indice della colonna, tra 0 e {@link #getNumColumns()} - 1
+     */
+    public void unsafeSet(double value, int row, int column) {
+        store(index(row, column), value);
+        modified();
+    }
+
+    /**
+     * Copia una porzione di una riga in un vettore, controllando gli indici una sola volta
+     * @param row Indice della riga
+     * @param column Indice della prima colonna da copiare
+     * @param dest Vettore di destinazione
+     * @param destPos Posizione nel vettore del primo elemento copiato
+     * @param count Numero di elementi da copiare
+     */
+    public void getRow(int row, int column, double[] dest, int destPos, int count) {
+        checkRowRange(row, column, count);
+        if (destPos < 0 || destPos > dest.length - count)
+            throw new RuntimeException("Illegal array range: " + destPos + " - " + (destPos + count) + " out of bounds 0 - " + dest.length);
+        copyRowTo(row, column, count, dest, destPos);
+    }
+
+    /**
+     * Sostituisce una porzione di una riga con gli elementi di un vettore, controllando gli indici una sola volta
+     * @param src Vettore sorgente
+     * @param srcPos Posizione nel vettore del primo elemento copiato
+     * @param row Indice della riga
+     * @param column Indice della prima colonna da sostituire
+     * @param count Numero di elementi da copiare
+     */
+    public void setRow(double[] src, int srcPos, int row, int column, int count) {
+        checkRowRange(row, column, count);
+        if (srcPos < 0 || srcPos > src.length - count)
+            throw new RuntimeException("Illegal array range: " + srcPos + " - " + (srcPos + count) + " out of bounds 0 - " + src.length);
+        copyRowFrom(src, srcPos, row, column, count);
+    }
+
+    private void checkRowRange(int row, int column, int count) {
+        if (outOfRange(row, rows))
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + rows);
+        if (column < 0 || count < 0 || column > columns - count)
+            throw new RuntimeException("Illegal column range: " + column + " - " + (column + count) + " out of bounds 0 - " + columns);
+    }
+
+    /**
+     * Ritorna una copia della riga della matrice in una posizione specifica
      * @param row Indice della riga
      * @return La collezione degli elementi della riga specificata nella matrice
      */
     public double[] getRow(int row) {
         if (outOfRange(row, getNumRows()))
-            throw new RuntimeException("Illegal row index: " + row + "out of bounds 0 - " + getNumRows());
-        return matrix[row];
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + getNumRows());
+        double[] elements = new double[columns];
+        copyRowTo(row, elements, 0);
+        return elements;
     }
 
     /**
-     * Sostituisce gli elementi, in una riga specifica della matrice, con nuovi elementi
+     * Sostituisce gli elementi, in una riga specifica della matrice, con nuovi elementi.
+     * Gli elementi vengono copiati nella riga
      * @param elements Collezione di elementi da inserire
      * @param row Indice della riga
      */
     public void setRow(double[] elements, int row) {
         if (outOfRange(row, getNumRows()))
-            throw new RuntimeException("Illegal row index: " + row + "out of bounds 0 - " + getNumRows());
-        matrix[row] = elements;
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + getNumRows());
+        if (elements.length != columns)
+            throw new RuntimeException("Illegal array length: " + elements.length + " must be " + columns);
+        copyRowFrom(elements, 0, row);
     }
 
     /**
@@ -181,6 +636,18 @@ public class Matrix {
         return determinant(this);
     }
 
+    /**
+     * Calcolo del determinante di questa matrice attraverso la decomposizione LU a blocchi,
+     * con l'aggiornamento dei blocchi eseguito in parallelo
+     * @param pool Pool su cui eseguire il calcolo
+     * @return Il valore del determinante
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public double determinant(ForkJoinPool pool) throws MatrixException {
+        if (isSquare() && getNumRows() <= 3) return determinant(this);
+        return new LUDecomposition(this, pool).determinant();
+    }
+
     /**
      * Calcolo del determinante di una matrice
      * @param m Matrice su cui calcolare il determinante
@@ -188,19 +655,45 @@ public class Matrix {
      * @throws MatrixException Se la matrice non è quadrata
      */
     private double determinant(Matrix m) throws MatrixException {
-        int det = 0;
         if (!m.isSquare())
             throw new MatrixException("Illegal matrix type: must be a square matrix");
 
-        if (m.getNumRows() == 1) return m.at(0,0);
-        else if (m.getNumRows() == 2) return m.at(0,0) * m.at(1,1) - m.at(1,0) * m.at(0,1);
+        if (m.getNumRows() == 1) return m.unsafeGet(0,0);
+        else if (m.getNumRows() == 2) return m.unsafeGet(0,0) * m.unsafeGet(1,1) - m.unsafeGet(1,0) * m.unsafeGet(0,1);
         else if (m.getNumRows() == 3) return sarrus(m); //Sarrus method
-        else {
-            //Laplace method
-            for (int i = 0; i < m.getNumRows();i++)
-                det += Math.pow(-1, 2 + i) * m.at(0,i) * determinant(submatrix(m, 0, i));
-            return det;
+        else return new LUDecomposition(m).determinant(); //LU method, O(n^3)
+    }
+
+    /**
+     * Ritorna la decomposizione LU con pivoting parziale di questa matrice.
+     * La decomposizione viene calcolata alla prima richiesta e riutilizzata finché gli elementi
+     * della matrice, o di una sua vista, non vengono modificati attraverso i metodi della classe;
+     * le modifiche dirette a un vettore passato a {@link #Matrix(double[], int)} non vengono rilevate.
+     * La decomposizione ottenuta può essere riutilizzata per determinante,
+     * sistemi lineari e matrice inversa senza ripetere la fattorizzazione
+     * @return La decomposizione LU di questa matrice
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public LUDecomposition lu() throws MatrixException {
+        if (lu == null || luVersion != root.version) {
+            lu = new LUDecomposition(this);
+            luVersion = root.version;
         }
+        return lu;
+    }
+
+    /**
+     * Risolve il sistema lineare AX = B, dove A è questa matrice, tramite la decomposizione LU
+     * e la sostituzione in avanti e all'indietro. Ogni colonna di B è un vettore dei termini noti
+     * e le colonne vengono risolte contemporaneamente. La decomposizione viene riutilizzata
+     * nelle chiamate successive finché questa matrice non viene modificata, per cui risolvere
+     * nuovamente il sistema con termini noti diversi costa O(n²) per colonna
+     * @param b Matrice NxK dei termini noti
+     * @return La matrice NxK delle soluzioni
+     * @throws MatrixException Se la matrice non è quadrata oppure è singolare
+     */
+    public Matrix solve(Matrix b) throws MatrixException {
+        return lu().solve(b);
     }
 
     /**
@@ -212,8 +705,8 @@ public class Matrix {
     private double sarrus(Matrix m) throws MatrixException {
         if (!m.isSquare()) throw new MatrixException("Illegal matrix type: must be a square matrix");
         if (m.getNumRows() != 3) throw new MatrixException("Illegal Sarrus method: the matrix must be 3x3");
-        return (m.at(0,0) * m.at(1,1) * m.at(2,2) + m.at(0,1) * m.at(1,2) * m.at(2,0) + m.at(0,2) * m.at(1,0) * m.at(2,1))
-                - (m.at(0,2) * m.at(1,1) * m.at(2,0) + m.at(0,0) * m.at(1,2) * m.at(2,1) + m.at(0,1) * m.at(1,0) * m.at(2,2));
+        return (m.unsafeGet(0,0) * m.unsafeGet(1,1) * m.unsafeGet(2,2) + m.unsafeGet(0,1) * m.unsafeGet(1,2) * m.unsafeGet(2,0) + m.unsafeGet(0,2) * m.unsafeGet(1,0) * m.unsafeGet(2,1))
+                - (m.unsafeGet(0,2) * m.unsafeGet(1,1) * m.unsafeGet(2,0) + m.unsafeGet(0,0) * m.unsafeGet(1,2) * m.unsafeGet(2,1) + m.unsafeGet(0,1) * m.unsafeGet(1,0) * m.unsafeGet(2,2));
     }
 
     /**
@@ -233,25 +726,23 @@ public class Matrix {
      * @return Sottomatrice (N-1)x(N-1)
      */
     public Matrix submatrix(Matrix m, int rowFix, int columnFix){
-        if (outOfRange(rowFix, getNumRows()))
-            throw new RuntimeException("Illegal row index: " + rowFix + "out of bounds 0 - " + getNumRows());
-        if (outOfRange(columnFix, getNumRows()))
-            throw new RuntimeException("Illegal column index: " + columnFix + "out of bounds 0 - " + getNumColumns());
-        if (m.getNumRows() < 2 && m.getNumColumns() < 2)
-            throw new RuntimeException("Illegal submatrix: you cannot extract a submatrix from a 1x1 matrix");
-
-
-        int k = 0, max = Math.min(m.getNumRows(), m.getNumColumns());
-        double[] array = new double[(int) Math.pow(max - 1, 2)];
-        for (int i = 0; i < m.getNumRows(); i++) {
-            for (int j = 0; j < m.getNumColumns(); j++) {
-                if (i != rowFix && j != columnFix) {
-                    array[k] = m.at(i,j);
-                    k++;
-                }
-            }
+        if (outOfRange(rowFix, m.getNumRows()))
+            throw new RuntimeException("Illegal row index: " + rowFix + " out of bounds 0 - " + m.getNumRows());
+        if (outOfRange(columnFix, m.getNumColumns()))
+            throw new RuntimeException("Illegal column index: " + columnFix + " out of bounds 0 - " + m.getNumColumns());
+        if (m.getNumRows() < 2 || m.getNumColumns() < 2)
+            throw new RuntimeException("Illegal submatrix: you cannot extract a submatrix from a 1xN or Nx1 matrix");
+
+        Matrix result = new Matrix(m.getNumRows() - 1, m.getNumColumns() - 1);
+        double[] row = new double[m.getNumColumns()];
+        for (int i = 0, k = 0; i < m.getNumRows(); i++) {
+            if (i == rowFix) continue;
+            m.copyRowTo(i, row, 0);
+            int dest = result.index(k++, 0);
+            System.arraycopy(row, 0, result.data, dest, columnFix);
+            System.arraycopy(row, columnFix + 1, result.data, dest + columnFix, row.length - columnFix - 1);
         }
-        return toMatrix(array);
+        return result;
     }
 
     /**
@@ -260,13 +751,11 @@ public class Matrix {
      * @return Nuova matrice copiata
      */
     public Matrix copy(Matrix m){
-        double[][] matrix = new double[m.getNumRows()][m.getNumColumns()];
-        for (int i = 0; i < m.getNumRows(); i++){
-            for (int j = 0; j < m.getNumColumns(); j++){
-                matrix[i][j] = m.at(i,j);
-            }
-        }
-        return new Matrix(matrix);
+        Matrix copy = new Matrix(m.getNumRows(), m.getNumColumns());
+        if (m.columnStride != 1 && m.rowStride == 1) //vista trasposta: copia a blocchi
+            return transpose(m.transposedView(), copy);
+        for (int i = 0; i < m.getNumRows(); i++) m.copyRowTo(i, copy.data, copy.index(i, 0));
+        return copy;
     }
 
     /**
@@ -302,29 +791,80 @@ public class Matrix {
 
 
     /**
-     * Conta i pivot in questa matrice. Un pivot è un'elemento della matrice
-     * ed è definito tale se nella riga i-esima è il primo elemento non nullo
-     * @return Il numero totale di pivot
+     * Calcola la decomposizione QR con pivoting sulle colonne di questa matrice
+     * @return La decomposizione QR di questa matrice
      */
-    private int countPivots(){
-        int count = 0;
-        for (int i = 0; i < getNumRows(); i++)
-            for (int j = 0; j < getNumColumns(); j++)
-                if (at(i,j) != 0){
-                    count++;
-                    break;
-                }
-        return count;
+    public QRDecomposition qr() {
+        return new QRDecomposition(this);
     }
 
 
     /**
-     * Metodo per calcolare il rango di questa matrice attraverso
-     * l'algoritmo di eliminazione gaussiana
+     * Metodo per calcolare il rango di questa matrice attraverso la decomposizione QR
+     * con pivoting sulle colonne, considerando nulli gli elementi diagonali di R
+     * non superiori alla tolleranza max(M,N) * eps * |R11|
      * @return Il rango della matrice
+     * @see SingularValueDecomposition#rank()
      */
     public int rank(){
-        return scale().countPivots();
+        return qr().rank();
+    }
+
+
+    /**
+     * Metodo per calcolare il rango di questa matrice attraverso la decomposizione QR
+     * con pivoting sulle colonne, in O(M * N * min(M,N))
+     * @param tolerance Soglia sotto la quale un elemento diagonale di R è considerato nullo
+     * @return Il rango della matrice
+     */
+    public int rank(double tolerance){
+        if (tolerance < 0 || Double.isNaN(tolerance))
+            throw new RuntimeException("Illegal tolerance: must be non-negative but is " + tolerance);
+        return qr().rank(tolerance);
+    }
+
+
+    /**
+     * Calcola la decomposizione spettrale completa di questa matrice simmetrica
+     * @return La decomposizione spettrale, con gli autovalori in ordine decrescente
+     * @throws MatrixException Se la matrice non è quadrata o non è simmetrica
+     */
+    public EigenDecomposition eigen() throws MatrixException {
+        return new EigenDecomposition(this);
+    }
+
+
+    /**
+     * Calcola i k autovalori maggiori di questa matrice simmetrica e i relativi autovettori,
+     * senza calcolare gli autovettori delle altre componenti
+     * @param k Numero di componenti
+     * @return La decomposizione spettrale limitata alle prime k componenti
+     * @throws MatrixException Se la matrice non è quadrata o non è simmetrica
+     */
+    public EigenDecomposition eigen(int k) throws MatrixException {
+        return new EigenDecomposition(this, k);
+    }
+
+
+    /**
+     * Calcola la decomposizione ai valori singolari in forma ridotta di questa matrice.
+     * Il rango ottenuto dai valori singolari, {@link SingularValueDecomposition#rank()},
+     * è più affidabile di quello ottenuto con la decomposizione QR ma richiede più calcolo
+     * @return La decomposizione ai valori singolari
+     */
+    public SingularValueDecomposition svd() {
+        return new SingularValueDecomposition(this);
+    }
+
+
+    /**
+     * Calcola i k valori singolari maggiori di questa matrice e i relativi vettori singolari,
+     * senza calcolare i vettori delle altre componenti
+     * @param k Numero di componenti
+     * @return La decomposizione ai valori singolari limitata alle prime k componenti
+     */
+    public SingularValueDecomposition svd(int k) {
+        return new SingularValueDecomposition(this, k);
     }
 
 
@@ -334,39 +874,80 @@ public class Matrix {
      * @return La matrice in forma scala
      */
     public Matrix scale(){
-        return scale(copy(this));
+        return scale(copy(this), false);
     }
 
     /**
-     * Riduce a scala una matrice attraverso l'utilizzo del metodo di eliminazione di Gauss
-     * @param m Matrice da risolvere
+     * Riduce a scala ridotta questa matrice attraverso l'utilizzo del metodo di eliminazione
+     * di Gauss-Jordan: ogni pivot è pari a 1 ed è l'unico elemento non nullo della sua colonna
+     * @return La matrice in forma scala ridotta
+     */
+    public Matrix reducedScale(){
+        return scale(copy(this), true);
+    }
+
+    /**
+     * Riduce a scala una matrice con righe contigue attraverso il metodo di eliminazione di Gauss
+     * con pivoting parziale, eseguito in un solo passaggio aggiornando le righe in place.
+     * Per ogni colonna viene scelto come pivot l'elemento di modulo massimo tra le righe non ancora
+     * ridotte; un elemento con valore assoluto non superiore a max(M,N) * eps * max|Aij| è
+     * considerato nullo. Il costo è O(M * N * min(M,N))
+     * @param m Matrice da risolvere, viene modificata
+     * @param reduced {@code true} per ottenere la forma scala ridotta;
+     *                Altrimenti {@code false}.
      * @return La matrice in forma scala
      */
-    private Matrix scale(Matrix m){
-        double[] a, b, ris;
-        int pivotColumn, rowstart = 0;
-
-        m.ordPivots();
-        while (!m.isScale()) {
-            for (int i = rowstart; i < m.getNumRows() - 1; i++){
-                m.ordPivots();
-
-                pivotColumn = m.getPivotColum(i);
-
-                //Se pivotColumn == m.getNumColumns() allora riga nulla senza pivot
-                if (pivotColumn < m.getNumColumns()){
-                    for (int k = i + 1; k < m.getNumRows(); k++) {
-                        if (m.at(k, pivotColumn) != 0) {
-                            a = m.getRow(k);
-                            b = Matrix.multiply(m.getRow(i), m.at(k, pivotColumn) / m.at(i, pivotColumn));
-                            ris = Matrix.minus(a, b);
-                            m.setRow(ris, k);
-                        }
-                    }
+    private Matrix scale(Matrix m, boolean reduced){
+        int rows = m.getNumRows(), columns = m.getNumColumns(), ld = m.rowStride;
+        double[] a = m.data;
+        double norm = 0;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++) norm = Math.max(norm, Math.abs(a[i * ld + j]));
+        double tolerance = Math.max(rows, columns) * Math.ulp(1.0) * norm;
+
+        int[] pivots = new int[Math.min(rows, columns)];
+        int rank = 0;
+        for (int c = 0; c < columns && rank < rows; c++) {
+            int p = rank;
+            double max = Math.abs(a[rank * ld + c]);
+            for (int i = rank + 1; i < rows; i++) {
+                double v = Math.abs(a[i * ld + c]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            if (max <= tolerance) {
+                //Colonna senza pivot: i residui numerici sotto la riga corrente vengono azzerati
+                for (int i = rank; i < rows; i++) a[i * ld + c] = 0;
+                continue;
+            }
+            if (p != rank) Matrix.swap(m, p, rank);
+
+            int rp = rank * ld;
+            for (int i = rank + 1; i < rows; i++) {
+                int ri = i * ld;
+                double f = a[ri + c] / a[rp + c];
+                a[ri + c] = 0;
+                if (f != 0) Kernels.combine(a, ri + c + 1, -f, a, rp + c + 1, a, ri + c + 1, columns - c - 1);
+            }
+            pivots[rank++] = c;
+        }
+
+        if (reduced) {
+            for (int r = rank - 1; r >= 0; r--) {
+                int c = pivots[r], rp = r * ld;
+                Kernels.affine(a, rp + c + 1, 1 / a[rp + c], 0, a, rp + c + 1, columns - c - 1);
+                a[rp + c] = 1;
+                for (int i = 0; i < r; i++) {
+                    int ri = i * ld;
+                    double f = a[ri + c];
+                    a[ri + c] = 0;
+                    if (f != 0) Kernels.combine(a, ri + c + 1, -f, a, rp + c + 1, a, ri + c + 1, columns - c - 1);
                 }
             }
-            rowstart++;
         }
+        m.modified();
         return m;
     }
 
@@ -380,7 +961,7 @@ public class Matrix {
      */
     private int getPivotColum(int row){
         for (int j = 0; j < getNumColumns(); j++)
-            if (at(row, j) != 0) return j;
+            if (unsafeGet(row, j) != 0) return j;
         return getNumColumns(); //riga nulla
     }
 
@@ -391,48 +972,25 @@ public class Matrix {
      *         Altrimenti {@code false}.
      */
     private boolean pivotsAreScaled(){
-        ArrayList<Integer> pivotsColumn = getAllPivotsColumn();
+        int[] pivotsColumn = getAllPivotsColumn();
         for (int i = 0; i < getNumRows(); i++) {
             for (int j = 0; j < i; j++)
-                if (pivotsColumn.get(i) >= pivotsColumn.get(j))
+                if (pivotsColumn[i] >= pivotsColumn[j])
                     return false;
         }
         return true;
     }
 
     /**
-     * Ritorna una lista contenente gli indici delle colonne di ciascun pivot della matrice
-     * @return Ritorna una lista contenente lgli indici delle colonne di ciascun pivot della matrice
+     * Ritorna un vettore contenente gli indici delle colonne di ciascun pivot della matrice
+     * @return Ritorna un vettore contenente gli indici delle colonne di ciascun pivot della matrice
      */
-    private ArrayList<Integer> getAllPivotsColumn(){
-        ArrayList<Integer> pivotsColumn = new ArrayList<>();
-        for (int i = 0; i < getNumRows(); i++)  pivotsColumn.add(getPivotColum(i));
+    private int[] getAllPivotsColumn(){
+        int[] pivotsColumn = new int[getNumRows()];
+        for (int i = 0; i < getNumRows(); i++) pivotsColumn[i] = getPivotColum(i);
         return pivotsColumn;
     }
 
-    /**
-     * Ordina la matrice in base alle colonne dei pivot, se P1(x,y), P2(z,h) e y >= h allora vengono scambiate le righe
-     * @return Ordina la matrice in base alle colonne dei pivot
-     */
-    private Matrix ordPivots(){
-        ArrayList<Integer> pivotsColumn = getAllPivotsColumn();
-        int tmp;
-        boolean sort;
-        do {
-            sort = true;
-            for(int i = 0; i < getNumRows() - 1; i++)
-                if(pivotsColumn.get(i) > pivotsColumn.get(i + 1)) {
-                    tmp = pivotsColumn.get(i);
-                    pivotsColumn.set(i, pivotsColumn.get(i + 1));
-                    pivotsColumn.set(i + 1, tmp);
-                    Matrix.swap(this, i, i + 1);
-                    sort = false;
-                }
-        } while (!sort);
-        return this;
-    }
-
-
     /**
      * Somma questa matrice ad un'altra, se e solo se sono dello stesso ordine,
      * ovvero hanno lo stesso numero di righe e colonne
@@ -440,15 +998,7 @@ public class Matrix {
      * @return Matrice somma
      */
     public Matrix sum(Matrix other){
-        if (!hasEqualsOrder(other))
-            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
-
-        double[][] matrix = new double[this.getNumRows()][this.getNumColumns()];
-        for (int i = 0; i < this.getNumRows(); i++)
-            for (int j = 0; j < this.getNumColumns(); j++)
-                matrix[i][j] = this.at(i,j) + other.at(i,j);
-
-        return new Matrix(matrix);
+        return sum(this, other, new Matrix(getNumRows(), getNumColumns()));
     }
 
     /**
@@ -457,12 +1007,7 @@ public class Matrix {
      * @return Matrice sommata allo scalare
      */
     public Matrix sum(double scalar){
-        double[][] matrix = new double[getNumRows()][getNumColumns()];
-        for (int i = 0; i < getNumRows(); i++)
-            for (int j = 0; j < getNumColumns(); j++)
-                matrix[i][j] = at(i,j) + scalar;
-
-        return new Matrix(matrix);
+        return sum(this, scalar, new Matrix(getNumRows(), getNumColumns()));
     }
 
     /**
@@ -471,12 +1016,7 @@ public class Matrix {
      * @return Matrice differenza con lo scalare
      */
     public Matrix diff(double scalar){
-        double[][] matrix = new double[getNumRows()][getNumColumns()];
-        for (int i = 0; i < getNumRows(); i++)
-            for (int j = 0; j < getNumColumns(); j++)
-                matrix[i][j] = at(i,j) - scalar;
-
-        return new Matrix(matrix);
+        return diff(this, scalar, new Matrix(getNumRows(), getNumColumns()));
     }
 
     /**
@@ -486,14 +1026,317 @@ public class Matrix {
      * @return Matrice differenza
      */
     public Matrix diff(Matrix other){
-        if (!hasEqualsOrder(other))
+        return diff(this, other, new Matrix(getNumRows(), getNumColumns()));
+    }
+
+    /**
+     * Somma un'altra matrice a questa, modificandola, se e solo se sono dello stesso ordine
+     * @param other Matrice da sommare a questa
+     * @return Questa matrice, contenente la somma
+     */
+    public Matrix addInPlace(Matrix other){
+        return sum(this, other, this);
+    }
+
+    /**
+     * Somma uno scalare a tutti gli elementi di questa matrice, modificandola
+     * @param scalar Lo scalare da sommare
+     * @return Questa matrice, contenente la somma
+     */
+    public Matrix addInPlace(double scalar){
+        return sum(this, scalar, this);
+    }
+
+    /**
+     * Sottrae un'altra matrice a questa, modificandola, se e solo se sono dello stesso ordine
+     * @param other Matrice da sottrarre a questa
+     * @return Questa matrice, contenente la differenza
+     */
+    public Matrix subInPlace(Matrix other){
+        return diff(this, other, this);
+    }
+
+    /**
+     * Sottrae uno scalare a tutti gli elementi di questa matrice, modificandola
+     * @param scalar Lo scalare da sottrarre
+     * @return Questa matrice, contenente la differenza
+     */
+    public Matrix subInPlace(double scalar){
+        return diff(this, scalar, this);
+    }
+
+    /**
+     * Moltiplica tutti gli elementi di questa matrice per uno scalare, modificandola
+     * @param scalar Lo scalare per cui moltiplicare
+     * @return Questa matrice, contenente il prodotto
+     */
+    public Matrix scaleInPlace(double scalar){
+        affine(this, scalar, 0, this);
+        return this;
+    }
+
+    /**
+     * Aggiorna questa matrice con la combinazione lineare A = A + alpha * X,
+     * se e solo se le due matrici sono dello stesso ordine
+     * @param alpha Coefficiente di X
+     * @param x Matrice da sommare a questa moltiplicata per alpha
+     * @return Questa matrice, contenente il risultato
+     */
+    public Matrix axpy(double alpha, Matrix x){
+        combine(this, alpha, x, this);
+        return this;
+    }
+
+    /**
+     * Somma due matrici dello stesso ordine scrivendo il risultato in una matrice di destinazione.
+     * La destinazione può coincidere con uno degli operandi; se ne condivide solo in parte gli elementi,
+     * ad esempio perché è una vista sovrapposta o trasposta, il risultato passa da una matrice temporanea
+     * @param a Primo addendo
+     * @param b Secondo addendo
+     * @param dest Matrice dello stesso ordine che riceve la somma
+     * @return La matrice di destinazione
+     */
+    public static Matrix sum(Matrix a, Matrix b, Matrix dest){
+        combine(a, 1, b, dest);
+        return dest;
+    }
+
+    /**
+     * Esegue la sottrazione tra due matrici dello stesso ordine scrivendo il risultato in una matrice
+     * di destinazione. La destinazione può coincidere con uno degli operandi; se ne condivide solo in parte
+     * gli elementi, il risultato passa da una matrice temporanea
+     * @param a Matrice minuendo
+     * @param b Matrice sottraendo
+     * @param dest Matrice dello stesso ordine che riceve la differenza
+     * @return La matrice di destinazione
+     */
+    public static Matrix diff(Matrix a, Matrix b, Matrix dest){
+        combine(a, -1, b, dest);
+        return dest;
+    }
+
+    /**
+     * Somma uno scalare a tutti gli elementi di una matrice scrivendo il risultato in una matrice
+     * di destinazione. La destinazione può coincidere con l'operando; se ne condivide solo in parte
+     * gli elementi, il risultato passa da una matrice temporanea
+     * @param a Matrice
+     * @param scalar Lo scalare da sommare
+     * @param dest Matrice dello stesso ordine che riceve la somma
+     * @return La matrice di destinazione
+     */
+    public static Matrix sum(Matrix a, double scalar, Matrix dest){
+        affine(a, 1, scalar, dest);
+        return dest;
+    }
+
+    /**
+     * Sottrae uno scalare a tutti gli elementi di una matrice scrivendo il risultato in una matrice
+     * di destinazione. La destinazione può coincidere con l'operando; se ne condivide solo in parte
+     * gli elementi, il risultato passa da una matrice temporanea
+     * @param a Matrice
+     * @param scalar Lo scalare da sottrarre
+     * @param dest Matrice dello stesso ordine che riceve la differenza
+     * @return La matrice di destinazione
+     */
+    public static Matrix diff(Matrix a, double scalar, Matrix dest){
+        affine(a, 1, -scalar, dest);
+        return dest;
+    }
+
+    /**
+     * Prodotto righe per colonne tra una matrice MxN e una NxK scrivendo il risultato
+     * in una matrice MxK di destinazione, che non deve condividere elementi con gli operandi
+     * @param a Matrice MxN
+     * @param b Matrice NxK
+     * @param dest Matrice MxK che riceve il prodotto
+     * @return La matrice di destinazione
+     */
+    public static Matrix multiply(Matrix a, Matrix b, Matrix dest){
+        return multiplyAdd(a, b, dest, 1, 0);
+    }
+
+    /**
+     * Scrive la trasposta di una matrice MxN in una matrice NxM di destinazione,
+     * che non deve condividere elementi con la matrice da trasporre
+     * @param a Matrice da trasporre
+     * @param dest Matrice che riceve la trasposta
+     * @return La matrice di destinazione
+     * @see #transpose(Matrix, Matrix, ForkJoinPool)
+     */
+    public static Matrix transpose(Matrix a, Matrix dest){
+        return transpose(a, dest, null);
+    }
+
+    /**
+     * Scrive la trasposta di una matrice MxN in una matrice NxM di destinazione,
+     * che non deve condividere elementi con la matrice da trasporre.
+     * La trasposizione procede a blocchi di {@value #TRANSPOSE_TILE}x{@value #TRANSPOSE_TILE} elementi:
+     * le righe di un blocco della sorgente restano in cache mentre vengono lette per colonne,
+     * per cui ogni linea di cache viene caricata una sola volta invece che per ogni elemento.
+     * Sopra una soglia di dimensione le righe della destinazione vengono suddivise tra i thread del pool
+     * @param a Matrice da trasporre
+     * @param dest Matrice che riceve la trasposta
+     * @param pool Pool su cui eseguire la trasposizione, se {@code null} viene eseguita in modo seriale
+     * @return La matrice di destinazione
+     */
+    public static Matrix transpose(Matrix a, Matrix dest, ForkJoinPool pool){
+        if (dest.getNumRows() != a.getNumColumns() || dest.getNumColumns() != a.getNumRows())
+            throw new RuntimeException("Illegal matrices length: the result must be " + a.getNumColumns() + "x" + a.getNumRows());
+        if (shareElements(dest, a))
+            throw new RuntimeException("Illegal transpose destination: the result matrix must not share elements with the operand");
+
+        dest.modified();
+        int m = dest.getNumRows();
+        Gemm.RowRange range = (rowStart, rowEnd) -> transposeRows(a, dest, rowStart, rowEnd);
+        if (pool == null || (long) m * dest.getNumColumns() < PARALLEL_TRANSPOSE || pool.getParallelism() < 2) range.compute(0, m);
+        else pool.invoke(new Gemm.RowBlockTask(0, m, Math.max(TRANSPOSE_TILE, m / (4 * pool.getParallelism())), range));
+        return dest;
+    }
+
+    /**
+     * Scrive le righe [rowStart, rowEnd) della trasposta, un blocco alla volta
+     */
+    private static void transposeRows(Matrix a, Matrix dest, int rowStart, int rowEnd) {
+        int n = dest.getNumColumns(), ars = a.rowStride, dcs = dest.columnStride;
+        double[] src = a.data, dst = dest.data;
+        for (int i0 = rowStart; i0 < rowEnd; i0 += TRANSPOSE_TILE) {
+            int i1 = Math.min(rowEnd, i0 + TRANSPOSE_TILE);
+            for (int j0 = 0; j0 < n; j0 += TRANSPOSE_TILE) {
+                int j1 = Math.min(n, j0 + TRANSPOSE_TILE);
+                for (int i = i0; i < i1; i++) {
+                    int d = dest.index(i, j0), s = a.index(j0, i);
+                    if (src != null && dst != null)
+                        for (int j = j0; j < j1; j++, d += dcs, s += ars) dst[d] = src[s];
+                    else
+                        for (int j = j0; j < j1; j++, d += dcs, s += ars) dest.store(d, a.load(s));
+                }
+            }
+        }
+    }
+
+    /**
+     * Traspone questa matrice quadrata sul posto, scambiando ogni blocco sopra la diagonale
+     * con il blocco simmetrico; non alloca memoria aggiuntiva
+     * @return Questa matrice trasposta
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public Matrix transposeInPlace() throws MatrixException {
+        return transposeInPlace(null);
+    }
+
+    /**
+     * Traspone questa matrice quadrata sul posto, scambiando ogni blocco sopra la diagonale
+     * con il blocco simmetrico. Sopra una soglia di dimensione le righe di blocchi vengono
+     * suddivise tra i thread del pool: ogni coppia di blocchi appartiene a una sola riga di blocchi
+     * @param pool Pool su cui eseguire la trasposizione, se {@code null} viene eseguita in modo seriale
+     * @return Questa matrice trasposta
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public Matrix transposeInPlace(ForkJoinPool pool) throws MatrixException {
+        if (!isSquare())
+            throw new MatrixException("Illegal matrix type: must be a square matrix");
+        modified();
+        int n = rows, tiles = (n + TRANSPOSE_TILE - 1) / TRANSPOSE_TILE;
+        Gemm.RowRange range = (tileStart, tileEnd) -> {
+            for (int t = tileStart; t < tileEnd; t++) {
+                int i0 = t * TRANSPOSE_TILE, i1 = Math.min(n, i0 + TRANSPOSE_TILE);
+                for (int j0 = i0; j0 < n; j0 += TRANSPOSE_TILE) {
+                    int j1 = Math.min(n, j0 + TRANSPOSE_TILE);
+                    for (int i = i0; i < i1; i++)
+                        for (int j = Math.max(j0, i + 1); j < j1; j++) {
+                            int upper = index(i, j), lower = index(j, i);
+                            double x = load(upper);
+                            store(upper, load(lower));
+                            store(lower, x);
+                        }
+                }
+            }
+        };
+        if (pool == null || (long) n * n < PARALLEL_TRANSPOSE || pool.getParallelism() < 2) range.compute(0, tiles);
+        else pool.invoke(new Gemm.RowBlockTask(0, tiles, 1, range));
+        return this;
+    }
+
+    /**
+     * Controlla se la destinazione condivide elementi con un operando senza esserne la stessa vista:
+     * in tal caso scrivere un elemento della destinazione può modificare un elemento dell'operando non ancora letto
+     * @param dest Matrice di destinazione
+     * @param operand Operando
+     * @return {@code true} Se e solo se, le due matrici possono avere elementi in comune in posizioni diverse;
+     *         Altrimenti {@code false}.
+     */
+    static boolean overlaps(Matrix dest, Matrix operand) {
+        return shareElements(dest, operand) && (dest.offset != operand.offset
+                || dest.rowStride != operand.rowStride || dest.columnStride != operand.columnStride);
+    }
+
+    /**
+     * Calcola elemento per elemento dest = a + beta * b, riga per riga
+     * @param a Primo operando
+     * @param beta Coefficiente del secondo operando
+     * @param b Secondo operando
+     * @param dest Matrice di destinazione, può coincidere con un operando; se ne condivide gli elementi
+     *             senza coincidere, il risultato viene calcolato in una matrice temporanea e poi copiato
+     */
+    private static void combine(Matrix a, double beta, Matrix b, Matrix dest){
+        if (!a.hasEqualsOrder(b) || !a.hasEqualsOrder(dest))
+            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+        if (overlaps(dest, a) || overlaps(dest, b)) {
+            Matrix result = new Matrix(dest.getNumRows(), dest.getNumColumns());
+            combine(a, beta, b, result);
+            affine(result, 1, 0, dest);
+            return;
+        }
+
+        dest.modified();
+        int n = a.getNumColumns();
+        if (a.hasContiguousRows() && b.hasContiguousRows() && dest.hasContiguousRows()) {
+            for (int i = 0; i < a.getNumRows(); i++)
+                Kernels.combine(a.data, a.index(i, 0), beta, b.data, b.index(i, 0), dest.data, dest.index(i, 0), n);
+            return;
+        }
+        //Righe non contigue o fuori dallo heap: ogni riga viene copiata in vettori di appoggio
+        double[] ra = new double[n], rb = new double[n];
+        for (int i = 0; i < a.getNumRows(); i++) {
+            a.copyRowTo(i, ra, 0);
+            b.copyRowTo(i, rb, 0);
+            Kernels.combine(ra, 0, beta, rb, 0, ra, 0, n);
+            dest.copyRowFrom(ra, 0, i);
+        }
+    }
+
+    /**
+     * Calcola elemento per elemento dest = alpha * a + shift, riga per riga
+     * @param a Operando
+     * @param alpha Coefficiente dell'operando
+     * @param shift Scalare da sommare
+     * @param dest Matrice di destinazione, può coincidere con l'operando; se ne condivide gli elementi
+     *             senza coincidere, il risultato viene calcolato in una matrice temporanea e poi copiato
+     */
+    private static void affine(Matrix a, double alpha, double shift, Matrix dest){
+        if (!a.hasEqualsOrder(dest))
             throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
-        double[][] matrix = new double[this.getNumRows()][this.getNumColumns()];
-        for (int i = 0; i < this.getNumRows(); i++)
-            for (int j = 0; j < this.getNumColumns(); j++)
-                matrix[i][j] = this.at(i,j) - other.at(i,j);
+        if (overlaps(dest, a)) {
+            Matrix result = new Matrix(dest.getNumRows(), dest.getNumColumns());
+            affine(a, alpha, shift, result);
+            affine(result, 1, 0, dest);
+            return;
+        }
 
-        return new Matrix(matrix);
+        dest.modified();
+        int n = a.getNumColumns();
+        if (a.hasContiguousRows() && dest.hasContiguousRows()) {
+            for (int i = 0; i < a.getNumRows(); i++)
+                Kernels.affine(a.data, a.index(i, 0), alpha, shift, dest.data, dest.index(i, 0), n);
+            return;
+        }
+        //Righe non contigue o fuori dallo heap: ogni riga viene copiata in un vettore di appoggio
+        double[] row = new double[n];
+        for (int i = 0; i < a.getNumRows(); i++) {
+            a.copyRowTo(i, row, 0);
+            Kernels.affine(row, 0, alpha, shift, row, 0, n);
+            dest.copyRowFrom(row, 0, i);
+        }
     }
 
 
@@ -503,13 +1346,17 @@ public class Matrix {
      * @return Ritorna la matrice trasposta
      */
     public Matrix transposed(){
-        double[][] matrix = new double[getNumRows()][getNumColumns()];
-        for (int i = 0; i < getNumRows(); i++){
-            for (int j = 0; j < getNumColumns(); j++){
-                matrix[i][j] = at(j,i);
-            }
-        }
-        return new Matrix(matrix);
+        return transpose(this, new Matrix(getNumColumns(), getNumRows()));
+    }
+
+    /**
+     * Ritorna la matrice trasposta, calcolata in parallelo su un pool specifico per le matrici grandi
+     * @param pool Pool su cui eseguire la trasposizione
+     * @return Ritorna la matrice trasposta
+     * @see #transpose(Matrix, Matrix, ForkJoinPool)
+     */
+    public Matrix transposed(ForkJoinPool pool){
+        return transpose(this, new Matrix(getNumColumns(), getNumRows()), pool);
     }
 
     /**
@@ -519,20 +1366,100 @@ public class Matrix {
      * @throws MatrixException Se la matrice non è quadrata oppure ha determinate uguale a 0
      */
     public Matrix inverse() throws MatrixException {
-        double det = determinant();
         if (!isSquare())
             throw new MatrixException("Illegal matrix type: must be a square matrix");
-        if (det == 0)
-            throw new MatrixException("Illegal determinant: must be not equals to 0");
+        return inverseInto(new Matrix(getNumRows(), getNumColumns()));
+    }
 
-        Matrix mCofactors = cofactors(transposed());
-        double[][] matrix = new double [getNumRows()][getNumColumns()];
-        for (int i = 0; i < getNumRows(); i++){
-            for (int j = 0; j < getNumColumns(); j++){
-                matrix[i][j] = mCofactors.at(j,i) / det;
+    /**
+     * Calcola la matrice inversa di questa matrice scrivendola in una matrice di destinazione,
+     * attraverso il metodo di Gauss-Jordan con pivoting parziale eseguito in place.
+     * L'unica allocazione è il vettore degli scambi di riga, la destinazione può coincidere
+     * con questa matrice. Se invece ne condivide solo una parte degli elementi, ad esempio due blocchi
+     * sovrapposti della stessa matrice, o non ha righe contigue, l'inversa viene calcolata in una copia
+     * e poi riportata nella destinazione. La matrice è considerata singolare se un pivot ha valore assoluto
+     * non superiore a n * eps * max|Aij|; in tal caso il contenuto della destinazione non è definito
+     * @param target Matrice NxN in cui scrivere l'inversa
+     * @return La matrice di destinazione contenente l'inversa
+     * @throws MatrixException Se la matrice non è quadrata oppure è singolare
+     */
+    public Matrix inverseInto(Matrix target) throws MatrixException {
+        if (!isSquare())
+            throw new MatrixException("Illegal matrix type: must be a square matrix");
+        if (!hasEqualsOrder(target))
+            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+
+        if (!target.hasContiguousRows() || overlaps(target, this)) {
+            //Gauss-Jordan richiede righe contigue e una destinazione che non sovrascriva elementi ancora da leggere:
+            //si calcola su una copia e si riportano i risultati
+            Matrix inverse = inverseInto(copy(this));
+            for (int i = 0; i < inverse.getNumRows(); i++) target.copyRowFrom(inverse.data, inverse.index(i, 0), i);
+            return target;
+        }
+
+        int n = getNumRows();
+        target.modified();
+        if (target != this)
+            for (int i = 0; i < n; i++) copyRowTo(i, target.data, target.index(i, 0));
+
+        double[] a = target.data;
+        int a0 = target.offset, lda = target.rowStride;
+        double norm = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++) norm = Math.max(norm, Math.abs(a[a0 + i * lda + j]));
+        double tolerance = n * Math.ulp(1.0) * norm;
+
+        int[] swaps = new int[n];
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double max = Math.abs(a[a0 + k * lda + k]);
+            for (int i = k + 1; i < n; i++) {
+                double v = Math.abs(a[a0 + i * lda + k]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            if (max <= tolerance)
+                throw new MatrixException("Illegal determinant: must be not equals to 0");
+
+            swaps[k] = p;
+            int rk = a0 + k * lda;
+            if (p != k) {
+                int rp = a0 + p * lda;
+                for (int j = 0; j < n; j++) {
+                    double tmp = a[rk + j];
+                    a[rk + j] = a[rp + j];
+                    a[rp + j] = tmp;
+                }
+            }
+
+            double inv = 1 / a[rk + k];
+            a[rk + k] = 1;
+            for (int j = 0; j < n; j++) a[rk + j] *= inv;
+
+            for (int i = 0; i < n; i++) {
+                if (i == k) continue;
+                int ri = a0 + i * lda;
+                double f = a[ri + k];
+                if (f == 0) continue;
+                a[ri + k] = 0;
+                for (int j = 0; j < n; j++) a[ri + j] -= f * a[rk + j];
+            }
+        }
+
+        //Gli scambi di riga su A corrispondono a scambi di colonna sull'inversa, applicati in ordine inverso
+        for (int k = n - 1; k >= 0; k--) {
+            int p = swaps[k];
+            if (p == k) continue;
+            for (int i = 0; i < n; i++) {
+                int ri = a0 + i * lda;
+                double tmp = a[ri + k];
+                a[ri + k] = a[ri + p];
+                a[ri + p] = tmp;
             }
         }
-        return new Matrix(matrix);
+        return target;
     }
 
     /**
@@ -540,23 +1467,44 @@ public class Matrix {
      * di una matrice. Un cofattore è identificato dalla formula -(1)^i+j * det(Bij),
      * ovvero dal determinante della sottomatrice Bij e dal simbolo '+' se la somma
      * degli indici i e j è pari, '-' invece se è dispari.
-     * Il calcolo dei complementi algebrici di una matrice serve per poter calcolare
-     * la matrice inversa di una matrice quadrata con determinante diverso da 0
+     * La matrice dei cofattori è la trasposta della matrice aggiunta, per cui viene ricavata
+     * da un'unica fattorizzazione LU invece che da n² determinanti
      * @param m Matrice di partenza
      * @return Matrice contenente i cofattori della matrice di partenza
      * @throws MatrixException Se la matrice non è quadrata
+     * @see #adjugate()
      */
     public Matrix cofactors(Matrix m) throws MatrixException {
-        if (!m.isSquare())
-            throw new MatrixException("Illegal matrix type: must be a square matrix");
+        return m.adjugate().transposed();
+    }
 
-        double[][] matrix = new double[m.getNumRows()][m.getNumColumns()];
-        for (int i = 0; i < m.getNumRows(); i++){
-            for (int j = 0; j < m.getNumColumns(); j++){
-                matrix[j][i] = Math.pow(-1, (i+1) + (j+1)) * m.determinant(m.submatrix(m, i, j));
-            }
-        }
-        return new Matrix(matrix);
+    /**
+     * Calcola la matrice aggiunta, trasposta della matrice dei cofattori, che soddisfa A * agg(A) = det(A) * I
+     * @return La matrice aggiunta
+     * @throws MatrixException Se la matrice non è quadrata
+     * @see #adjugate(ForkJoinPool)
+     */
+    public Matrix adjugate() throws MatrixException {
+        return adjugate(null);
+    }
+
+    /**
+     * Calcola la matrice aggiunta, trasposta della matrice dei cofattori, che soddisfa A * agg(A) = det(A) * I.
+     * Se la matrice non è singolare l'aggiunta è det(A) * A^-1, entrambi ricavati dalla stessa
+     * decomposizione LU, calcolata a blocchi in parallelo insieme alle colonne dell'inversa.
+     * Altrimenti viene calcolata con una fattorizzazione con pivoting completo, da cui si ricava
+     * l'aggiunta di rango 1 delle matrici di rango n-1; per rango inferiore l'aggiunta è nulla.
+     * Come il determinante, gli elementi dell'aggiunta di matrici grandi possono eccedere l'intervallo dei double
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} viene eseguito in modo seriale
+     * @return La matrice aggiunta
+     * @throws MatrixException Se la matrice non è quadrata
+     */
+    public Matrix adjugate(ForkJoinPool pool) throws MatrixException {
+        LUDecomposition decomposition = pool == null ? lu() : new LUDecomposition(this, pool);
+        if (decomposition.isSingular()) return LUDecomposition.singularAdjugate(this);
+        Matrix adjugate = decomposition.inverse(pool);
+        Kernels.affine(adjugate.data, 0, decomposition.determinant(), 0, adjugate.data, 0, adjugate.data.length);
+        return adjugate;
     }
 
     /**
@@ -570,15 +1518,151 @@ public class Matrix {
         if(this.getNumColumns() != other.getNumRows())
             throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + this.getNumColumns() + " != " + other.getNumRows());
 
-        double[][] matrix = new double[this.getNumRows()][other.getNumColumns()];
-        for (int i = 0; i < matrix.length; i++){
-            for (int j = 0; j < matrix[0].length; j++){
-                for (int k = 0; k < matrix.length; k++) {
-                    matrix[i][j] += this.at(i, k) * other.at(k, j);
-                }
+        return multiplyAdd(this, other, new Matrix(this.getNumRows(), other.getNumColumns()), 1, 0);
+    }
+
+    /**
+     * Prodotto righe per colonne eseguito in parallelo sul pool comune,
+     * le righe del risultato vengono suddivise in blocchi calcolati su thread diversi
+     * @param other Matrice NxK da moltipliacre a questa
+     * @return La matrice risultante dal prodotto righe per colonne
+     * @see #multiply(Matrix, ForkJoinPool)
+     */
+    public Matrix parallelMultiply(Matrix other){
+        return multiply(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Prodotto righe per colonne eseguito in parallelo su un pool specifico.
+     * Le righe del risultato vengono suddivise in blocchi calcolati su thread diversi;
+     * sotto una soglia di dimensione il prodotto viene calcolato in modo seriale
+     * @param other Matrice NxK da moltipliacre a questa
+     * @param pool Pool su cui eseguire il prodotto
+     * @return La matrice risultante dal prodotto righe per colonne
+     */
+    public Matrix multiply(Matrix other, ForkJoinPool pool){
+        if(this.getNumColumns() != other.getNumRows())
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + this.getNumColumns() + " != " + other.getNumRows());
+
+        return multiplyAdd(this, other, new Matrix(this.getNumRows(), other.getNumColumns()), 1, 0, pool);
+    }
+
+    /**
+     * Prodotto righe per colonne con un algoritmo specifico, indipendentemente da quello impostato
+     * con {@link #setMultiplicationStrategy(MultiplicationStrategy)}
+     * @param other Matrice NxK da moltipliacre a questa
+     * @param strategy Algoritmo del prodotto
+     * @param pool Pool su cui eseguire il prodotto, se {@code null} il prodotto viene calcolato in modo seriale
+     * @return La matrice risultante dal prodotto righe per colonne
+     */
+    public Matrix multiply(Matrix other, MultiplicationStrategy strategy, ForkJoinPool pool){
+        if(this.getNumColumns() != other.getNumRows())
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + this.getNumColumns() + " != " + other.getNumRows());
+
+        return multiplyAdd(this, other, new Matrix(this.getNumRows(), other.getNumColumns()), 1, 0, pool, strategy);
+    }
+
+    /**
+     * Imposta l'algoritmo utilizzato dai prodotti tra matrici dense che non ne indicano uno,
+     * compresi quelli delle espressioni differite; l'impostazione vale per tutti i thread
+     * @param strategy Algoritmo del prodotto
+     */
+    public static void setMultiplicationStrategy(MultiplicationStrategy strategy){
+        multiplicationStrategy = Objects.requireNonNull(strategy);
+    }
+
+    /**
+     * Ritorna l'algoritmo utilizzato dai prodotti tra matrici dense che non ne indicano uno
+     * @return L'algoritmo del prodotto
+     */
+    public static MultiplicationStrategy getMultiplicationStrategy(){
+        return multiplicationStrategy;
+    }
+
+    /**
+     * Prodotto generale tra matrici (GEMM) : calcola C = alpha * A * B + beta * C
+     * scrivendo il risultato direttamente in C, senza allocare matrici temporanee.
+     * Il prodotto viene eseguito a blocchi dimensionati sulle cache, accedendo alle righe
+     * di A, B e C in modo contiguo
+     * @param a Matrice A di dimensione MxN
+     * @param b Matrice B di dimensione NxK
+     * @param c Matrice C di dimensione MxK, che non condivide elementi con A e B, che riceve il risultato
+     * @param alpha Coefficiente del prodotto A * B
+     * @param beta Coefficiente di C, se pari a 0 il contenuto iniziale di C viene ignorato
+     * @return La matrice C
+     */
+    public static Matrix multiplyAdd(Matrix a, Matrix b, Matrix c, double alpha, double beta){
+        return multiplyAdd(a, b, c, alpha, beta, null);
+    }
+
+    /**
+     * Prodotto generale tra matrici (GEMM) eseguito in parallelo : calcola C = alpha * A * B + beta * C
+     * suddividendo le righe di C in blocchi calcolati sul pool indicato.
+     * Sotto una soglia di dimensione il prodotto viene calcolato in modo seriale
+     * @param a Matrice A di dimensione MxN
+     * @param b Matrice B di dimensione NxK
+     * @param c Matrice C di dimensione MxK, che non condivide elementi con A e B, che riceve il risultato
+     * @param alpha Coefficiente del prodotto A * B
+     * @param beta Coefficiente di C, se pari a 0 il contenuto iniziale di C viene ignorato
+     * @param pool Pool su cui eseguire il prodotto, se {@code null} il prodotto viene calcolato in modo seriale
+     * @return La matrice C
+     */
+    public static Matrix multiplyAdd(Matrix a, Matrix b, Matrix c, double alpha, double beta, ForkJoinPool pool){
+        return multiplyAdd(a, b, c, alpha, beta, pool, multiplicationStrategy);
+    }
+
+    /**
+     * Prodotto generale tra matrici (GEMM) con un algoritmo specifico : calcola C = alpha * A * B + beta * C
+     * @param a Matrice A di dimensione MxN
+     * @param b Matrice B di dimensione NxK
+     * @param c Matrice C di dimensione MxK, che non condivide elementi con A e B, che riceve il risultato
+     * @param alpha Coefficiente del prodotto A * B
+     * @param beta Coefficiente di C, se pari a 0 il contenuto iniziale di C viene ignorato
+     * @param pool Pool su cui eseguire il prodotto, se {@code null} il prodotto viene calcolato in modo seriale
+     * @param strategy Algoritmo del prodotto
+     * @return La matrice C
+     */
+    public static Matrix multiplyAdd(Matrix a, Matrix b, Matrix c, double alpha, double beta, ForkJoinPool pool,
+                                     MultiplicationStrategy strategy){
+        if (a.getNumColumns() != b.getNumRows())
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + a.getNumColumns() + " != " + b.getNumRows());
+        if (c.getNumRows() != a.getNumRows() || c.getNumColumns() != b.getNumColumns())
+            throw new RuntimeException("Illegal matrices length: the result must be " + a.getNumRows() + "x" + b.getNumColumns());
+        if (shareElements(c, a) || shareElements(c, b))
+            throw new RuntimeException("Illegal product destination: the result matrix must not share elements with an operand");
+
+        if (a.isOffHeap() || c.isOffHeap()) {
+            //Operandi fuori dallo heap: A e C vengono copiati sullo heap a blocchi di righe
+            b = b.withContiguousRows();
+            int m = c.getNumRows(), step = Math.max(1, STAGING_ELEMENTS / Math.max(1, Math.max(a.getNumColumns(), c.getNumColumns())));
+            for (int r = 0; r < m; r += step) {
+                int h = Math.min(step, m - r);
+                Matrix block = c.block(r, 0, h, c.getNumColumns());
+                Matrix result = multiplyAdd(a.block(r, 0, h, a.getNumColumns()).withContiguousRows(), b,
+                        beta == 0 ? new Matrix(h, c.getNumColumns()) : block.materialize(), alpha, beta, pool, strategy);
+                for (int i = 0; i < h; i++) block.copyRowFrom(result.data, result.index(i, 0), i);
             }
+            return c;
         }
-        return new Matrix(matrix);
+        if (!c.hasContiguousRows()) {
+            //Destinazione con righe non contigue (vista trasposta): si calcola su una copia
+            Matrix result = multiplyAdd(a, b, c.materialize(), alpha, beta, pool, strategy);
+            for (int i = 0; i < result.getNumRows(); i++) c.copyRowFrom(result.data, result.index(i, 0), i);
+            return c;
+        }
+        c.modified();
+        a = a.withContiguousRows();
+        b = b.withContiguousRows();
+        if (strategy == MultiplicationStrategy.STRASSEN_WINOGRAD)
+            Strassen.multiplyAdd(a.data, a.offset, a.rowStride, b.data, b.offset, b.rowStride, c.data, c.offset, c.rowStride,
+                    c.getNumRows(), c.getNumColumns(), a.getNumColumns(), alpha, beta, pool);
+        else if (pool == null)
+            Gemm.multiplyAdd(a.data, a.offset, a.rowStride, b.data, b.offset, b.rowStride, c.data, c.offset, c.rowStride,
+                    c.getNumRows(), c.getNumColumns(), a.getNumColumns(), alpha, beta);
+        else
+            Gemm.multiplyAdd(a.data, a.offset, a.rowStride, b.data, b.offset, b.rowStride, c.data, c.offset, c.rowStride,
+                    c.getNumRows(), c.getNumColumns(), a.getNumColumns(), alpha, beta, pool);
+        return c;
     }
 
     /**
@@ -610,7 +1694,7 @@ public class Matrix {
         if (!isSquare()) return false;
         for (int i = 0; i < getNumRows(); i++)
             for (int j = 0; j < i; j++)
-                if (at(i, j) != 0)
+                if (unsafeGet(i, j) != 0)
                     return false;
         return true;
     }
@@ -625,7 +1709,7 @@ public class Matrix {
         if (!isSquare()) return false;
         for (int i = 0; i < getNumRows(); i++)
             for (int j = i + 1; j < getNumColumns(); j++)
-                if (at(i, j) != 0)
+                if (unsafeGet(i, j) != 0)
                     return false;
         return true;
     }
@@ -641,8 +1725,7 @@ public class Matrix {
         if (!isSquare()) return false;
         for (int i = 0; i < getNumRows(); i++)
             for (int j = 0; j < getNumColumns(); j++)
-                if (i == j && at(i, j) == 0) return false;
-                else if (i != j && at(i, j) != 0) return false;
+                if ((unsafeGet(i, j) == 0) == (i == j)) return false;
 
         return true;
     }
@@ -653,9 +1736,9 @@ public class Matrix {
      *          Altrimenti {@code false}.
      */
     public boolean isNull(){
-        for (double[] row: matrix)
-            for (double element: row)
-                if (element != 0) return false;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++)
+                if (load(index(i, j)) != 0) return false;
         return true;
     }
 
@@ -670,8 +1753,7 @@ public class Matrix {
         if (!isSquare()) return false;
         for (int i = 0; i < getNumRows(); i++)
             for (int j = 0; j < getNumColumns(); j++)
-                if (i != j && at(i, j) != 0) return false;
-                else if (i == j && at(i,j) != 1) return false;
+                if (unsafeGet(i, j) != (i == j ? 1 : 0)) return false;
 
         return true;
     }
@@ -697,9 +1779,9 @@ public class Matrix {
     private boolean zerosUnderPivots(){
         for (int i = 0; i < getNumRows(); i++){
             for (int j = 0; j < getNumColumns(); j++){
-                if (at(i,j) != 0){
+                if (unsafeGet(i,j) != 0){
                     for (int k = i + 1; k < getNumRows(); k++)
-                        if (at(k, j) != 0)
+                        if (unsafeGet(k, j) != 0)
                             return false;
                     break;
                 }
@@ -713,41 +1795,42 @@ public class Matrix {
      * @return Questa matrice ripopolata in modo randomico
      */
     public Matrix random(){
-        matrix = Matrix.random(getNumRows(), getNumColumns());
+        Random rand = ThreadLocalRandom.current();
+        double[] row = new double[columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) row[j] = rand.nextInt(MAX_RAND_VALUE - MIN_RAND_VALUE) + MIN_RAND_VALUE;
+            copyRowFrom(row, 0, i);
+        }
         return this;
     }
 
     /**
      * Ritorna una stringa che rappresenta graficamente in una signola linea la matrice, contiene la rappresentazione String di ogni elemento
+     * arrotondato a due cifre decimali
      * @return Rappresentazione String della matrice
+     * @see MatrixFormat#LINE
      */
     public String toLineString(){
-        String s = "";
-        for (int i = 0; i < getNumRows(); i++){
-            s += "{";
-            for (int j = 0; j < getNumColumns(); j++) {
-                s += Math.ceil(at(i,j)*100)/100 + "";
-                if (j != getNumColumns() - 1) s += ",";
-            }
-            s += "}";
-            if (i != getNumRows() - 1) s += ",";
-        }
-        return s;
+        return MatrixFormat.LINE.withPrecision(2).format(this);
     }
 
     /**
      * Ritorna una stringa che rappresenta graficamente in forma tabellare la matrice, contiene la rappresentazione String di ogni elemento
+     * arrotondato a due cifre decimali
      * @return Rappresentazione String della matrice
      */
     public String toString(){
-        String s = "\n";
-        for (double[] array: matrix){
-            for (double x: array) {
-                s += Math.ceil(x*100)/100 + "  ";
+        StringBuilder s = new StringBuilder("\n");
+        double[] row = new double[getNumColumns()];
+        for (int i = 0; i < getNumRows(); i++){
+            copyRowTo(i, row, 0);
+            for (double x: row) {
+                MatrixFormat.append(s, x, 2);
+                s.append("  ");
             }
-            s += "\n";
+            s.append('\n');
         }
-        return s;
+        return s.toString();
     }
 
 
@@ -756,9 +1839,10 @@ public class Matrix {
      * @param N Numero di righe
      * @param M Numero di colonne
      * @return Matrice di double generata randomicamente
+     * @see MatrixRandom
      */
     public static double[][] random(int N, int M){
-        Random rand = new Random();
+        Random rand = ThreadLocalRandom.current();
         double[][] matrix = new double[N][M];
         for (int i = 0; i < N; i++)
             for (int j = 0; j < M; j++)
@@ -771,9 +1855,10 @@ public class Matrix {
      * @param N Numero di righe
      * @param M Numero di colonne
      * @return Oggetto Matrix generato in modo randomico
+     * @see MatrixRandom
      */
     public static Matrix randMatrix(int N, int M){
-        return new Matrix(random(N, M));
+        return new MatrixRandom().integers(N, M, MIN_RAND_VALUE, MAX_RAND_VALUE);
     }
 
     /**
@@ -782,15 +1867,10 @@ public class Matrix {
      * @return Matrice corrispondente alla conversione del vettore
      */
     public static Matrix toMatrix(double[] array){
-        int n = (int) Math.sqrt(array.length), k = 0;
-        double[][] matrix = new double[n][n];
-        for (int i = 0; i < n; i++){
-            for (int j = 0; j < n; j++) {
-                matrix[i][j] = array[k];
-                k++;
-            }
-        }
-        return new Matrix(matrix);
+        int n = (int) Math.sqrt(array.length);
+        Matrix m = new Matrix(n, n);
+        System.arraycopy(array, 0, m.data, 0, n * n);
+        return m;
     }
 
     /**
@@ -801,7 +1881,7 @@ public class Matrix {
      */
     public static double[] multiply(double[] row, double c){
         double[] array = new double[row.length];
-        for (int i = 0; i < row.length; i++) array[i] = row[i] * c;
+        Kernels.affine(row, 0, c, 0, array, 0, row.length);
         return array;
     }
 
@@ -815,7 +1895,7 @@ public class Matrix {
         if (elements1.length != elements2.length)
             throw new RuntimeException("Illegal array length: the two lengths must be equals");
         double[] array = new double[elements1.length];
-        for (int i = 0; i < array.length; i++) array[i] = elements1[i] - elements2[i];
+        Kernels.combine(elements1, 0, -1, elements2, 0, array, 0, array.length);
         return array;
     }
 
@@ -827,9 +1907,18 @@ public class Matrix {
      * @return La matrice con le righe scambiate
      */
     public static Matrix swap(Matrix m, int a, int b){
-        double[] tmp = m.getRow(a);
-        m.setRow(m.getRow(b), a);
-        m.setRow(tmp, b);
+        if (m.outOfRange(a, m.getNumRows()))
+            throw new RuntimeException("Illegal row index: " + a + " out of bounds 0 - " + m.getNumRows());
+        if (m.outOfRange(b, m.getNumRows()))
+            throw new RuntimeException("Illegal row index: " + b + " out of bounds 0 - " + m.getNumRows());
+        if (a == b) return m;
+        m.modified();
+        for (int j = 0; j < m.getNumColumns(); j++) {
+            int ra = m.index(a, j), rb = m.index(b, j);
+            double tmp = m.load(ra);
+            m.store(ra, m.load(rb));
+            m.store(rb, tmp);
+        }
         return m;
     }
 }
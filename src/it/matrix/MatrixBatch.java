@@ -0,0 +1,388 @@
+package it.matrix;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Insieme di matrici quadrate di piccolo ordine (2, 3 o 4) della stessa dimensione,
+ * memorizzate in un unico vettore per elemento (structure of arrays): l'elemento (i,j)
+ * della matrice b si trova in posizione (i * order + j) * count + b.
+ * Così gli elementi omologhi di matrici consecutive sono contigui e i kernel, scritti in forma
+ * esplicita per ogni ordine, elaborano l'intero insieme con cicli vettorizzabili,
+ * senza creare un oggetto per ogni matrice e senza controlli per elemento.
+ * Ogni operazione può essere eseguita in parallelo su un {@link ForkJoinPool}, suddividendo l'insieme in blocchi.
+ * Le matrici singolari non sollevano eccezioni: l'inversa e la soluzione di un sistema
+ * contengono elementi non finiti, riconoscibili dal determinante nullo
+ * @author Erik Gurzau
+ */
+public final class MatrixBatch {
+    /**
+     * Numero minimo di matrici assegnate ad ogni task parallelo
+     */
+    private static final int GRAIN = 4096;
+    /**
+     * Numero di matrici elaborate per blocco nel prodotto, in modo che le colonne
+     * di A, B e C interessate restino in L1
+     */
+    private static final int TILE = 256;
+
+    private final int order;
+    private final int count;
+    /**
+     * Elementi delle matrici memorizzati per elemento: (i,j) della matrice b in posizione (i * order + j) * count + b
+     */
+    private final double[] data;
+
+    /**
+     * Costruttore di un insieme di matrici nulle
+     * @param order Ordine delle matrici, 2, 3 oppure 4
+     * @param count Numero di matrici, con al più {@link Integer#MAX_VALUE} elementi in totale
+     */
+    public MatrixBatch(int order, int count) {
+        checkOrder(order);
+        if (count < 0)
+            throw new RuntimeException("Illegal batch size: " + count);
+        if ((long) order * order * count > Integer.MAX_VALUE)
+            throw new RuntimeException("Illegal batch size: " + count + " matrices of order " + order
+                    + " exceed " + Integer.MAX_VALUE + " elements");
+        this.order = order;
+        this.count = count;
+        this.data = new double[order * order * count];
+    }
+
+    /**
+     * Costruttore che utilizza direttamente un vettore di elementi memorizzati per elemento,
+     * senza copiarlo: le modifiche al vettore sono visibili nell'insieme e viceversa
+     * @param order Ordine delle matrici, 2, 3 oppure 4
+     * @param elements Elementi memorizzati per elemento, la lunghezza deve essere multipla di order²
+     */
+    public MatrixBatch(int order, double[] elements) {
+        checkOrder(order);
+        if (elements.length % (order * order) != 0)
+            throw new RuntimeException("Illegal array length: " + elements.length + " is not a multiple of " + order * order);
+        this.order = order;
+        this.count = elements.length / (order * order);
+        this.data = elements;
+    }
+
+    /**
+     * Crea un insieme copiando una sequenza di matrici dello stesso ordine
+     * @param matrices Matrici da copiare
+     * @return L'insieme delle matrici
+     */
+    public static MatrixBatch of(Matrix... matrices) {
+        if (matrices.length == 0)
+            throw new RuntimeException("Illegal batch size: at least one matrix is required");
+        MatrixBatch batch = new MatrixBatch(matrices[0].getNumRows(), matrices.length);
+        for (int b = 0; b < matrices.length; b++) batch.setMatrix(matrices[b], b);
+        return batch;
+    }
+
+    private static void checkOrder(int order) {
+        if (order < 2 || order > 4)
+            throw new RuntimeException("Illegal matrix order: " + order + " out of bounds 2 - 4");
+    }
+
+    /**
+     * Ritorna l'ordine delle matrici
+     * @return Il numero di righe e di colonne di ogni matrice
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Ritorna il numero di matrici dell'insieme
+     * @return Il numero di matrici
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Ritorna il vettore degli elementi, senza copiarlo
+     * @return Gli elementi memorizzati per elemento
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    private int index(int matrix, int row, int column) {
+        if (matrix < 0 || matrix >= count)
+            throw new RuntimeException("Illegal matrix index: " + matrix + " out of bounds 0 - " + count);
+        if (row < 0 || row >= order)
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + order);
+        if (column < 0 || column >= order)
+            throw new RuntimeException("Illegal column index: " + column + " out of bounds 0 - " + order);
+        return (row * order + column) * count + matrix;
+    }
+
+    /**
+     * Ritorna un elemento di una matrice dell'insieme
+     * @param matrix Indice della matrice
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    public double get(int matrix, int row, int column) {
+        return data[index(matrix, row, column)];
+    }
+
+    /**
+     * Rimpiazza un elemento di una matrice dell'insieme
+     * @param value Elemento da inserire
+     * @param matrix Indice della matrice
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     */
+    public void set(double value, int matrix, int row, int column) {
+        data[index(matrix, row, column)] = value;
+    }
+
+    /**
+     * Ritorna una copia di una matrice dell'insieme
+     * @param matrix Indice della matrice
+     * @return La matrice copiata
+     */
+    public Matrix getMatrix(int matrix) {
+        index(matrix, 0, 0);
+        double[] elements = new double[order * order];
+        for (int e = 0; e < elements.length; e++) elements[e] = data[e * count + matrix];
+        return new Matrix(elements, order);
+    }
+
+    /**
+     * Copia una matrice nell'insieme
+     * @param m Matrice da copiare, dello stesso ordine dell'insieme
+     * @param matrix Indice della matrice da rimpiazzare
+     */
+    public void setMatrix(Matrix m, int matrix) {
+        if (m.getNumRows() != order || m.getNumColumns() != order)
+            throw new RuntimeException("Illegal matrix size: " + m.getNumRows() + "x" + m.getNumColumns() + " must be " + order + "x" + order);
+        index(matrix, 0, 0);
+        double[] row = new double[order];
+        for (int i = 0; i < order; i++) {
+            m.copyRowTo(i, row, 0);
+            for (int j = 0; j < order; j++) data[(i * order + j) * count + matrix] = row[j];
+        }
+    }
+
+    /**
+     * Esegue un kernel sull'intero insieme, in parallelo a blocchi di almeno {@value #GRAIN} matrici
+     * @param pool Pool su cui eseguire i task, se {@code null} il kernel viene eseguito in modo seriale
+     */
+    private void run(ForkJoinPool pool, Gemm.RowRange range) {
+        if (pool == null || count < 2 * GRAIN || pool.getParallelism() < 2) range.compute(0, count);
+        else pool.invoke(new Gemm.RowBlockTask(0, count, Math.max(GRAIN, count / (4 * pool.getParallelism())), range));
+    }
+
+    /**
+     * Calcola il determinante di ogni matrice
+     * @return I determinanti, nell'ordine delle matrici
+     */
+    public double[] determinants() {
+        return determinants(null);
+    }
+
+    /**
+     * Calcola il determinante di ogni matrice
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} il calcolo è seriale
+     * @return I determinanti, nell'ordine delle matrici
+     */
+    public double[] determinants(ForkJoinPool pool) {
+        double[] dest = new double[count];
+        run(pool, (start, end) -> {
+            if (order == 2) determinants2(data, count, start, end, dest);
+            else if (order == 3) determinants3(data, count, start, end, dest);
+            else determinants4(data, count, start, end, dest);
+        });
+        return dest;
+    }
+
+    private static void determinants2(double[] a, int n, int start, int end, double[] dest) {
+        for (int b = start; b < end; b++)
+            dest[b] = a[b] * a[3 * n + b] - a[2 * n + b] * a[n + b];
+    }
+
+    //metodo di Sarrus
+    private static void determinants3(double[] a, int n, int start, int end, double[] dest) {
+        for (int b = start; b < end; b++) {
+            double a00 = a[b], a01 = a[n + b], a02 = a[2 * n + b];
+            double a10 = a[3 * n + b], a11 = a[4 * n + b], a12 = a[5 * n + b];
+            double a20 = a[6 * n + b], a21 = a[7 * n + b], a22 = a[8 * n + b];
+            dest[b] = a00 * (a11 * a22 - a12 * a21) - a01 * (a10 * a22 - a12 * a20) + a02 * (a10 * a21 - a11 * a20);
+        }
+    }
+
+    //sviluppo di Laplace per minori 2x2 delle prime due e delle ultime due righe
+    private static void determinants4(double[] a, int n, int start, int end, double[] dest) {
+        for (int b = start; b < end; b++) {
+            double a00 = a[b], a01 = a[n + b], a02 = a[2 * n + b], a03 = a[3 * n + b];
+            double a10 = a[4 * n + b], a11 = a[5 * n + b], a12 = a[6 * n + b], a13 = a[7 * n + b];
+            double a20 = a[8 * n + b], a21 = a[9 * n + b], a22 = a[10 * n + b], a23 = a[11 * n + b];
+            double a30 = a[12 * n + b], a31 = a[13 * n + b], a32 = a[14 * n + b], a33 = a[15 * n + b];
+            dest[b] = (a00 * a11 - a10 * a01) * (a22 * a33 - a32 * a23) - (a00 * a12 - a10 * a02) * (a21 * a33 - a31 * a23)
+                    + (a00 * a13 - a10 * a03) * (a21 * a32 - a31 * a22) + (a01 * a12 - a11 * a02) * (a20 * a33 - a30 * a23)
+                    - (a01 * a13 - a11 * a03) * (a20 * a32 - a30 * a22) + (a02 * a13 - a12 * a03) * (a20 * a31 - a30 * a21);
+        }
+    }
+
+    /**
+     * Calcola l'inversa di ogni matrice come aggiunta divisa per il determinante
+     * @return L'insieme delle inverse
+     */
+    public MatrixBatch inverse() {
+        return inverse(null);
+    }
+
+    /**
+     * Calcola l'inversa di ogni matrice come aggiunta divisa per il determinante
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} il calcolo è seriale
+     * @return L'insieme delle inverse
+     */
+    public MatrixBatch inverse(ForkJoinPool pool) {
+        MatrixBatch result = new MatrixBatch(order, count);
+        double[] dest = result.data;
+        run(pool, (start, end) -> {
+            double[] adj = new double[order * order];
+            for (int b = start; b < end; b++) {
+                double inv = 1 / adjugate(data, count, b, adj);
+                for (int e = 0; e < adj.length; e++) dest[e * count + b] = adj[e] * inv;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Risolve il sistema A x = y per ogni matrice A dell'insieme, con la regola di Cramer
+     * espressa come x = agg(A) y / det(A)
+     * @param y Termini noti memorizzati per elemento: la componente i del sistema b in posizione i * count + b
+     * @return Le soluzioni, memorizzate come i termini noti
+     */
+    public double[] solve(double[] y) {
+        return solve(y, null);
+    }
+
+    /**
+     * Risolve il sistema A x = y per ogni matrice A dell'insieme
+     * @param y Termini noti memorizzati per elemento: la componente i del sistema b in posizione i * count + b
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} il calcolo è seriale
+     * @return Le soluzioni, memorizzate come i termini noti
+     * @see #solve(double[])
+     */
+    public double[] solve(double[] y, ForkJoinPool pool) {
+        if (y.length != order * count)
+            throw new RuntimeException("Illegal array length: " + y.length + " must be " + order * count);
+        double[] x = new double[y.length];
+        run(pool, (start, end) -> {
+            double[] adj = new double[order * order];
+            for (int b = start; b < end; b++) {
+                double inv = 1 / adjugate(data, count, b, adj);
+                for (int i = 0; i < order; i++) {
+                    double s = 0;
+                    for (int j = 0; j < order; j++) s += adj[i * order + j] * y[j * count + b];
+                    x[i * count + b] = s * inv;
+                }
+            }
+        });
+        return x;
+    }
+
+    /**
+     * Calcola la matrice aggiunta di una matrice dell'insieme
+     * @param a Elementi dell'insieme
+     * @param n Numero di matrici
+     * @param b Indice della matrice
+     * @param adj Destinazione dell'aggiunta, memorizzata per righe
+     * @return Il determinante della matrice
+     */
+    private static double adjugate(double[] a, int n, int b, double[] adj) {
+        if (adj.length == 4) {
+            double a00 = a[b], a01 = a[n + b], a10 = a[2 * n + b], a11 = a[3 * n + b];
+            adj[0] = a11;
+            adj[1] = -a01;
+            adj[2] = -a10;
+            adj[3] = a00;
+            return a00 * a11 - a01 * a10;
+        }
+        if (adj.length == 9) {
+            double a00 = a[b], a01 = a[n + b], a02 = a[2 * n + b];
+            double a10 = a[3 * n + b], a11 = a[4 * n + b], a12 = a[5 * n + b];
+            double a20 = a[6 * n + b], a21 = a[7 * n + b], a22 = a[8 * n + b];
+            adj[0] = a11 * a22 - a12 * a21;
+            adj[1] = a02 * a21 - a01 * a22;
+            adj[2] = a01 * a12 - a02 * a11;
+            adj[3] = a12 * a20 - a10 * a22;
+            adj[4] = a00 * a22 - a02 * a20;
+            adj[5] = a02 * a10 - a00 * a12;
+            adj[6] = a10 * a21 - a11 * a20;
+            adj[7] = a01 * a20 - a00 * a21;
+            adj[8] = a00 * a11 - a01 * a10;
+            return a00 * adj[0] + a01 * adj[3] + a02 * adj[6];
+        }
+        double a00 = a[b], a01 = a[n + b], a02 = a[2 * n + b], a03 = a[3 * n + b];
+        double a10 = a[4 * n + b], a11 = a[5 * n + b], a12 = a[6 * n + b], a13 = a[7 * n + b];
+        double a20 = a[8 * n + b], a21 = a[9 * n + b], a22 = a[10 * n + b], a23 = a[11 * n + b];
+        double a30 = a[12 * n + b], a31 = a[13 * n + b], a32 = a[14 * n + b], a33 = a[15 * n + b];
+        //minori 2x2 delle prime due righe (s) e delle ultime due righe (c)
+        double s0 = a00 * a11 - a10 * a01, s1 = a00 * a12 - a10 * a02, s2 = a00 * a13 - a10 * a03;
+        double s3 = a01 * a12 - a11 * a02, s4 = a01 * a13 - a11 * a03, s5 = a02 * a13 - a12 * a03;
+        double c5 = a22 * a33 - a32 * a23, c4 = a21 * a33 - a31 * a23, c3 = a21 * a32 - a31 * a22;
+        double c2 = a20 * a33 - a30 * a23, c1 = a20 * a32 - a30 * a22, c0 = a20 * a31 - a30 * a21;
+        adj[0] = a11 * c5 - a12 * c4 + a13 * c3;
+        adj[1] = -a01 * c5 + a02 * c4 - a03 * c3;
+        adj[2] = a31 * s5 - a32 * s4 + a33 * s3;
+        adj[3] = -a21 * s5 + a22 * s4 - a23 * s3;
+        adj[4] = -a10 * c5 + a12 * c2 - a13 * c1;
+        adj[5] = a00 * c5 - a02 * c2 + a03 * c1;
+        adj[6] = -a30 * s5 + a32 * s2 - a33 * s1;
+        adj[7] = a20 * s5 - a22 * s2 + a23 * s1;
+        adj[8] = a10 * c4 - a11 * c2 + a13 * c0;
+        adj[9] = -a00 * c4 + a01 * c2 - a03 * c0;
+        adj[10] = a30 * s4 - a31 * s2 + a33 * s0;
+        adj[11] = -a20 * s4 + a21 * s2 - a23 * s0;
+        adj[12] = -a10 * c3 + a11 * c1 - a12 * c0;
+        adj[13] = a00 * c3 - a01 * c1 + a02 * c0;
+        adj[14] = -a30 * s3 + a31 * s1 - a32 * s0;
+        adj[15] = a20 * s3 - a21 * s1 + a22 * s0;
+        return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+    }
+
+    /**
+     * Prodotto righe per colonne tra le matrici omologhe di due insiemi
+     * @param other Insieme con lo stesso ordine e lo stesso numero di matrici
+     * @return L'insieme dei prodotti
+     */
+    public MatrixBatch multiply(MatrixBatch other) {
+        return multiply(other, null);
+    }
+
+    /**
+     * Prodotto righe per colonne tra le matrici omologhe di due insiemi.
+     * Il ciclo interno scorre le matrici, per cui ogni istruzione SIMD calcola
+     * lo stesso elemento di più prodotti
+     * @param other Insieme con lo stesso ordine e lo stesso numero di matrici
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} il calcolo è seriale
+     * @return L'insieme dei prodotti
+     */
+    public MatrixBatch multiply(MatrixBatch other, ForkJoinPool pool) {
+        if (order != other.order || count != other.count)
+            throw new RuntimeException("Illegal batches: " + count + " matrices " + order + "x" + order + " and "
+                    + other.count + " matrices " + other.order + "x" + other.order);
+        MatrixBatch result = new MatrixBatch(order, count);
+        double[] a = data, b = other.data, c = result.data;
+        int n = count;
+        run(pool, (start, end) -> {
+            for (int t = start; t < end; t += TILE) {
+                int tileEnd = Math.min(end, t + TILE);
+                for (int i = 0; i < order; i++)
+                    for (int j = 0; j < order; j++) {
+                        int ci = (i * order + j) * n;
+                        for (int l = 0; l < order; l++) {
+                            int ai = (i * order + l) * n, bi = (l * order + j) * n;
+                            for (int k = t; k < tileEnd; k++) c[ci + k] += a[ai + k] * b[bi + k];
+                        }
+                    }
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,250 @@
+package it.matrix;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File binario contenente una matrice, mappato in memoria senza copiarne gli elementi.
+ * Il file è composto da un'intestazione di {@value #HEADER_SIZE} byte seguita dagli elementi
+ * come double little-endian, memorizzati per righe o per colonne:
+ * <pre>
+ * offset  byte  campo
+ *      0     4  magic "MTRX"
+ *      4     2  versione del formato
+ *      6     1  tipo degli elementi (1 = float64)
+ *      7     1  disposizione (0 = per righe, 1 = per colonne)
+ *      8     8  numero di righe
+ *     16     8  numero di colonne
+ *     24     8  riservato, 0
+ * </pre>
+ * L'apertura mappa il file con {@link FileChannel#map} e ne espone gli elementi come una {@link Matrix}
+ * in memoria fuori dallo heap: il costo non dipende dalla dimensione della matrice, poiché le pagine
+ * vengono lette dal sistema operativo solo al primo accesso. La mappatura viene rilasciata con {@link #close()}
+ * @author Erik Gurzau
+ */
+public final class MatrixFile implements AutoCloseable {
+    /**
+     * Disposizione degli elementi nel file
+     */
+    public enum Layout {
+        /**
+         * Elementi memorizzati per righe
+         */
+        ROW_MAJOR,
+        /**
+         * Elementi memorizzati per colonne, esposti come vista trasposta
+         */
+        COLUMN_MAJOR
+    }
+
+    /**
+     * Dimensione in byte dell'intestazione, multipla di 8 per allineare gli elementi
+     */
+    public static final int HEADER_SIZE = 32;
+    /**
+     * Versione del formato scritta dalla libreria
+     */
+    public static final short VERSION = 1;
+    private static final int MAGIC = 0x5852544D; //"MTRX" letto come intero little-endian
+    private static final byte FLOAT64 = 1;
+
+    private final OffHeapStorage storage;
+    private final Matrix matrix;
+    private final Layout layout;
+
+    /**
+     * Costruttore di un file mappato
+     * @param storage Memoria mappata sugli elementi del file
+     * @param matrix Matrice che espone gli elementi
+     * @param layout Disposizione degli elementi nel file
+     */
+    private MatrixFile(OffHeapStorage storage, Matrix matrix, Layout layout) {
+        this.storage = storage;
+        this.matrix = matrix;
+        this.layout = layout;
+    }
+
+    /**
+     * Apre e mappa in sola lettura un file esistente
+     * @param path Percorso del file
+     * @return Il file mappato
+     * @throws IOException Se il file non può essere letto oppure non è nel formato atteso
+     */
+    public static MatrixFile open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Apre e mappa un file esistente; se è scrivibile, le modifiche alla matrice vengono
+     * riportate nel file
+     * @param path Percorso del file
+     * @param writable {@code true} per mappare il file in lettura e scrittura;
+     *                 Altrimenti {@code false}.
+     * @return Il file mappato
+     * @throws IOException Se il file non può essere aperto oppure non è nel formato atteso
+     */
+    public static MatrixFile open(Path path, boolean writable) throws IOException {
+        try (FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining())
+                if (channel.read(header, header.position()) < 0)
+                    throw new IOException("Illegal matrix file: truncated header in " + path);
+            header.flip();
+
+            if (header.getInt() != MAGIC)
+                throw new IOException("Illegal matrix file: " + path + " is not a matrix file");
+            short version = header.getShort();
+            if (version != VERSION)
+                throw new IOException("Illegal matrix file version: " + version);
+            byte dtype = header.get();
+            if (dtype != FLOAT64)
+                throw new IOException("Illegal matrix file element type: " + dtype);
+            byte layout = header.get();
+            if (layout != 0 && layout != 1)
+                throw new IOException("Illegal matrix file layout: " + layout);
+            long rows = header.getLong(), columns = header.getLong();
+            //ogni dimensione viene controllata prima del prodotto, che altrimenti potrebbe superare il long
+            if (rows < 0 || columns < 0 || rows > Integer.MAX_VALUE || columns > Integer.MAX_VALUE
+                    || rows * columns > Integer.MAX_VALUE)
+                throw new IOException("Illegal matrix size: " + rows + "x" + columns);
+            if (channel.size() < HEADER_SIZE + rows * columns * Double.BYTES)
+                throw new IOException("Illegal matrix file: " + path + " is shorter than a " + rows + "x" + columns + " matrix");
+
+            return map(channel, writable, (int) rows, (int) columns, Layout.values()[layout]);
+        }
+    }
+
+    /**
+     * Crea un nuovo file con una matrice nulla e lo mappa in lettura e scrittura,
+     * sostituendo un eventuale file esistente
+     * @param path Percorso del file
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param layout Disposizione degli elementi
+     * @return Il file mappato
+     * @throws IOException Se il file non può essere creato
+     */
+    public static MatrixFile create(Path path, int rows, int columns, Layout layout) throws IOException {
+        if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).put(FLOAT64).put((byte) layout.ordinal())
+                    .putLong(rows).putLong(columns).putLong(0).flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+            return map(channel, true, rows, columns, layout);
+        }
+    }
+
+    /**
+     * Mappa gli elementi del file a blocchi di {@link OffHeapStorage#CHUNK_SIZE} elementi.
+     * Le mappature restano valide anche dopo la chiusura del canale
+     */
+    private static MatrixFile map(FileChannel channel, boolean writable, int rows, int columns, Layout layout) throws IOException {
+        long length = (long) rows * columns;
+        ByteBuffer[] buffers = new ByteBuffer[(int) ((length + OffHeapStorage.CHUNK_SIZE - 1) >>> OffHeapStorage.CHUNK_SHIFT)];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int c = 0; c < buffers.length; c++) {
+            long first = (long) c << OffHeapStorage.CHUNK_SHIFT;
+            long size = Math.min(OffHeapStorage.CHUNK_SIZE, length - first);
+            buffers[c] = channel.map(mode, HEADER_SIZE + first * Double.BYTES, size * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        OffHeapStorage storage = new OffHeapStorage(buffers, length);
+        Matrix matrix = layout == Layout.ROW_MAJOR
+                ? new Matrix(storage, rows, columns)
+                : new Matrix(storage, columns, rows).transposedView();
+        return new MatrixFile(storage, matrix, layout);
+    }
+
+    /**
+     * Scrive una matrice in un nuovo file, sostituendo un eventuale file esistente.
+     * Gli elementi vengono sempre scritti nel file per righe contigue: per la disposizione per colonne,
+     * blocchi di colonne della matrice vengono trasposti a tessere su una matrice di appoggio sullo heap
+     * e poi copiati come righe del file, invece di scrivere un elemento alla volta attraverso la vista trasposta
+     * @param m Matrice da scrivere
+     * @param path Percorso del file
+     * @param layout Disposizione degli elementi
+     * @throws IOException Se il file non può essere scritto
+     */
+    public static void save(Matrix m, Path path, Layout layout) throws IOException {
+        int rows = m.getNumRows(), columns = m.getNumColumns();
+        try (MatrixFile file = create(path, rows, columns, layout)) {
+            if (layout == Layout.ROW_MAJOR) {
+                Matrix dest = file.getMatrix();
+                double[] row = new double[columns];
+                for (int i = 0; i < rows; i++) {
+                    m.copyRowTo(i, row, 0);
+                    dest.copyRowFrom(row, 0, i);
+                }
+                return;
+            }
+            //righe del file = colonne della matrice
+            Matrix dest = file.getMatrix().transposedView();
+            int step = Math.max(1, Math.min(columns, Matrix.STAGING_ELEMENTS / Math.max(1, rows)));
+            Matrix staging = new Matrix(step, rows);
+            double[] row = new double[rows];
+            for (int c = 0; c < columns; c += step) {
+                int h = Math.min(step, columns - c);
+                Matrix block = h == step ? staging : staging.block(0, 0, h, rows);
+                Matrix.transpose(m.block(0, c, rows, h), block);
+                for (int i = 0; i < h; i++) {
+                    block.copyRowTo(i, row, 0);
+                    dest.copyRowFrom(row, 0, c + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scrive una matrice in un nuovo file, memorizzandone gli elementi per righe
+     * @param m Matrice da scrivere
+     * @param path Percorso del file
+     * @throws IOException Se il file non può essere scritto
+     */
+    public static void save(Matrix m, Path path) throws IOException {
+        save(m, path, Layout.ROW_MAJOR);
+    }
+
+    /**
+     * Legge una matrice da un file copiandone gli elementi sullo heap
+     * @param path Percorso del file
+     * @return La matrice letta, indipendente dal file
+     * @throws IOException Se il file non può essere letto oppure non è nel formato atteso
+     */
+    public static Matrix load(Path path) throws IOException {
+        try (MatrixFile file = open(path)) {
+            return file.getMatrix().materialize();
+        }
+    }
+
+    /**
+     * Ritorna la matrice mappata sul file, utilizzabile finché il file non viene chiuso.
+     * Nei file memorizzati per colonne la matrice è una vista trasposta
+     * @return La matrice mappata
+     */
+    public Matrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Ritorna la disposizione degli elementi nel file
+     * @return La disposizione degli elementi
+     */
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Rilascia la mappatura del file: la matrice non deve essere più utilizzata
+     */
+    @Override
+    public void close() {
+        storage.close();
+    }
+}
@@ -0,0 +1,412 @@
+package it.matrix;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Formato testuale di una matrice, per la scrittura e la lettura in streaming.
+ * Sono supportati due stili: CSV, una riga di testo per ogni riga della matrice,
+ * e LINE, la rappresentazione in una singola linea {a,b},{c,d} prodotta da {@link Matrix#toLineString()}.
+ * La scrittura procede per righe attraverso un buffer di dimensione fissa e la lettura
+ * analizza il testo un blocco di caratteri alla volta, per cui la memoria utilizzata,
+ * oltre alla matrice stessa, non dipende dalla sua dimensione.
+ * Senza una precisione impostata ogni elemento viene scritto con il numero minimo di cifre
+ * che lo identifica esattamente, per cui la rilettura restituisce gli stessi valori
+ * @author Erik Gurzau
+ */
+public final class MatrixFormat {
+    /**
+     * Stile della rappresentazione testuale
+     */
+    public enum Style {
+        /**
+         * Una linea per riga, elementi separati dal delimitatore
+         */
+        CSV,
+        /**
+         * Una singola linea, righe racchiuse tra parentesi graffe e separate da virgole
+         */
+        LINE
+    }
+
+    /**
+     * Formato CSV con separatore virgola e precisione esatta
+     */
+    public static final MatrixFormat CSV = new MatrixFormat(Style.CSV, ',', -1);
+    /**
+     * Formato in una singola linea con precisione esatta
+     */
+    public static final MatrixFormat LINE = new MatrixFormat(Style.LINE, ',', -1);
+
+    /**
+     * Numero massimo di cifre decimali impostabili
+     */
+    public static final int MAX_PRECISION = 17;
+    /**
+     * Dimensione dei buffer di caratteri usati in scrittura e lettura
+     */
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * Lunghezza massima del testo di un singolo elemento
+     */
+    private static final int MAX_TOKEN = 64;
+    private static final double[] POWERS_OF_TEN = new double[MAX_PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_PRECISION; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final Style style;
+    private final char delimiter;
+    private final int precision;
+
+    /**
+     * Costruttore di un formato
+     * @param style Stile della rappresentazione
+     * @param delimiter Separatore degli elementi nello stile CSV
+     * @param precision Numero di cifre decimali, -1 per la precisione esatta
+     */
+    private MatrixFormat(Style style, char delimiter, int precision) {
+        this.style = style;
+        this.delimiter = delimiter;
+        this.precision = precision;
+    }
+
+    /**
+     * Ritorna un formato che arrotonda gli elementi al numero di cifre decimali indicato,
+     * all'intero più vicino; -1 ripristina la precisione esatta
+     * @param decimals Numero di cifre decimali, tra 0 e {@link #MAX_PRECISION}, oppure -1
+     * @return Il formato con la precisione indicata
+     */
+    public MatrixFormat withPrecision(int decimals) {
+        if (decimals < -1 || decimals > MAX_PRECISION)
+            throw new RuntimeException("Illegal precision: " + decimals + " out of bounds -1 - " + MAX_PRECISION);
+        return new MatrixFormat(style, delimiter, decimals);
+    }
+
+    /**
+     * Ritorna un formato CSV con un separatore diverso dalla virgola
+     * @param delimiter Separatore degli elementi
+     * @return Il formato con il separatore indicato
+     */
+    public MatrixFormat withDelimiter(char delimiter) {
+        if (style != Style.CSV)
+            throw new RuntimeException("Illegal delimiter: only the CSV style has a configurable delimiter");
+        if (delimiter == '\n' || delimiter == '\r' || delimiter == '.' || delimiter == '-' || delimiter == '+' || Character.isLetterOrDigit(delimiter))
+            throw new RuntimeException("Illegal delimiter: '" + delimiter + "'");
+        return new MatrixFormat(style, delimiter, precision);
+    }
+
+    /**
+     * Aggiunge un elemento a una stringa in costruzione, arrotondato al numero di cifre decimali indicato
+     * @param s Stringa in costruzione
+     * @param value Elemento da aggiungere
+     * @param decimals Numero di cifre decimali, -1 per la precisione esatta
+     */
+    static void append(StringBuilder s, double value, int decimals) {
+        if (decimals >= 0 && Double.isFinite(value)) {
+            double scaled = value * POWERS_OF_TEN[decimals];
+            //oltre 2^52 il valore non ha cifre decimali da arrotondare
+            if (Math.abs(scaled) < 0x1p52) value = Math.rint(scaled) / POWERS_OF_TEN[decimals];
+        }
+        s.append(value);
+    }
+
+    /**
+     * Rappresentazione testuale di una matrice
+     * @param m Matrice da rappresentare
+     * @return La matrice come stringa
+     */
+    public String format(Matrix m) {
+        StringWriter out = new StringWriter();
+        try {
+            write(m, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //StringWriter non solleva eccezioni
+        }
+        return out.toString();
+    }
+
+    /**
+     * Scrive una matrice riga per riga, svuotando il buffer ogni {@value #BUFFER_SIZE} caratteri
+     * @param m Matrice da scrivere
+     * @param out Destinazione del testo, non viene chiusa
+     * @throws IOException Se la scrittura non va a buon fine
+     */
+    public void write(Matrix m, Writer out) throws IOException {
+        int columns = m.getNumColumns();
+        double[] row = new double[columns];
+        StringBuilder s = new StringBuilder(BUFFER_SIZE + MAX_TOKEN);
+        char[] buffer = new char[BUFFER_SIZE + MAX_TOKEN];
+        for (int i = 0; i < m.getNumRows(); i++) {
+            m.copyRowTo(i, row, 0);
+            if (style == Style.LINE) {
+                if (i != 0) s.append(',');
+                s.append('{');
+            }
+            for (int j = 0; j < columns; j++) {
+                if (j != 0) s.append(style == Style.LINE ? ',' : delimiter);
+                append(s, row[j], precision);
+                if (s.length() >= BUFFER_SIZE) flush(s, buffer, out);
+            }
+            s.append(style == Style.LINE ? '}' : '\n');
+        }
+        flush(s, buffer, out);
+    }
+
+    /**
+     * Scrive una matrice su un canale, codificando il testo in UTF-8
+     * @param m Matrice da scrivere
+     * @param channel Canale di destinazione, non viene chiuso
+     * @throws IOException Se la scrittura non va a buon fine
+     */
+    public void write(Matrix m, WritableByteChannel channel) throws IOException {
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        write(m, out);
+        out.flush();
+    }
+
+    /**
+     * Svuota la stringa in costruzione nella destinazione, attraverso un buffer riutilizzato
+     */
+    private static void flush(StringBuilder s, char[] buffer, Writer out) throws IOException {
+        for (int start = 0; start < s.length(); start += buffer.length) {
+            int end = Math.min(s.length(), start + buffer.length);
+            s.getChars(start, end, buffer, 0);
+            out.write(buffer, 0, end - start);
+        }
+        s.setLength(0);
+    }
+
+    /**
+     * Interpreta una matrice rappresentata come stringa
+     * @param text Testo da interpretare
+     * @return La matrice letta
+     * @throws IOException Se il testo non è nel formato atteso
+     */
+    public Matrix parse(String text) throws IOException {
+        return read(new StringReader(text));
+    }
+
+    /**
+     * Legge una matrice da un canale, decodificando il testo come UTF-8
+     * @param channel Canale sorgente, non viene chiuso
+     * @return La matrice letta
+     * @throws IOException Se la lettura non va a buon fine oppure il testo non è nel formato atteso
+     */
+    public Matrix read(ReadableByteChannel channel) throws IOException {
+        return read(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Legge una matrice analizzando il testo un blocco di caratteri alla volta.
+     * Gli spazi attorno agli elementi sono ignorati. Nello stile CSV un elemento termina solo al delimitatore
+     * o a fine linea, per cui un elemento vuoto, anche dopo un delimitatore finale, è un errore; le linee vuote
+     * sono ignorate. Nello stile LINE una riga è il contenuto di una coppia di parentesi graffe, le righe
+     * sono separate da virgole e sono ammesse parentesi esterne
+     * @param in Sorgente del testo, non viene chiusa
+     * @return La matrice letta
+     * @throws IOException Se la lettura non va a buon fine oppure il testo non è nel formato atteso,
+     *                     indicando la linea in cui si trova l'errore
+     */
+    public Matrix read(Reader in) throws IOException {
+        Parser parser = style == Style.LINE ? new LineParser() : new CsvParser(delimiter);
+        char[] buffer = new char[BUFFER_SIZE];
+        for (int n; (n = in.read(buffer)) != -1; )
+            for (int p = 0; p < n; p++) parser.accept(buffer[p]);
+        return parser.finish();
+    }
+
+    /**
+     * Analizzatore del testo di una matrice, riceve un carattere alla volta e accumula gli elementi per righe
+     */
+    private abstract static class Parser {
+        private final char[] token = new char[MAX_TOKEN];
+        private double[] elements = new double[64];
+        int tokenLength, size, rows, columns = -1, rowStart;
+        long line = 1;
+
+        /**
+         * Analizza il prossimo carattere del testo
+         */
+        abstract void accept(char ch) throws IOException;
+
+        /**
+         * Conclude l'analisi alla fine del testo
+         * @return La matrice letta
+         */
+        abstract Matrix finish() throws IOException;
+
+        /**
+         * Aggiunge un carattere all'elemento in lettura
+         */
+        void append(char ch) throws IOException {
+            if (tokenLength == MAX_TOKEN)
+                throw new IOException("Illegal matrix text: element too long at line " + line);
+            token[tokenLength++] = ch;
+        }
+
+        /**
+         * Interpreta l'elemento in lettura e lo aggiunge alla riga corrente
+         */
+        void element() throws IOException {
+            String text = new String(token, 0, tokenLength);
+            tokenLength = 0;
+            if (size == elements.length) elements = Arrays.copyOf(elements, 2 * size);
+            try {
+                elements[size++] = Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw new IOException("Illegal matrix text: '" + text + "' is not a number at line " + line);
+            }
+        }
+
+        /**
+         * Chiude la riga corrente, controllando che abbia lo stesso numero di elementi delle precedenti
+         */
+        void endRow() throws IOException {
+            int length = size - rowStart;
+            if (columns == -1) columns = length;
+            else if (length != columns)
+                throw new IOException("Illegal matrix text: row " + rows + " has " + length + " elements but " + columns + " are expected at line " + line);
+            rows++;
+            rowStart = size;
+        }
+
+        IOException unexpected(char ch) {
+            return new IOException("Illegal matrix text: unexpected '" + ch + "' at line " + line);
+        }
+
+        Matrix result() {
+            if (rows == 0) return new Matrix(0, 0);
+            if (size == 0) return new Matrix(rows, columns);
+            return new Matrix(size == elements.length ? elements : Arrays.copyOf(elements, size), rows);
+        }
+    }
+
+    /**
+     * Stile CSV: i campi terminano al delimitatore o a fine linea e gli spazi ai loro estremi sono ignorati
+     */
+    private static final class CsvParser extends Parser {
+        private final char delimiter;
+        /**
+         * Numero di campi già chiusi nella linea corrente
+         */
+        private int fields;
+        /**
+         * Vero se dopo l'elemento del campo corrente sono stati letti degli spazi
+         */
+        private boolean trailingSpace;
+
+        CsvParser(char delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        void accept(char ch) throws IOException {
+            if (ch == '\n') {
+                endField(true);
+                line++;
+            } else if (ch == delimiter) {
+                endField(false);
+            } else if (Character.isWhitespace(ch)) {
+                trailingSpace = tokenLength > 0;
+            } else {
+                if (trailingSpace) throw unexpected(ch);
+                append(ch);
+            }
+        }
+
+        private void endField(boolean endOfLine) throws IOException {
+            if (endOfLine && fields == 0 && tokenLength == 0) return; //linea vuota
+            if (tokenLength == 0)
+                throw new IOException("Illegal matrix text: empty element at line " + line);
+            element();
+            trailingSpace = false;
+            fields++;
+            if (endOfLine) {
+                endRow();
+                fields = 0;
+            }
+        }
+
+        @Override
+        Matrix finish() throws IOException {
+            endField(true); //ultima linea senza terminatore
+            return result();
+        }
+    }
+
+    /**
+     * Stile LINE: righe tra parentesi graffe separate da virgole, eventualmente racchiuse da una coppia di parentesi esterne
+     */
+    private static final class LineParser extends Parser {
+        private static final int START = 0, OPENED = 1, VALUE = 2, NEXT_VALUE = 3, AFTER_VALUE = 4,
+                AFTER_ROW = 5, NEXT_ROW = 6, END = 7;
+        private int state = START;
+        /**
+         * Vero se le righe sono racchiuse da parentesi esterne
+         */
+        private boolean outer;
+
+        @Override
+        void accept(char ch) throws IOException {
+            boolean separator = ch == ',' || ch == '{' || ch == '}' || Character.isWhitespace(ch);
+            if (!separator) {
+                if (state == OPENED) state = VALUE;
+                if (state != VALUE && state != NEXT_VALUE) throw unexpected(ch);
+                append(ch);
+                return;
+            }
+            if (tokenLength > 0) {
+                element();
+                state = AFTER_VALUE;
+            }
+            if (ch == '\n') line++;
+            if (Character.isWhitespace(ch)) return;
+
+            if (ch == '{') {
+                if (state == START) state = OPENED;
+                else if (state == OPENED) {
+                    outer = true;
+                    state = VALUE;
+                } else if (state == NEXT_ROW) state = VALUE;
+                else if (state == AFTER_ROW)
+                    throw new IOException("Illegal matrix text: missing ',' between rows at line " + line);
+                else throw unexpected(ch);
+            } else if (ch == ',') {
+                if (state == AFTER_VALUE) state = NEXT_VALUE;
+                else if (state == AFTER_ROW) state = NEXT_ROW;
+                else if (state == VALUE || state == NEXT_VALUE || state == OPENED)
+                    throw new IOException("Illegal matrix text: empty element at line " + line);
+                else throw unexpected(ch);
+            } else {
+                if (state == OPENED || state == VALUE || state == AFTER_VALUE) {
+                    endRow();
+                    state = AFTER_ROW;
+                } else if (state == AFTER_ROW && outer) state = END;
+                else if (state == NEXT_VALUE)
+                    throw new IOException("Illegal matrix text: empty element at line " + line);
+                else throw new IOException("Illegal matrix text: unbalanced '}' at line " + line);
+            }
+        }
+
+        @Override
+        Matrix finish() throws IOException {
+            if (tokenLength > 0) element();
+            if (state == NEXT_ROW)
+                throw new IOException("Illegal matrix text: missing row after ',' at line " + line);
+            if (state != START && state != END && !(state == AFTER_ROW && !outer))
+                throw new IOException("Illegal matrix text: unbalanced '{' at line " + line);
+            return result();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package it.matrix;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generatore di matrici randomiche riproducibili, basato su {@link SplittableRandom}.
+ * Gli elementi sono suddivisi in blocchi di dimensione fissa e ogni blocco viene riempito
+ * da un generatore indipendente, il cui seme è derivato dal seme del generatore, dal numero
+ * di matrici già generate e dall'indice del blocco: i blocchi possono quindi essere riempiti
+ * in parallelo senza stato condiviso e, a parità di seme, la sequenza di matrici generate
+ * è la stessa qualunque sia il numero di thread.
+ * Il generatore può essere condiviso tra thread, ma in tal caso l'ordine delle matrici
+ * generate dipende dall'ordine delle chiamate
+ * @author Erik Gurzau
+ */
+public final class MatrixRandom {
+    /**
+     * Numero di elementi riempiti da ogni generatore indipendente
+     */
+    private static final int BLOCK = 1 << 16;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Distribuzione degli elementi generati
+     */
+    private interface Distribution {
+        double next(SplittableRandom random);
+    }
+
+    private final long seed;
+    /**
+     * Numero di matrici generate, identifica la sequenza di ogni nuova matrice
+     */
+    private final AtomicLong streams = new AtomicLong();
+    private final ForkJoinPool pool;
+
+    /**
+     * Costruttore di un generatore con un seme casuale, che riempie le matrici grandi in parallelo sul pool comune
+     */
+    public MatrixRandom() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Costruttore di un generatore riproducibile, che riempie le matrici grandi in parallelo sul pool comune
+     * @param seed Seme del generatore
+     */
+    public MatrixRandom(long seed) {
+        this(seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Costruttore di un generatore riproducibile
+     * @param seed Seme del generatore
+     * @param pool Pool su cui riempire i blocchi, se {@code null} le matrici vengono riempite in modo seriale
+     */
+    public MatrixRandom(long seed, ForkJoinPool pool) {
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /**
+     * Ritorna il seme del generatore
+     * @return Il seme
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Genera una matrice con elementi distribuiti uniformemente nell'intervallo [0, 1)
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @return La matrice generata
+     */
+    public Matrix uniform(int rows, int columns) {
+        return generate(rows, columns, SplittableRandom::nextDouble);
+    }
+
+    /**
+     * Genera una matrice con elementi distribuiti uniformemente nell'intervallo [min, max)
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param min Estremo inferiore, incluso
+     * @param max Estremo superiore, escluso
+     * @return La matrice generata
+     */
+    public Matrix uniform(int rows, int columns, double min, double max) {
+        if (!(min < max) || !Double.isFinite(max - min))
+            throw new RuntimeException("Illegal range: [" + min + ", " + max + ")");
+        return generate(rows, columns, random -> random.nextDouble(min, max));
+    }
+
+    /**
+     * Genera una matrice con elementi distribuiti secondo una normale standard
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @return La matrice generata
+     */
+    public Matrix gaussian(int rows, int columns) {
+        return generate(rows, columns, SplittableRandom::nextGaussian);
+    }
+
+    /**
+     * Genera una matrice con elementi distribuiti secondo una normale
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param mean Media
+     * @param deviation Deviazione standard, non negativa
+     * @return La matrice generata
+     */
+    public Matrix gaussian(int rows, int columns, double mean, double deviation) {
+        if (!(deviation >= 0))
+            throw new RuntimeException("Illegal standard deviation: " + deviation);
+        return generate(rows, columns, random -> random.nextGaussian(mean, deviation));
+    }
+
+    /**
+     * Genera una matrice con elementi interi distribuiti uniformemente nell'intervallo [min, max)
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param min Estremo inferiore, incluso
+     * @param max Estremo superiore, escluso
+     * @return La matrice generata
+     */
+    public Matrix integers(int rows, int columns, int min, int max) {
+        if (min >= max)
+            throw new RuntimeException("Illegal range: [" + min + ", " + max + ")");
+        return generate(rows, columns, random -> random.nextInt(min, max));
+    }
+
+    /**
+     * Genera una matrice sparsa in cui ogni elemento è non nullo con probabilità {@code density},
+     * con valori distribuiti uniformemente nell'intervallo (0, 1].
+     * Le posizioni non nulle di ogni riga sono estratte saltando un numero di elementi
+     * con distribuzione geometrica, per cui il costo è proporzionale agli elementi non nulli
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param density Probabilità che un elemento sia non nullo, tra 0 e 1
+     * @param format Formato della matrice
+     * @return La matrice sparsa generata
+     */
+    public SparseMatrix sparse(int rows, int columns, double density, SparseMatrix.Format format) {
+        if (rows < 0 || columns < 0)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        if (!(density >= 0 && density <= 1))
+            throw new RuntimeException("Illegal density: " + density + " out of bounds 0 - 1");
+        long stream = nextStream();
+        int[][] rowIndices = new int[rows][];
+        double[][] rowValues = new double[rows][];
+        double logSkip = Math.log1p(-density);
+        run(rows, (start, end) -> {
+            int[] indices = new int[Math.max(16, (int) Math.min(columns, 2 * density * columns))];
+            double[] values = new double[indices.length];
+            for (int i = start; i < end; i++) {
+                SplittableRandom random = new SplittableRandom(blockSeed(stream, i));
+                int n = 0;
+                for (long j = skip(random, logSkip); j < columns; j += 1 + skip(random, logSkip)) {
+                    if (n == indices.length) {
+                        indices = Arrays.copyOf(indices, 2 * n);
+                        values = Arrays.copyOf(values, 2 * n);
+                    }
+                    indices[n] = (int) j;
+                    values[n++] = 1 - random.nextDouble();
+                }
+                rowIndices[i] = Arrays.copyOf(indices, n);
+                rowValues[i] = Arrays.copyOf(values, n);
+            }
+        });
+        int[] pointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) pointers[i + 1] = Math.addExact(pointers[i], rowIndices[i].length);
+        int[] indices = new int[pointers[rows]];
+        double[] values = new double[pointers[rows]];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(rowIndices[i], 0, indices, pointers[i], rowIndices[i].length);
+            System.arraycopy(rowValues[i], 0, values, pointers[i], rowValues[i].length);
+        }
+        SparseMatrix csr = new SparseMatrix(SparseMatrix.Format.CSR, rows, columns, pointers, indices, values);
+        return format == SparseMatrix.Format.CSR ? csr : csr.toFormat(format);
+    }
+
+    /**
+     * Estrae il numero di elementi nulli prima del prossimo elemento non nullo
+     * @param logSkip Logaritmo della probabilità che un elemento sia nullo
+     */
+    private static long skip(SplittableRandom random, double logSkip) {
+        if (logSkip == 0) return Integer.MAX_VALUE; //densità nulla
+        if (logSkip == Double.NEGATIVE_INFINITY) return 0; //densità unitaria
+        double skip = Math.floor(Math.log1p(-random.nextDouble()) / logSkip);
+        return skip < Integer.MAX_VALUE ? (long) skip : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Genera una matrice riempiendone gli elementi a blocchi indipendenti
+     */
+    private Matrix generate(int rows, int columns, Distribution distribution) {
+        if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE)
+            throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+        long stream = nextStream();
+        if (rows == 0 || columns == 0) return new Matrix(rows, columns);
+        double[] elements = new double[rows * columns];
+        int blocks = (elements.length + BLOCK - 1) / BLOCK;
+        run(blocks, (start, end) -> {
+            for (int b = start; b < end; b++) {
+                SplittableRandom random = new SplittableRandom(blockSeed(stream, b));
+                int to = Math.min(elements.length, (b + 1) * BLOCK);
+                for (int k = b * BLOCK; k < to; k++) elements[k] = distribution.next(random);
+            }
+        });
+        return new Matrix(elements, rows);
+    }
+
+    /**
+     * Esegue un intervallo di blocchi, in parallelo se il pool è impostato e i blocchi sono più di uno
+     */
+    private void run(int blocks, Gemm.RowRange range) {
+        if (pool == null || blocks < 2 || pool.getParallelism() < 2) range.compute(0, blocks);
+        else pool.invoke(new Gemm.RowBlockTask(0, blocks, Math.max(1, blocks / (4 * pool.getParallelism())), range));
+    }
+
+    /**
+     * Ritorna il seme della sequenza della prossima matrice generata
+     */
+    private long nextStream() {
+        return mix64(seed + streams.getAndIncrement() * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Ritorna il seme di un blocco di una sequenza; il rimescolamento evita che generatori
+     * di blocchi diversi producano sequenze sovrapposte
+     */
+    private static long blockSeed(long stream, long block) {
+        return mix64(stream + (block + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Funzione di rimescolamento a 64 bit (variante 13 di Stafford del finalizzatore di MurmurHash3)
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
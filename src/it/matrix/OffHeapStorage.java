@@ -0,0 +1,202 @@
+package it.matrix;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Area di memoria fuori dallo heap che contiene gli elementi di una o più matrici,
+ * non esaminata dal garbage collector. La memoria è suddivisa in blocchi diretti
+ * di al più 2^27 elementi (1 GiB), poiché un singolo buffer NIO non può superare i 2 GiB.
+ * La memoria viene rilasciata esplicitamente con {@link #close()}, tipicamente al termine
+ * di un blocco try-with-resources che delimita la vita di tutte le matrici che la usano:
+ * dopo la chiusura ogni accesso agli elementi solleva un'eccezione.
+ * La quantità di memoria allocabile è limitata dall'opzione -XX:MaxDirectMemorySize della JVM
+ * @author Erik Gurzau
+ */
+public final class OffHeapStorage implements AutoCloseable {
+    /**
+     * Logaritmo in base 2 del numero di elementi di un blocco
+     */
+    static final int CHUNK_SHIFT = 27;
+    /**
+     * Numero di elementi di un blocco
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Buffer originali, necessari per rilasciare la memoria alla chiusura
+     */
+    private ByteBuffer[] buffers;
+    /**
+     * Viste sui buffer come vettori di double, una per blocco
+     */
+    private DoubleBuffer[] chunks;
+    /**
+     * Numero di elementi
+     */
+    private final long length;
+
+    /**
+     * Costruttore di un'area di memoria a partire dai suoi blocchi: ogni blocco,
+     * eccetto l'ultimo, deve contenere esattamente {@link #CHUNK_SIZE} elementi
+     * @param buffers Blocchi di memoria diretta o mappata, con l'ordine dei byte già impostato
+     * @param length Numero complessivo di elementi
+     */
+    OffHeapStorage(ByteBuffer[] buffers, long length) {
+        this.buffers = buffers;
+        this.length = length;
+        this.chunks = new DoubleBuffer[buffers.length];
+        for (int c = 0; c < buffers.length; c++) chunks[c] = buffers[c].asDoubleBuffer();
+    }
+
+    /**
+     * Alloca un'area di memoria fuori dallo heap, inizializzata a 0
+     * @param length Numero di elementi
+     * @return L'area di memoria allocata
+     */
+    public static OffHeapStorage allocate(long length) {
+        if (length < 0)
+            throw new RuntimeException("Illegal storage length: " + length);
+        ByteBuffer[] buffers = new ByteBuffer[(int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+        for (int c = 0; c < buffers.length; c++) {
+            long size = Math.min(CHUNK_SIZE, length - ((long) c << CHUNK_SHIFT));
+            buffers[c] = ByteBuffer.allocateDirect((int) size * Double.BYTES).order(ByteOrder.nativeOrder());
+        }
+        return new OffHeapStorage(buffers, length);
+    }
+
+    /**
+     * Ritorna il numero di elementi
+     * @return Il numero di elementi dell'area di memoria
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Controlla se l'area di memoria è stata rilasciata
+     * @return {@code true} Se e solo se, è stato invocato {@link #close()};
+     *         Altrimenti {@code false}.
+     */
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    /**
+     * Ritorna i blocchi dell'area di memoria, verificando che non sia stata rilasciata
+     */
+    private DoubleBuffer[] chunks() {
+        DoubleBuffer[] c = chunks;
+        if (c == null)
+            throw new RuntimeException("Illegal storage state: the off-heap memory has been released");
+        return c;
+    }
+
+    /**
+     * Ritorna un elemento
+     * @param index Posizione dell'elemento
+     * @return Il valore dell'elemento
+     */
+    public double get(long index) {
+        return chunks()[(int) (index >>> CHUNK_SHIFT)].get((int) index & CHUNK_MASK);
+    }
+
+    /**
+     * Sovrascrive un elemento
+     * @param index Posizione dell'elemento
+     * @param value Nuovo valore
+     */
+    public void set(long index, double value) {
+        chunks()[(int) (index >>> CHUNK_SHIFT)].put((int) index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Copia elementi consecutivi in un vettore sullo heap
+     * @param index Posizione del primo elemento
+     * @param dest Vettore di destinazione
+     * @param destPos Posizione iniziale nel vettore di destinazione
+     * @param count Numero di elementi da copiare
+     */
+    public void get(long index, double[] dest, int destPos, int count) {
+        DoubleBuffer[] c = chunks();
+        while (count > 0) {
+            int chunk = (int) (index >>> CHUNK_SHIFT), pos = (int) index & CHUNK_MASK;
+            int n = Math.min(count, CHUNK_SIZE - pos);
+            c[chunk].get(pos, dest, destPos, n);
+            index += n;
+            destPos += n;
+            count -= n;
+        }
+    }
+
+    /**
+     * Copia elementi da un vettore sullo heap in posizioni consecutive
+     * @param src Vettore sorgente
+     * @param srcPos Posizione iniziale nel vettore sorgente
+     * @param index Posizione del primo elemento da sovrascrivere
+     * @param count Numero di elementi da copiare
+     */
+    public void put(double[] src, int srcPos, long index, int count) {
+        DoubleBuffer[] c = chunks();
+        while (count > 0) {
+            int chunk = (int) (index >>> CHUNK_SHIFT), pos = (int) index & CHUNK_MASK;
+            int n = Math.min(count, CHUNK_SIZE - pos);
+            c[chunk].put(pos, src, srcPos, n);
+            index += n;
+            srcPos += n;
+            count -= n;
+        }
+    }
+
+    /**
+     * Rilascia immediatamente la memoria. Le matrici che usano quest'area di memoria
+     * non devono essere più utilizzate; le chiamate successive non hanno effetto
+     */
+    @Override
+    public void close() {
+        ByteBuffer[] released = buffers;
+        if (released == null) return;
+        chunks = null;
+        buffers = null;
+        for (ByteBuffer buffer: released) Cleaner.release(buffer);
+    }
+
+    /**
+     * Rilascio esplicito dei buffer diretti e mappati. La piattaforma non offre un'API pubblica
+     * per farlo prima della JDK 22: si usa sun.misc.Unsafe#invokeCleaner se disponibile, altrimenti
+     * la memoria viene restituita al sistema quando il buffer viene raccolto dal garbage collector
+     */
+    private static final class Cleaner {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> type = Class.forName("sun.misc.Unsafe");
+                Field field = type.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                unsafe = null;
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        static void release(ByteBuffer buffer) {
+            if (INVOKE_CLEANER == null || !buffer.isDirect()) return;
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                //il buffer verrà rilasciato dal garbage collector
+            }
+        }
+    }
+}
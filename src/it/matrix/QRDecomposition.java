@@ -0,0 +1,214 @@
+package it.matrix;
+
+/**
+ * Decomposizione QR con pivoting sulle colonne di una matrice MxN, AP = QR,
+ * calcolata con riflessioni di Householder in O(M * N * min(M,N)).
+ * A ogni passo viene portata in posizione pivot la colonna residua di norma massima,
+ * per cui il modulo degli elementi sulla diagonale di R è non crescente e il numero di
+ * elementi diagonali non trascurabili rivela il rango numerico della matrice
+ */
+public class QRDecomposition {
+    /**
+     * Vettori di Householder (sotto la diagonale) e parte superiore di R,
+     * memorizzati per colonne: l'elemento (i,j) si trova in posizione j * m + i
+     */
+    private final double[] qr;
+    /**
+     * Diagonale di R
+     */
+    private final double[] rDiagonal;
+    /**
+     * Permutazione delle colonne: la colonna j-esima di AP è la colonna permutation[j] di A
+     */
+    private final int[] permutation;
+    /**
+     * Numero di righe
+     */
+    private final int m;
+    /**
+     * Numero di colonne
+     */
+    private final int n;
+
+    /**
+     * Costruttore della decomposizione QR con pivoting sulle colonne
+     * @param a Matrice da fattorizzare, non viene modificata
+     */
+    public QRDecomposition(Matrix a) {
+        m = a.getNumRows();
+        n = a.getNumColumns();
+        qr = new double[m * n];
+        double[] row = new double[n];
+        for (int i = 0; i < m; i++) {
+            a.copyRowTo(i, row, 0);
+            for (int j = 0; j < n; j++) qr[j * m + i] = row[j];
+        }
+        int steps = Math.min(m, n);
+        rDiagonal = new double[steps];
+        permutation = new int[n];
+        factor();
+    }
+
+    /**
+     * Fattorizzazione di Householder con scelta della colonna pivot in base alle norme
+     * residue, aggiornate a ogni passo e ricalcolate quando la cancellazione le rende inaffidabili
+     */
+    private void factor() {
+        double[] norms = new double[n], initialNorms = new double[n];
+        for (int j = 0; j < n; j++) {
+            permutation[j] = j;
+            norms[j] = initialNorms[j] = norm(j, 0);
+        }
+        double threshold = Math.sqrt(Math.ulp(1.0));
+
+        for (int k = 0; k < rDiagonal.length; k++) {
+            int p = k;
+            for (int j = k + 1; j < n; j++)
+                if (norms[j] > norms[p]) p = j;
+            if (p != k) {
+                swapColumns(p, k);
+                int t = permutation[p];
+                permutation[p] = permutation[k];
+                permutation[k] = t;
+                norms[p] = norms[k];
+                initialNorms[p] = initialNorms[k];
+            }
+
+            int ck = k * m + k, length = m - k;
+            double nrm = norm(k, k);
+            if (nrm == 0) {
+                rDiagonal[k] = 0;
+                continue;
+            }
+            if (qr[ck] < 0) nrm = -nrm;
+            Kernels.affine(qr, ck, 1 / nrm, 0, qr, ck, length);
+            qr[ck] += 1;
+
+            for (int j = k + 1; j < n; j++) {
+                int cj = j * m + k;
+                double s = -Kernels.dot(qr, ck, qr, cj, length) / qr[ck];
+                Kernels.combine(qr, cj, s, qr, ck, qr, cj, length);
+
+                if (norms[j] != 0) {
+                    double t = Math.abs(qr[cj]) / norms[j];
+                    t = Math.max(0, (1 + t) * (1 - t));
+                    double ratio = norms[j] / initialNorms[j];
+                    if (t * ratio * ratio <= threshold) {
+                        norms[j] = initialNorms[j] = norm(j, k + 1);
+                    } else {
+                        norms[j] *= Math.sqrt(t);
+                    }
+                }
+            }
+            rDiagonal[k] = -nrm;
+        }
+    }
+
+    /**
+     * Norma euclidea degli elementi di una colonna del buffer a partire da una riga,
+     * calcolata con riscalamento per evitare overflow e underflow
+     * @param column Indice della colonna
+     * @param from Indice della prima riga
+     * @return La norma euclidea
+     */
+    private double norm(int column, int from) {
+        double scale = 0, sum = 1;
+        for (int i = column * m + from, end = column * m + m; i < end; i++) {
+            double v = Math.abs(qr[i]);
+            if (v == 0) continue;
+            if (scale < v) {
+                sum = 1 + sum * (scale / v) * (scale / v);
+                scale = v;
+            } else {
+                sum += (v / scale) * (v / scale);
+            }
+        }
+        return scale * Math.sqrt(sum);
+    }
+
+    /**
+     * Scambia due colonne del buffer di lavoro
+     * @param a Primo indice
+     * @param b Secondo indice
+     */
+    private void swapColumns(int a, int b) {
+        for (int i = 0, ca = a * m, cb = b * m; i < m; i++) {
+            double tmp = qr[ca + i];
+            qr[ca + i] = qr[cb + i];
+            qr[cb + i] = tmp;
+        }
+    }
+
+    /**
+     * Ritorna la tolleranza predefinita per il calcolo del rango: max(M,N) * eps * |R11|
+     * @return La tolleranza predefinita
+     */
+    public double defaultTolerance() {
+        return rDiagonal.length == 0 ? 0 : Math.max(m, n) * Math.ulp(1.0) * Math.abs(rDiagonal[0]);
+    }
+
+    /**
+     * Calcola il rango numerico con la tolleranza predefinita
+     * @return Il rango della matrice
+     * @see #defaultTolerance()
+     */
+    public int rank() {
+        return rank(defaultTolerance());
+    }
+
+    /**
+     * Calcola il rango numerico come numero di elementi sulla diagonale di R
+     * con valore assoluto maggiore della tolleranza
+     * @param tolerance Soglia sotto la quale un elemento diagonale è considerato nullo
+     * @return Il rango della matrice
+     */
+    public int rank(double tolerance) {
+        int rank = 0;
+        while (rank < rDiagonal.length && Math.abs(rDiagonal[rank]) > tolerance) rank++;
+        return rank;
+    }
+
+    /**
+     * Ritorna il fattore triangolare superiore R, di dimensione min(M,N)xN
+     * @return La matrice R
+     */
+    public Matrix getR() {
+        int k = rDiagonal.length;
+        double[] r = new double[k * n];
+        for (int i = 0; i < k; i++) {
+            r[i * n + i] = rDiagonal[i];
+            for (int j = i + 1; j < n; j++) r[i * n + j] = qr[j * m + i];
+        }
+        return k == 0 ? new Matrix(0, n) : new Matrix(r, k);
+    }
+
+    /**
+     * Ritorna il fattore ortogonale Q in forma ridotta, di dimensione Mxmin(M,N),
+     * ottenuto applicando le riflessioni di Householder alle colonne dell'identità
+     * @return La matrice Q
+     */
+    public Matrix getQ() {
+        int k = rDiagonal.length;
+        double[] q = new double[k * m]; //per colonne
+        for (int c = k - 1; c >= 0; c--) {
+            int qc = c * m;
+            q[qc + c] = 1;
+            for (int h = c; h >= 0; h--) {
+                int ch = h * m + h, length = m - h;
+                if (qr[ch] == 0) continue;
+                double s = -Kernels.dot(qr, ch, q, qc + h, length) / qr[ch];
+                Kernels.combine(q, qc + h, s, qr, ch, q, qc + h, length);
+            }
+        }
+        return k == 0 ? new Matrix(m, 0) : new Matrix(q, k).transposedView().materialize();
+    }
+
+    /**
+     * Ritorna la permutazione delle colonne, l'elemento j-esimo è l'indice della
+     * colonna della matrice originale che occupa la posizione j in AP
+     * @return Copia del vettore di permutazione
+     */
+    public int[] getPermutation() {
+        return permutation.clone();
+    }
+}
@@ -0,0 +1,71 @@
+package it.matrix;
+
+/**
+ * Operazioni comuni alle matrici di numeri reali, indipendenti dalla rappresentazione
+ * degli elementi: densa ({@link Matrix}) oppure sparsa ({@link SparseMatrix})
+ * @author Erik Gurzau
+ */
+public interface RealMatrix {
+    /**
+     * Ritorna il numero di righe della matrice
+     * @return Il numero di righe
+     */
+    int getNumRows();
+
+    /**
+     * Ritorna il numero di colonne della matrice
+     * @return Il numero di colonne
+     */
+    int getNumColumns();
+
+    /**
+     * Ritorna un elemento in una posizione specifica della matrice
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    double get(int row, int column);
+
+    /**
+     * Controlla se la matrice è quadrata
+     * @return {@code true} Se e solo se, la matrice ha
+     *          il numero di righe uguale al numero di colonne;
+     *          Altrimenti {@code false}.
+     */
+    boolean isSquare();
+
+    /**
+     * Controlla se la matrice è diagonale
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è diverso da 0, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    boolean isDiagonal();
+
+    /**
+     * Controlla se la matrice è nulla
+     * @return {@code true} Se e solo se, ogni elemento della matrice è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    boolean isNull();
+
+    /**
+     * Ritorna la matrice trasposta, le righe diventano le colonne e viceversa
+     * @return La matrice trasposta
+     */
+    RealMatrix transposed();
+
+    /**
+     * Prodotto righe per colonne con una matrice densa
+     * @param other Matrice densa NxK da moltiplicare a questa
+     * @return La matrice densa risultante dal prodotto
+     */
+    Matrix multiply(Matrix other);
+
+    /**
+     * Ritorna una copia densa e indipendente della matrice
+     * @return La matrice densa con gli stessi elementi
+     */
+    Matrix toDense();
+}
@@ -0,0 +1,465 @@
+package it.matrix;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decomposizione ai valori singolari in forma ridotta di una matrice MxN, A = U S Vᵀ, con
+ * U di dimensione Mxk e V di dimensione Nxk a colonne ortonormali e S diagonale con i valori
+ * singolari in ordine decrescente.
+ * La matrice viene ridotta in forma bidiagonale B con riflessioni di Householder alternate
+ * sulle colonne e sulle righe (Golub-Kahan) in O(M * N * min(M,N)) e i valori singolari di B sono
+ * calcolati con l'algoritmo QR implicito in O(min(M,N)²).
+ * Quando sono richiesti tutti i vettori singolari, le rotazioni del QR vengono accumulate sui fattori
+ * della bidiagonalizzazione; quando sono richieste solo le prime k componenti, i vettori singolari di B
+ * sono calcolati per iterazione inversa sulla tridiagonale di Golub-Kahan [0 Bᵀ; B 0], i cui autovalori
+ * sono ±σ, e riportati nella base originale in O(M * N * k).
+ * Se le componenti richieste comprendono valori singolari trascurabili rispetto al maggiore, per cui
+ * l'iterazione inversa non separa σ da -σ, vengono calcolati tutti i vettori e restituiti i primi k
+ * @author Erik Gurzau
+ */
+public class SingularValueDecomposition {
+    /**
+     * Separazione relativa minima tra σ e -σ per il calcolo dei vettori per iterazione inversa
+     */
+    private static final double SEPARATION = 1e-3;
+
+    /**
+     * Tutti i valori singolari, in ordine decrescente
+     */
+    private final double[] singularValues;
+    /**
+     * Vettori singolari sinistri calcolati, per righe di M elementi
+     */
+    private final double[] left;
+    /**
+     * Vettori singolari destri calcolati, per righe di N elementi
+     */
+    private final double[] right;
+    /**
+     * Numero di componenti calcolate
+     */
+    private final int k;
+    /**
+     * Numero di righe
+     */
+    private final int m;
+    /**
+     * Numero di colonne
+     */
+    private final int n;
+
+    /**
+     * Costruttore della decomposizione ai valori singolari in forma ridotta, con k = min(M,N)
+     * @param a Matrice da decomporre, non viene modificata
+     */
+    public SingularValueDecomposition(Matrix a) {
+        this(a, Math.min(a.getNumRows(), a.getNumColumns()), null);
+    }
+
+    /**
+     * Costruttore della decomposizione ai valori singolari limitata alle prime k componenti
+     * @param a Matrice da decomporre, non viene modificata
+     * @param k Numero di componenti, tra 0 e min(M,N)
+     */
+    public SingularValueDecomposition(Matrix a, int k) {
+        this(a, k, null);
+    }
+
+    /**
+     * Costruttore della decomposizione ai valori singolari limitata alle prime k componenti,
+     * con la bidiagonalizzazione e il calcolo dei vettori eseguiti in parallelo
+     * @param a Matrice da decomporre, non viene modificata
+     * @param k Numero di componenti, tra 0 e min(M,N)
+     * @param pool Pool su cui eseguire il calcolo, se {@code null} viene eseguito in modo seriale
+     */
+    public SingularValueDecomposition(Matrix a, int k, ForkJoinPool pool) {
+        m = a.getNumRows();
+        n = a.getNumColumns();
+        int q = Math.min(m, n), p = Math.max(m, n);
+        if (k < 0 || k > q)
+            throw new RuntimeException("Illegal number of components: " + k + " out of bounds 0 - " + q);
+        this.k = k;
+
+        //si decompone W = A se M >= N, altrimenti W = Aᵀ, memorizzata per colonne in un buffer PxQ
+        boolean transposed = m < n;
+        double[] w = new double[p * q];
+        if (transposed) {
+            for (int i = 0; i < m; i++) a.copyRowTo(i, w, i * p);
+        } else {
+            double[] row = new double[n];
+            for (int i = 0; i < m; i++) {
+                a.copyRowTo(i, row, 0);
+                for (int j = 0; j < n; j++) w[j * p + i] = row[j];
+            }
+        }
+        double[] diagonal = new double[q], superDiagonal = new double[q], reflectors = new double[q * q];
+        bidiagonalize(w, p, q, diagonal, superDiagonal, reflectors, pool);
+
+        double[] values = diagonal.clone(), e = superDiagonal.clone();
+        double[] u = new double[k * p], v = new double[k * q];
+        boolean full = k == q;
+        if (!full) {
+            bidiagonalQR(values, e, null, p, null, q);
+            double norm = 0;
+            for (int i = 0; i < q; i++)
+                norm = Math.max(norm, Math.abs(diagonal[i]) + Math.abs(superDiagonal[i]) + (i > 0 ? Math.abs(superDiagonal[i - 1]) : 0));
+            if (k > 0 && 2 * values[k - 1] > SEPARATION * norm) {
+                vectors(diagonal, superDiagonal, values, k, u, p, v, q);
+                EigenDecomposition.run(pool, 0, k, (long) k * p * q, (start, end) -> {
+                    for (int j = start; j < end; j++) {
+                        reflectLeft(w, p, q - 1, u, j * p);
+                        reflectRight(reflectors, q, q - 3, v, j * q);
+                    }
+                });
+            } else if (k > 0) {
+                full = true;
+                values = diagonal.clone();
+                e = superDiagonal.clone();
+            }
+        }
+        if (full) {
+            double[] ut = new double[q * p], vt = new double[q * q];
+            EigenDecomposition.run(pool, 0, q, (long) q * p * q, (start, end) -> {
+                for (int j = start; j < end; j++) {
+                    ut[j * p + j] = 1;
+                    reflectLeft(w, p, j, ut, j * p);
+                    vt[j * q + j] = 1;
+                    reflectRight(reflectors, q, j - 1, vt, j * q);
+                }
+            });
+            bidiagonalQR(values, e, ut, p, vt, q);
+            System.arraycopy(ut, 0, u, 0, k * p);
+            System.arraycopy(vt, 0, v, 0, k * q);
+        }
+        singularValues = values;
+        left = transposed ? v : u;
+        right = transposed ? u : v;
+    }
+
+    /**
+     * Riduce W in forma bidiagonale superiore B = Qᵀ W P. Al passo k la riflessione H = I - v vᵀ / v[0]
+     * annulla la colonna k sotto la diagonale e viene memorizzata al suo posto, con v[0] = 0 se non necessaria;
+     * la riflessione G = I - r rᵀ / r[0] annulla la riga k a destra della sopradiagonale e viene memorizzata
+     * nella riga k di {@code reflectors}
+     * @param w Buffer di lavoro PxQ, per colonne
+     * @param diagonal Diagonale di B
+     * @param superDiagonal Sopradiagonale di B, con superDiagonal[Q-1] = 0
+     * @param reflectors Vettori delle riflessioni sulle righe, QxQ
+     */
+    private static void bidiagonalize(double[] w, int p, int q, double[] diagonal, double[] superDiagonal,
+                                      double[] reflectors, ForkJoinPool pool) {
+        double[] t = new double[p];
+        for (int step = 0; step < q; step++) {
+            final int k = step, ck = k * p + k, length = p - k;
+            double nrm = EigenDecomposition.norm(w, ck, length);
+            if (nrm != 0) {
+                if (w[ck] < 0) nrm = -nrm;
+                Kernels.affine(w, ck, 1 / nrm, 0, w, ck, length);
+                w[ck] += 1;
+                EigenDecomposition.run(pool, k + 1, q, (long) length * (q - k - 1), (start, end) -> {
+                    for (int j = start; j < end; j++) {
+                        int cj = j * p + k;
+                        double s = -Kernels.dot(w, ck, w, cj, length) / w[ck];
+                        Kernels.combine(w, cj, s, w, ck, w, cj, length);
+                    }
+                });
+            }
+            diagonal[k] = -nrm;
+
+            if (k < q - 2) {
+                final int r = k * q + k + 1, columns = q - k - 1;
+                for (int j = k + 1; j < q; j++) reflectors[k * q + j] = w[j * p + k];
+                nrm = EigenDecomposition.norm(reflectors, r, columns);
+                if (nrm != 0) {
+                    if (reflectors[r] < 0) nrm = -nrm;
+                    Kernels.affine(reflectors, r, 1 / nrm, 0, reflectors, r, columns);
+                    reflectors[r] += 1;
+                    final int from = k + 1;
+                    EigenDecomposition.run(pool, from, p, (long) (p - from) * columns, (start, end) -> {
+                        int rows = end - start;
+                        Arrays.fill(t, start, end, 0);
+                        for (int j = 0; j < columns; j++)
+                            Kernels.combine(t, start, reflectors[r + j], w, (from + j) * p + start, t, start, rows);
+                        for (int j = 0; j < columns; j++)
+                            Kernels.combine(w, (from + j) * p + start, -reflectors[r + j] / reflectors[r], t, start,
+                                    w, (from + j) * p + start, rows);
+                    });
+                }
+                superDiagonal[k] = -nrm;
+            } else if (k == q - 2) {
+                superDiagonal[k] = w[(q - 1) * p + k];
+            }
+        }
+    }
+
+    /**
+     * Applica a un vettore di P elementi le riflessioni sulle colonne da {@code last} a 0, x = H0 ... Hlast x
+     */
+    private static void reflectLeft(double[] w, int p, int last, double[] x, int xi) {
+        for (int h = last; h >= 0; h--) {
+            int ch = h * p + h, length = p - h;
+            if (w[ch] == 0) continue;
+            double s = -Kernels.dot(w, ch, x, xi + h, length) / w[ch];
+            Kernels.combine(x, xi + h, s, w, ch, x, xi + h, length);
+        }
+    }
+
+    /**
+     * Applica a un vettore di Q elementi le riflessioni sulle righe da {@code last} a 0, x = G0 ... Glast x
+     */
+    private static void reflectRight(double[] reflectors, int q, int last, double[] x, int xi) {
+        for (int h = Math.min(last, q - 3); h >= 0; h--) {
+            int r = h * q + h + 1, length = q - h - 1;
+            if (reflectors[r] == 0) continue;
+            double s = -Kernels.dot(reflectors, r, x, xi + h + 1, length) / reflectors[r];
+            Kernels.combine(x, xi + h + 1, s, reflectors, r, x, xi + h + 1, length);
+        }
+    }
+
+    /**
+     * Calcola i primi k vettori singolari di B come autovettori della tridiagonale di Golub-Kahan
+     * di ordine 2Q, con elementi fuori diagonale (d0, e0, d1, e1, ...), i cui autovettori relativi a σ
+     * alternano gli elementi di v e di u
+     * @param values Valori singolari in ordine decrescente
+     * @param u Vettori sinistri, per righe di P elementi di cui vengono scritti i primi Q
+     * @param v Vettori destri, per righe di Q elementi
+     */
+    private static void vectors(double[] diagonal, double[] superDiagonal, double[] values, int k,
+                                double[] u, int p, double[] v, int q) {
+        double[] d = new double[2 * q], e = new double[2 * q];
+        for (int i = 0; i < q; i++) {
+            e[2 * i] = diagonal[i];
+            e[2 * i + 1] = superDiagonal[i];
+        }
+        double[] z = EigenDecomposition.tridiagonalVectors(d, e, values, k);
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < q; i++) {
+                v[j * q + i] = z[j * 2 * q + 2 * i];
+                u[j * p + i] = z[j * 2 * q + 2 * i + 1];
+            }
+            Kernels.affine(v, j * q, 1 / EigenDecomposition.norm(v, j * q, q), 0, v, j * q, q);
+            Kernels.affine(u, j * p, 1 / EigenDecomposition.norm(u, j * p, q), 0, u, j * p, q);
+        }
+    }
+
+    /**
+     * Calcola i valori singolari di una matrice bidiagonale superiore con l'algoritmo QR implicito
+     * con shift (Golub-Kahan-Reinsch), azzerando gli elementi trascurabili per separare il problema
+     * in blocchi indipendenti, e se indicato accumula le rotazioni nelle righe di ut e vt
+     * @param s Diagonale, sostituita dai valori singolari in ordine decrescente
+     * @param e Sopradiagonale, con e[q-1] = 0, viene distrutta
+     * @param ut Vettori sinistri per righe di P elementi, QxP; può essere {@code null}
+     * @param vt Vettori destri per righe di Q elementi, QxQ; può essere {@code null}
+     */
+    private static void bidiagonalQR(double[] s, double[] e, double[] ut, int p, double[] vt, int q) {
+        int last = q, iteration = 0;
+        double eps = Math.ulp(1.0), tiny = Math.scalb(1.0, -966);
+        while (last > 0) {
+            int k, kase;
+            //ricerca del blocco non ancora diagonale che termina in last-1
+            for (k = last - 2; k >= 0; k--) {
+                if (Math.abs(e[k]) <= tiny + eps * (Math.abs(s[k]) + Math.abs(s[k + 1]))) {
+                    e[k] = 0;
+                    break;
+                }
+            }
+            if (k == last - 2) {
+                kase = 4;
+            } else {
+                int ks;
+                for (ks = last - 1; ks > k; ks--) {
+                    double t = (ks != last ? Math.abs(e[ks]) : 0) + (ks != k + 1 ? Math.abs(e[ks - 1]) : 0);
+                    if (Math.abs(s[ks]) <= tiny + eps * t) {
+                        s[ks] = 0;
+                        break;
+                    }
+                }
+                if (ks == k) {
+                    kase = 3;
+                } else if (ks == last - 1) {
+                    kase = 1;
+                } else {
+                    kase = 2;
+                    k = ks;
+                }
+            }
+            k++;
+
+            switch (kase) {
+                case 1: { //s[last-1] trascurabile: si annulla e[last-2] con rotazioni sulle colonne
+                    double f = e[last - 2];
+                    e[last - 2] = 0;
+                    for (int j = last - 2; j >= k; j--) {
+                        double t = Math.hypot(s[j], f), cs = s[j] / t, sn = f / t;
+                        s[j] = t;
+                        if (j != k) {
+                            f = -sn * e[j - 1];
+                            e[j - 1] = cs * e[j - 1];
+                        }
+                        if (vt != null) EigenDecomposition.rotate(vt, j * q, (last - 1) * q, q, cs, sn);
+                    }
+                    break;
+                }
+                case 2: { //s[k-1] trascurabile: si annulla e[k-1] con rotazioni sulle righe
+                    double f = e[k - 1];
+                    e[k - 1] = 0;
+                    for (int j = k; j < last; j++) {
+                        double t = Math.hypot(s[j], f), cs = s[j] / t, sn = f / t;
+                        s[j] = t;
+                        f = -sn * e[j];
+                        e[j] = cs * e[j];
+                        if (ut != null) EigenDecomposition.rotate(ut, j * p, (k - 1) * p, p, cs, sn);
+                    }
+                    break;
+                }
+                case 3: { //passo QR con shift calcolato sul blocco 2x2 finale
+                    if (++iteration > EigenDecomposition.MAX_ITERATIONS)
+                        throw new RuntimeException("Illegal state: singular values did not converge");
+                    double scale = Math.max(Math.max(Math.max(Math.max(
+                            Math.abs(s[last - 1]), Math.abs(s[last - 2])), Math.abs(e[last - 2])),
+                            Math.abs(s[k])), Math.abs(e[k]));
+                    double sp = s[last - 1] / scale, spm1 = s[last - 2] / scale, epm1 = e[last - 2] / scale;
+                    double sk = s[k] / scale, ek = e[k] / scale;
+                    double b = ((spm1 + sp) * (spm1 - sp) + epm1 * epm1) / 2;
+                    double c = (sp * epm1) * (sp * epm1);
+                    double shift = 0;
+                    if (b != 0 || c != 0) {
+                        shift = Math.sqrt(b * b + c);
+                        if (b < 0) shift = -shift;
+                        shift = c / (b + shift);
+                    }
+                    double f = (sk + sp) * (sk - sp) + shift;
+                    double g = sk * ek;
+                    for (int j = k; j < last - 1; j++) {
+                        double t = Math.hypot(f, g), cs = f / t, sn = g / t;
+                        if (j != k) e[j - 1] = t;
+                        f = cs * s[j] + sn * e[j];
+                        e[j] = cs * e[j] - sn * s[j];
+                        g = sn * s[j + 1];
+                        s[j + 1] = cs * s[j + 1];
+                        if (vt != null) EigenDecomposition.rotate(vt, j * q, (j + 1) * q, q, cs, sn);
+                        t = Math.hypot(f, g);
+                        cs = f / t;
+                        sn = g / t;
+                        s[j] = t;
+                        f = cs * e[j] + sn * s[j + 1];
+                        s[j + 1] = -sn * e[j] + cs * s[j + 1];
+                        g = sn * e[j + 1];
+                        e[j + 1] = cs * e[j + 1];
+                        if (ut != null) EigenDecomposition.rotate(ut, j * p, (j + 1) * p, p, cs, sn);
+                    }
+                    e[last - 2] = f;
+                    break;
+                }
+                default: { //convergenza di s[k]: si rende positivo e lo si porta in ordine
+                    if (s[k] <= 0) {
+                        s[k] = s[k] < 0 ? -s[k] : 0;
+                        if (vt != null) Kernels.affine(vt, k * q, -1, 0, vt, k * q, q);
+                    }
+                    for (; k < q - 1 && s[k] < s[k + 1]; k++) {
+                        double t = s[k];
+                        s[k] = s[k + 1];
+                        s[k + 1] = t;
+                        if (vt != null) swap(vt, k * q, (k + 1) * q, q);
+                        if (ut != null) swap(ut, k * p, (k + 1) * p, p);
+                    }
+                    iteration = 0;
+                    last--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scambia due righe di un buffer
+     */
+    private static void swap(double[] x, int a, int b, int length) {
+        for (int t = 0; t < length; t++) {
+            double tmp = x[a + t];
+            x[a + t] = x[b + t];
+            x[b + t] = tmp;
+        }
+    }
+
+    /**
+     * Ritorna i valori singolari delle componenti calcolate, in ordine decrescente
+     * @return Copia dei primi k valori singolari
+     */
+    public double[] getSingularValues() {
+        return Arrays.copyOf(singularValues, k);
+    }
+
+    /**
+     * Ritorna la matrice diagonale S dei valori singolari calcolati, di dimensione kxk
+     * @return La matrice S
+     */
+    public Matrix getS() {
+        Matrix s = new Matrix(k, k);
+        for (int i = 0; i < k; i++) s.unsafeSet(singularValues[i], i, i);
+        return s;
+    }
+
+    /**
+     * Ritorna la matrice U dei vettori singolari sinistri calcolati, di dimensione Mxk
+     * @return La matrice U
+     */
+    public Matrix getU() {
+        return k == 0 ? new Matrix(m, 0) : new Matrix(left.clone(), k).transposedView().materialize();
+    }
+
+    /**
+     * Ritorna la matrice V dei vettori singolari destri calcolati, di dimensione Nxk
+     * @return La matrice V
+     */
+    public Matrix getV() {
+        return k == 0 ? new Matrix(n, 0) : new Matrix(right.clone(), k).transposedView().materialize();
+    }
+
+    /**
+     * Ritorna la norma 2 della matrice, uguale al valore singolare maggiore
+     * @return La norma 2
+     */
+    public double norm2() {
+        return singularValues.length == 0 ? 0 : singularValues[0];
+    }
+
+    /**
+     * Ritorna il numero di condizionamento in norma 2, rapporto tra il valore singolare maggiore e il minore
+     * @return Il numero di condizionamento, infinito se la matrice non ha rango pieno
+     */
+    public double condition() {
+        int q = singularValues.length;
+        return q == 0 ? 0 : singularValues[0] / singularValues[q - 1];
+    }
+
+    /**
+     * Ritorna la tolleranza predefinita per il calcolo del rango: max(M,N) * eps * σ1
+     * @return La tolleranza predefinita
+     */
+    public double defaultTolerance() {
+        return Math.max(m, n) * Math.ulp(1.0) * norm2();
+    }
+
+    /**
+     * Calcola il rango numerico con la tolleranza predefinita
+     * @return Il rango della matrice
+     * @see #defaultTolerance()
+     */
+    public int rank() {
+        return rank(defaultTolerance());
+    }
+
+    /**
+     * Calcola il rango numerico come numero di valori singolari maggiori della tolleranza; a differenza
+     * del rango calcolato con la decomposizione QR con pivoting, che può sovrastimarlo su matrici
+     * quasi singolari particolari, è la misura più affidabile del rango numerico.
+     * Tiene conto di tutti i valori singolari anche se sono state calcolate solo le prime k componenti
+     * @param tolerance Soglia sotto la quale un valore singolare è considerato nullo
+     * @return Il rango della matrice
+     */
+    public int rank(double tolerance) {
+        int rank = 0;
+        while (rank < singularValues.length && singularValues[rank] > tolerance) rank++;
+        return rank;
+    }
+}
@@ -0,0 +1,616 @@
+package it.matrix;
+import java.util.Arrays;
+
+/**
+ * Matrice sparsa immutabile in formato compresso per righe (CSR) o per colonne (CSC).
+ * Vengono memorizzati solo gli elementi non nulli, per cui memoria e tempo di calcolo
+ * dipendono dal numero di elementi non nulli (nnz) e non dalla dimensione della matrice.
+ * Nel formato CSR le righe sono le linee principali: gli elementi della riga i occupano le posizioni
+ * [pointers[i], pointers[i+1]) dei vettori indices (indici di colonna, crescenti) e values;
+ * il formato CSC è analogo con il ruolo di righe e colonne scambiato.
+ * Le matrici si costruiscono con un {@link Builder} in formato a coordinate (COO)
+ * oppure a partire da una matrice densa con {@link #of(Matrix, Format)}
+ * @author Erik Gurzau
+ */
+public class SparseMatrix implements RealMatrix {
+    /**
+     * Formato di memorizzazione degli elementi non nulli
+     */
+    public enum Format {
+        /**
+         * Compresso per righe, adatto al prodotto con matrici e vettori e all'accesso per righe
+         */
+        CSR,
+        /**
+         * Compresso per colonne, adatto all'accesso per colonne
+         */
+        CSC
+    }
+
+    /**
+     * Formato di memorizzazione
+     */
+    private final Format format;
+    /**
+     * Numero di righe
+     */
+    private final int rows;
+    /**
+     * Numero di colonne
+     */
+    private final int columns;
+    /**
+     * Inizio di ogni linea principale nei vettori indices e values, con un elemento finale pari a nnz
+     */
+    private final int[] pointers;
+    /**
+     * Indici secondari (di colonna per CSR, di riga per CSC) degli elementi non nulli
+     */
+    private final int[] indices;
+    /**
+     * Valori degli elementi non nulli
+     */
+    private final double[] values;
+
+    /**
+     * Costruttore di una matrice sparsa a partire dai vettori compressi, che non vengono copiati
+     * @param format Formato dei vettori
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param pointers Inizio di ogni linea principale
+     * @param indices Indici secondari, crescenti in ogni linea
+     * @param values Valori non nulli
+     */
+    SparseMatrix(Format format, int rows, int columns, int[] pointers, int[] indices, double[] values) {
+        this.format = format;
+        this.rows = rows;
+        this.columns = columns;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * Crea una matrice sparsa con gli elementi non nulli di una matrice densa
+     * @param m Matrice densa
+     * @param format Formato della matrice sparsa
+     * @return La matrice sparsa
+     */
+    public static SparseMatrix of(Matrix m, Format format) {
+        int rows = m.getNumRows(), columns = m.getNumColumns();
+        int[] pointers = new int[rows + 1];
+        int[] indices = new int[16];
+        double[] values = new double[16];
+        double[] row = new double[columns];
+        int nnz = 0;
+        for (int i = 0; i < rows; i++) {
+            m.copyRowTo(i, row, 0);
+            for (int j = 0; j < columns; j++) {
+                if (row[j] == 0) continue;
+                if (nnz == indices.length) {
+                    indices = Arrays.copyOf(indices, 2 * nnz);
+                    values = Arrays.copyOf(values, 2 * nnz);
+                }
+                indices[nnz] = j;
+                values[nnz++] = row[j];
+            }
+            pointers[i + 1] = nnz;
+        }
+        SparseMatrix csr = new SparseMatrix(Format.CSR, rows, columns, pointers,
+                Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+        return csr.toFormat(format);
+    }
+
+    /**
+     * Crea una matrice identità sparsa
+     * @param n Ordine della matrice
+     * @param format Formato della matrice sparsa
+     * @return La matrice identità NxN
+     */
+    public static SparseMatrix identity(int n, Format format) {
+        if (n < 0)
+            throw new RuntimeException("Illegal matrix size: " + n + "x" + n);
+        int[] pointers = new int[n + 1], indices = new int[n];
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            pointers[i + 1] = i + 1;
+            indices[i] = i;
+            values[i] = 1;
+        }
+        return new SparseMatrix(format, n, n, pointers, indices, values);
+    }
+
+    /**
+     * Costruttore incrementale di matrici sparse in formato a coordinate (COO):
+     * gli elementi possono essere aggiunti in qualsiasi ordine e gli elementi
+     * aggiunti più volte nella stessa posizione vengono sommati
+     */
+    public static class Builder {
+        private final int rows;
+        private final int columns;
+        private int[] rowIndices = new int[16];
+        private int[] columnIndices = new int[16];
+        private double[] values = new double[16];
+        private int size;
+
+        /**
+         * Costruttore di una matrice sparsa vuota
+         * @param rows Numero di righe
+         * @param columns Numero di colonne
+         */
+        public Builder(int rows, int columns) {
+            if (rows < 0 || columns < 0)
+                throw new RuntimeException("Illegal matrix size: " + rows + "x" + columns);
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        /**
+         * Aggiunge un elemento in una posizione, sommandolo a quelli già presenti
+         * @param value Valore dell'elemento
+         * @param row Indice della riga
+         * @param column Indice della colonna
+         * @return Questo costruttore
+         */
+        public Builder add(double value, int row, int column) {
+            if (row < 0 || row >= rows)
+                throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + rows);
+            if (column < 0 || column >= columns)
+                throw new RuntimeException("Illegal column index: " + column + " out of bounds 0 - " + columns);
+            if (value == 0) return this;
+            if (size == values.length) {
+                rowIndices = Arrays.copyOf(rowIndices, 2 * size);
+                columnIndices = Arrays.copyOf(columnIndices, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            rowIndices[size] = row;
+            columnIndices[size] = column;
+            values[size++] = value;
+            return this;
+        }
+
+        /**
+         * Costruisce la matrice sparsa ordinando gli elementi con due passate di counting sort,
+         * prima sull'indice secondario e poi, in modo stabile, su quello principale, in O(nnz + N + M).
+         * Gli elementi duplicati vengono sommati e quelli che si annullano vengono scartati
+         * @param format Formato della matrice sparsa
+         * @return La matrice sparsa
+         */
+        public SparseMatrix build(Format format) {
+            boolean csr = format == Format.CSR;
+            int[] major = csr ? rowIndices : columnIndices, minor = csr ? columnIndices : rowIndices;
+            int majorSize = csr ? rows : columns, minorSize = csr ? columns : rows;
+
+            int[] byMinor = sortBy(minor, minorSize, null);
+            int[] order = sortBy(major, majorSize, byMinor);
+
+            int[] pointers = new int[majorSize + 1];
+            int[] indices = new int[size];
+            double[] sorted = new double[size];
+            int nnz = 0, line = 0;
+            for (int t = 0; t < size; t++) {
+                int e = order[t];
+                for (; line < major[e]; line++) pointers[line + 1] = nnz;
+                if (nnz > pointers[line] && indices[nnz - 1] == minor[e]) {
+                    sorted[nnz - 1] += values[e];
+                } else {
+                    indices[nnz] = minor[e];
+                    sorted[nnz++] = values[e];
+                }
+            }
+            for (; line < majorSize; line++) pointers[line + 1] = nnz;
+            return new SparseMatrix(format, rows, columns, pointers, indices, sorted).compact();
+        }
+
+        /**
+         * Ordinamento stabile per conteggio degli elementi in base a una chiave
+         * @param keys Chiave di ogni elemento
+         * @param range Numero di valori distinti della chiave
+         * @param input Ordine di partenza degli elementi, {@code null} per l'ordine di inserimento
+         * @return Le posizioni degli elementi ordinate per chiave
+         */
+        private int[] sortBy(int[] keys, int range, int[] input) {
+            int[] start = new int[range + 1];
+            for (int t = 0; t < size; t++) start[keys[t] + 1]++;
+            for (int k = 0; k < range; k++) start[k + 1] += start[k];
+            int[] output = new int[size];
+            for (int t = 0; t < size; t++) {
+                int e = input == null ? t : input[t];
+                output[start[keys[e]]++] = e;
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Ritorna il formato di memorizzazione
+     * @return Il formato della matrice
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    public int getNumRows() {
+        return rows;
+    }
+
+    public int getNumColumns() {
+        return columns;
+    }
+
+    /**
+     * Ritorna il numero di elementi memorizzati, tutti non nulli
+     * @return Il numero di elementi non nulli
+     */
+    public int nonZeros() {
+        return pointers[majorSize()];
+    }
+
+    /**
+     * Ritorna il numero di linee principali: righe per CSR, colonne per CSC
+     */
+    private int majorSize() {
+        return format == Format.CSR ? rows : columns;
+    }
+
+    /**
+     * Ritorna un elemento in una posizione specifica, cercandolo per bisezione nella sua linea
+     * @param row Indice della riga
+     * @param column Indice della colonna
+     * @return L'elemento nella posizione specificata
+     */
+    public double get(int row, int column) {
+        if (row < 0 || row >= rows)
+            throw new RuntimeException("Illegal row index: " + row + " out of bounds 0 - " + rows);
+        if (column < 0 || column >= columns)
+            throw new RuntimeException("Illegal column index: " + column + " out of bounds 0 - " + columns);
+        int line = format == Format.CSR ? row : column, key = format == Format.CSR ? column : row;
+        int p = Arrays.binarySearch(indices, pointers[line], pointers[line + 1], key);
+        return p >= 0 ? values[p] : 0;
+    }
+
+    /**
+     * Converte la matrice nel formato indicato, in O(nnz + N + M)
+     * @param target Formato richiesto
+     * @return Questa matrice se è già nel formato richiesto, altrimenti una nuova matrice
+     */
+    public SparseMatrix toFormat(Format target) {
+        if (target == format) return this;
+        int minorSize = format == Format.CSR ? columns : rows, nnz = nonZeros();
+        int[] newPointers = new int[minorSize + 1];
+        for (int p = 0; p < nnz; p++) newPointers[indices[p] + 1]++;
+        for (int k = 0; k < minorSize; k++) newPointers[k + 1] += newPointers[k];
+
+        int[] next = Arrays.copyOf(newPointers, minorSize);
+        int[] newIndices = new int[nnz];
+        double[] newValues = new double[nnz];
+        for (int line = 0, end = majorSize(); line < end; line++) {
+            for (int p = pointers[line]; p < pointers[line + 1]; p++) {
+                int q = next[indices[p]]++;
+                newIndices[q] = line;
+                newValues[q] = values[p];
+            }
+        }
+        return new SparseMatrix(target, rows, columns, newPointers, newIndices, newValues);
+    }
+
+    /**
+     * Ritorna la matrice trasposta in O(1): i vettori compressi di una matrice CSR
+     * descrivono la sua trasposta in formato CSC e viceversa, per cui vengono condivisi
+     * @return La matrice trasposta, nel formato opposto a questa
+     */
+    public SparseMatrix transposed() {
+        Format other = format == Format.CSR ? Format.CSC : Format.CSR;
+        return new SparseMatrix(other, columns, rows, pointers, indices, values);
+    }
+
+    /**
+     * Prodotto righe per colonne con una matrice densa, in O(nnz * K): per ogni elemento
+     * non nullo Aik, la riga k di B moltiplicata per Aik viene accumulata nella riga i del risultato
+     * @param other Matrice densa NxK da moltiplicare a questa
+     * @return La matrice densa risultante dal prodotto
+     */
+    public Matrix multiply(Matrix other) {
+        if (columns != other.getNumRows())
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + columns + " != " + other.getNumRows());
+
+        int n = other.getNumColumns();
+        if (rows == 0 || n == 0) return new Matrix(rows, n);
+        double[] b = new double[columns * n], c = new double[rows * n];
+        for (int k = 0; k < columns; k++) other.copyRowTo(k, b, k * n);
+
+        boolean csr = format == Format.CSR;
+        for (int line = 0, end = majorSize(); line < end; line++) {
+            for (int p = pointers[line]; p < pointers[line + 1]; p++) {
+                int i = csr ? line : indices[p], k = csr ? indices[p] : line;
+                Kernels.combine(c, i * n, values[p], b, k * n, c, i * n, n);
+            }
+        }
+        return new Matrix(c, rows);
+    }
+
+    /**
+     * Prodotto righe per colonne tra matrici sparse con l'algoritmo di Gustavson:
+     * ogni riga del risultato viene accumulata in un vettore denso di appoggio, tenendo traccia
+     * delle colonne toccate, per cui il costo è proporzionale al numero di moltiplicazioni eseguite
+     * @param other Matrice sparsa NxK da moltiplicare a questa
+     * @return La matrice sparsa risultante dal prodotto, in formato CSR
+     */
+    public SparseMatrix multiply(SparseMatrix other) {
+        if (columns != other.rows)
+            throw new RuntimeException("Illegal product rows by columns: the number of rows and columns are not equals " + columns + " != " + other.rows);
+
+        SparseMatrix a = toFormat(Format.CSR), b = other.toFormat(Format.CSR);
+        int n = b.columns;
+        int[] pointers = new int[rows + 1];
+        int[] indices = new int[Math.max(16, a.nonZeros() + b.nonZeros())];
+        double[] values = new double[indices.length];
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        double[] acc = new double[n];
+
+        int nnz = 0;
+        for (int i = 0; i < rows; i++) {
+            int start = nnz;
+            for (int p = a.pointers[i]; p < a.pointers[i + 1]; p++) {
+                int k = a.indices[p];
+                double v = a.values[p];
+                for (int q = b.pointers[k]; q < b.pointers[k + 1]; q++) {
+                    int j = b.indices[q];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        acc[j] = v * b.values[q];
+                        if (nnz == indices.length) {
+                            indices = Arrays.copyOf(indices, 2 * nnz);
+                            values = Arrays.copyOf(values, 2 * nnz);
+                        }
+                        indices[nnz++] = j;
+                    } else {
+                        acc[j] += v * b.values[q];
+                    }
+                }
+            }
+            Arrays.sort(indices, start, nnz);
+            int end = nnz;
+            nnz = start;
+            for (int t = start; t < end; t++) {
+                double v = acc[indices[t]];
+                if (v == 0) continue;
+                indices[nnz] = indices[t];
+                values[nnz++] = v;
+            }
+            pointers[i + 1] = nnz;
+        }
+        return new SparseMatrix(Format.CSR, rows, n, pointers,
+                Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    /**
+     * Somma elemento per elemento con un'altra matrice sparsa
+     * @param other Matrice sparsa della stessa dimensione
+     * @return La matrice somma, nel formato di questa
+     */
+    public SparseMatrix sum(SparseMatrix other) {
+        return combine(other, 1);
+    }
+
+    /**
+     * Differenza elemento per elemento con un'altra matrice sparsa
+     * @param other Matrice sparsa della stessa dimensione
+     * @return La matrice differenza, nel formato di questa
+     */
+    public SparseMatrix diff(SparseMatrix other) {
+        return combine(other, -1);
+    }
+
+    /**
+     * Moltiplica ogni elemento per uno scalare. Gli elementi il cui prodotto si annulla
+     * per underflow non vengono memorizzati
+     * @param scalar Valore per cui moltiplicare
+     * @return La matrice risultante, nel formato di questa
+     */
+    public SparseMatrix multiply(double scalar) {
+        if (scalar == 0) return new Builder(rows, columns).build(format);
+        double[] scaled = new double[nonZeros()];
+        Kernels.affine(values, 0, scalar, 0, scaled, 0, scaled.length);
+        return new SparseMatrix(format, rows, columns, pointers, indices, scaled).compact();
+    }
+
+    /**
+     * Prodotto elemento per elemento (di Hadamard) con un'altra matrice sparsa:
+     * sono non nulli solo gli elementi presenti in entrambe le matrici
+     * @param other Matrice sparsa della stessa dimensione
+     * @return La matrice risultante, nel formato di questa
+     */
+    public SparseMatrix elementMultiply(SparseMatrix other) {
+        checkSameSize(other);
+        SparseMatrix b = other.toFormat(format);
+        int lines = majorSize();
+        int[] newPointers = new int[lines + 1];
+        int[] newIndices = new int[Math.min(nonZeros(), b.nonZeros())];
+        double[] newValues = new double[newIndices.length];
+        int nnz = 0;
+        for (int line = 0; line < lines; line++) {
+            int p = pointers[line], pEnd = pointers[line + 1], q = b.pointers[line], qEnd = b.pointers[line + 1];
+            while (p < pEnd && q < qEnd) {
+                if (indices[p] < b.indices[q]) p++;
+                else if (indices[p] > b.indices[q]) q++;
+                else {
+                    double v = values[p] * b.values[q];
+                    if (v != 0) {
+                        newIndices[nnz] = indices[p];
+                        newValues[nnz++] = v;
+                    }
+                    p++;
+                    q++;
+                }
+            }
+            newPointers[line + 1] = nnz;
+        }
+        return new SparseMatrix(format, rows, columns, newPointers,
+                Arrays.copyOf(newIndices, nnz), Arrays.copyOf(newValues, nnz));
+    }
+
+    /**
+     * Calcola this + beta * other fondendo le linee ordinate delle due matrici, in O(nnz)
+     */
+    private SparseMatrix combine(SparseMatrix other, double beta) {
+        checkSameSize(other);
+        SparseMatrix b = other.toFormat(format);
+        int lines = majorSize();
+        int[] newPointers = new int[lines + 1];
+        int[] newIndices = new int[nonZeros() + b.nonZeros()];
+        double[] newValues = new double[newIndices.length];
+        int nnz = 0;
+        for (int line = 0; line < lines; line++) {
+            int p = pointers[line], pEnd = pointers[line + 1], q = b.pointers[line], qEnd = b.pointers[line + 1];
+            while (p < pEnd || q < qEnd) {
+                int j;
+                double v;
+                if (q == qEnd || (p < pEnd && indices[p] < b.indices[q])) {
+                    j = indices[p];
+                    v = values[p++];
+                } else if (p == pEnd || indices[p] > b.indices[q]) {
+                    j = b.indices[q];
+                    v = beta * b.values[q++];
+                } else {
+                    j = indices[p];
+                    v = values[p++] + beta * b.values[q++];
+                }
+                if (v == 0) continue;
+                newIndices[nnz] = j;
+                newValues[nnz++] = v;
+            }
+            newPointers[line + 1] = nnz;
+        }
+        return new SparseMatrix(format, rows, columns, newPointers,
+                Arrays.copyOf(newIndices, nnz), Arrays.copyOf(newValues, nnz));
+    }
+
+    /**
+     * Controlla che un'altra matrice abbia la stessa dimensione di questa
+     */
+    private void checkSameSize(SparseMatrix other) {
+        if (rows != other.rows || columns != other.columns)
+            throw new RuntimeException("Illegal matrices length: the matricies aren't the same type");
+    }
+
+    /**
+     * Rimuove gli elementi nulli dai vettori compressi
+     * @return Questa matrice se non contiene elementi nulli, altrimenti una nuova matrice
+     */
+    private SparseMatrix compact() {
+        int nnz = 0, lines = majorSize();
+        for (int p = 0; p < nonZeros(); p++) if (values[p] != 0) nnz++;
+        if (nnz == nonZeros()) return this;
+        int[] newPointers = new int[lines + 1], newIndices = new int[nnz];
+        double[] newValues = new double[nnz];
+        nnz = 0;
+        for (int line = 0; line < lines; line++) {
+            for (int p = pointers[line]; p < pointers[line + 1]; p++) {
+                if (values[p] == 0) continue;
+                newIndices[nnz] = indices[p];
+                newValues[nnz++] = values[p];
+            }
+            newPointers[line + 1] = nnz;
+        }
+        return new SparseMatrix(format, rows, columns, newPointers, newIndices, newValues);
+    }
+
+    public boolean isSquare() {
+        return rows == columns;
+    }
+
+    /**
+     * Controlla se la matrice è nulla, in O(1) poiché vengono memorizzati solo elementi non nulli
+     * @return {@code true} Se e solo se, ogni elemento della matrice è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isNull() {
+        return nonZeros() == 0;
+    }
+
+    /**
+     * Controlla se la matrice è diagonale, in O(nnz)
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è diverso da 0, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isDiagonal() {
+        if (!isSquare() || nonZeros() != rows) return false;
+        for (int line = 0; line < rows; line++)
+            if (pointers[line + 1] - pointers[line] != 1 || indices[pointers[line]] != line) return false;
+        return true;
+    }
+
+    /**
+     * Controlla se la matrice è identità, in O(nnz)
+     * @return {@code true} Se e solo se, ogni elemento della diagonale
+     *          principale, in posizione i = j, è uguale a 1, mentre
+     *          dove i != j, è uguale a 0;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isIdentity() {
+        if (!isDiagonal()) return false;
+        for (int p = 0; p < rows; p++) if (values[p] != 1) return false;
+        return true;
+    }
+
+    /**
+     * Controlla se la matrice è triangolare superiore, in O(nnz)
+     * @return {@code true} Se e solo se, la matrice è quadrata ed l'elemento
+     *          in posizione (i,j) della matrice è uguale a 0 ed i > j;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isUpperTriangular() {
+        return isSquare() && (format == Format.CSR ? minorNotBelow() : minorNotAbove());
+    }
+
+    /**
+     * Controlla se la matrice è triangolare inferiore, in O(nnz)
+     * @return {@code true} Se e solo se, la matrice è quadrata ed l'elemento
+     *          in posizione (i,j) della matrice è uguale a 0 ed i < j;
+     *          Altrimenti {@code false}.
+     */
+    public boolean isLowerTriangular() {
+        return isSquare() && (format == Format.CSR ? minorNotAbove() : minorNotBelow());
+    }
+
+    /**
+     * Controlla che in ogni linea l'indice secondario non sia minore di quello principale
+     */
+    private boolean minorNotBelow() {
+        for (int line = 0, end = majorSize(); line < end; line++)
+            if (pointers[line] < pointers[line + 1] && indices[pointers[line]] < line) return false;
+        return true;
+    }
+
+    /**
+     * Controlla che in ogni linea l'indice secondario non sia maggiore di quello principale
+     */
+    private boolean minorNotAbove() {
+        for (int line = 0, end = majorSize(); line < end; line++)
+            if (pointers[line] < pointers[line + 1] && indices[pointers[line + 1] - 1] > line) return false;
+        return true;
+    }
+
+    /**
+     * Ritorna una copia densa della matrice
+     * @return La matrice densa con gli stessi elementi
+     */
+    public Matrix toDense() {
+        if (rows == 0 || columns == 0) return new Matrix(rows, columns);
+        double[] dense = new double[rows * columns];
+        boolean csr = format == Format.CSR;
+        for (int line = 0, end = majorSize(); line < end; line++)
+            for (int p = pointers[line]; p < pointers[line + 1]; p++)
+                dense[csr ? line * columns + indices[p] : indices[p] * columns + line] = values[p];
+        return new Matrix(dense, rows);
+    }
+
+    @Override
+    public String toString() {
+        return "SparseMatrix " + format + " " + rows + "x" + columns + ", nnz = " + nonZeros();
+    }
+}
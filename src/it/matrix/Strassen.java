@@ -0,0 +1,234 @@
+package it.matrix;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prodotto tra matrici dense con la variante di Winograd dell'algoritmo di Strassen:
+ * ogni livello di ricorsione divide A, B e C in quattro blocchi e calcola il prodotto con
+ * 7 moltiplicazioni di blocchi e 15 addizioni, invece di 8 moltiplicazioni, per un costo
+ * di O(n^2.81) operazioni. Sotto una dimensione di soglia i blocchi vengono moltiplicati
+ * con il kernel classico di {@link Gemm}.
+ * Le dimensioni vengono portate una sola volta a un multiplo di 2^livelli aggiungendo
+ * righe e colonne nulle, così ogni livello divide blocchi di dimensione pari.
+ * <p>
+ * Errore: il kernel classico soddisfa la stima per componenti |C - Ĉ| ≤ k·u·|A|·|B|,
+ * mentre questa variante soddisfa solo una stima in norma (Higham, Accuracy and Stability
+ * of Numerical Algorithms, cap. 23):
+ * max|C - Ĉ| ≤ [(k/k0)^log2(18) · (k0² + 6·k0) − 6·k] · u · max|A| · max|B| + O(u²),
+ * dove u = 2^-53 e k0 è la dimensione condivisa dei blocchi alla soglia. Gli elementi
+ * piccoli di C, in presenza di elementi grandi di A o di B, possono quindi perdere accuratezza
+ * relativa; per matrici con elementi di grandezza simile l'errore osservato è di poco superiore
+ * a quello del kernel classico
+ * @see Matrix.MultiplicationStrategy
+ * @author Erik Gurzau
+ */
+final class Strassen {
+    /**
+     * Dimensione minima dei blocchi: sotto il doppio di questa soglia la ricorsione si ferma
+     * e il prodotto viene calcolato dal kernel classico
+     */
+    static final int CUTOFF = 256;
+    /**
+     * Numero di livelli di ricorsione i cui 7 prodotti vengono calcolati in parallelo
+     */
+    private static final int PARALLEL_DEPTH = 2;
+
+    private Strassen() {
+    }
+
+    /**
+     * Ritorna il numero di livelli di ricorsione per un prodotto MxK per KxN
+     * @return Il numero di livelli, 0 se il prodotto è troppo piccolo
+     */
+    static int levels(int m, int n, int k) {
+        int min = Math.min(m, Math.min(n, k)), levels = 0;
+        while ((min >> (levels + 1)) >= CUTOFF) levels++;
+        return levels;
+    }
+
+    /**
+     * Calcola C = alpha * A * B + beta * C
+     * @param pool Pool su cui calcolare in parallelo i prodotti dei primi livelli,
+     *             se {@code null} il prodotto viene calcolato in modo seriale
+     * @see Gemm#multiplyAdd(double[], int, int, double[], int, int, double[], int, int, int, int, int, double, double)
+     */
+    static void multiplyAdd(double[] a, int aOff, int lda, double[] b, int bOff, int ldb, double[] c, int cOff, int ldc,
+                            int m, int n, int k, double alpha, double beta, ForkJoinPool pool) {
+        int levels = levels(m, n, k);
+        if (levels == 0 || alpha == 0) {
+            if (pool == null) Gemm.multiplyAdd(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, m, n, k, alpha, beta);
+            else Gemm.multiplyAdd(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, m, n, k, alpha, beta, pool);
+            return;
+        }
+        int pm = pad(m, levels), pn = pad(n, levels), pk = pad(k, levels);
+        if (pm != m || pk != k) {
+            a = padded(a, aOff, lda, m, k, pm, pk);
+            aOff = 0;
+            lda = pk;
+        }
+        if (pk != k || pn != n) {
+            b = padded(b, bOff, ldb, k, n, pk, pn);
+            bOff = 0;
+            ldb = pn;
+        }
+        boolean direct = alpha == 1 && beta == 0 && pm == m && pn == n;
+        double[] p = direct ? c : new double[pm * pn];
+        int pOff = direct ? cOff : 0, ldp = direct ? ldc : pn;
+
+        Product product = new Product(a, aOff, lda, b, bOff, ldb, p, pOff, ldp, pm, pn, pk, levels, pool, 0);
+        if (pool == null) product.compute();
+        else pool.invoke(product);
+
+        if (direct) return;
+        for (int i = 0; i < m; i++) {
+            int ci = cOff + i * ldc, pi = i * pn;
+            if (beta == 0) {
+                Kernels.affine(p, pi, alpha, 0, c, ci, n);
+            } else {
+                if (beta != 1) Kernels.affine(c, ci, beta, 0, c, ci, n);
+                Kernels.combine(c, ci, alpha, p, pi, c, ci, n);
+            }
+        }
+    }
+
+    private static int pad(int size, int levels) {
+        int step = 1 << levels;
+        return (size + step - 1) / step * step;
+    }
+
+    /**
+     * Copia una matrice in un vettore più grande, completando righe e colonne con zeri
+     */
+    private static double[] padded(double[] x, int off, int ld, int rows, int columns, int paddedRows, int paddedColumns) {
+        double[] result = new double[paddedRows * paddedColumns];
+        for (int i = 0; i < rows; i++) System.arraycopy(x, off + i * ld, result, i * paddedColumns, columns);
+        return result;
+    }
+
+    /**
+     * Calcola d = x + beta * y su un blocco di righe x colonne
+     */
+    private static void add(double[] x, int xo, int ldx, double beta, double[] y, int yo, int ldy,
+                            double[] d, int dOff, int ldd, int rows, int columns) {
+        for (int i = 0; i < rows; i++)
+            Kernels.combine(x, xo + i * ldx, beta, y, yo + i * ldy, d, dOff + i * ldd, columns);
+    }
+
+    /**
+     * Prodotto C = A * B di un livello di ricorsione, con dimensioni multiple di 2^levels.
+     * Nei primi {@value #PARALLEL_DEPTH} livelli i 7 prodotti di blocchi sono task indipendenti,
+     * ciascuno con i propri operandi; nei livelli successivi vengono calcolati in sequenza
+     * riutilizzando i blocchi di C come area di lavoro
+     */
+    private static final class Product extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient double[] a, b, c;
+        private final int aOff, lda, bOff, ldb, cOff, ldc, m, n, k, levels, depth;
+        private final transient ForkJoinPool pool;
+
+        Product(double[] a, int aOff, int lda, double[] b, int bOff, int ldb, double[] c, int cOff, int ldc,
+                int m, int n, int k, int levels, ForkJoinPool pool, int depth) {
+            this.a = a;
+            this.aOff = aOff;
+            this.lda = lda;
+            this.b = b;
+            this.bOff = bOff;
+            this.ldb = ldb;
+            this.c = c;
+            this.cOff = cOff;
+            this.ldc = ldc;
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            this.levels = levels;
+            this.pool = pool;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (levels == 0) {
+                Gemm.multiplyAdd(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, m, n, k, 1.0, 0.0);
+                return;
+            }
+            if (pool != null && depth < PARALLEL_DEPTH) computeParallel();
+            else computeSerial();
+        }
+
+        private Product product(double[] x, int xo, int ldx, double[] y, int yo, int ldy, double[] z, int zo, int ldz) {
+            return new Product(x, xo, ldx, y, yo, ldy, z, zo, ldz, m / 2, n / 2, k / 2, levels - 1, pool, depth + 1);
+        }
+
+        /**
+         * Schema di Winograd con tre blocchi di lavoro X, Y e Z: i prodotti vengono scritti
+         * nei blocchi di C e combinati man mano che non servono più
+         */
+        private void computeSerial() {
+            int hm = m / 2, hn = n / 2, hk = k / 2;
+            int a11 = aOff, a12 = aOff + hk, a21 = aOff + hm * lda, a22 = a21 + hk;
+            int b11 = bOff, b12 = bOff + hn, b21 = bOff + hk * ldb, b22 = b21 + hn;
+            int c11 = cOff, c12 = cOff + hn, c21 = cOff + hm * ldc, c22 = c21 + hn;
+            double[] x = new double[hm * hk], y = new double[hk * hn], z = new double[hm * hn];
+
+            add(a, a11, lda, -1, a, a21, lda, x, 0, hk, hm, hk);          //S3 = A11 - A21
+            add(b, b22, ldb, -1, b, b12, ldb, y, 0, hn, hk, hn);          //T3 = B22 - B12
+            product(x, 0, hk, y, 0, hn, c, c21, ldc).compute();           //C21 = M7 = S3 T3
+            add(a, a21, lda, 1, a, a22, lda, x, 0, hk, hm, hk);           //S1 = A21 + A22
+            add(b, b12, ldb, -1, b, b11, ldb, y, 0, hn, hk, hn);          //T1 = B12 - B11
+            product(x, 0, hk, y, 0, hn, c, c22, ldc).compute();           //C22 = M5 = S1 T1
+            add(x, 0, hk, -1, a, a11, lda, x, 0, hk, hm, hk);             //S2 = S1 - A11
+            add(b, b22, ldb, -1, y, 0, hn, y, 0, hn, hk, hn);             //T2 = B22 - T1
+            product(x, 0, hk, y, 0, hn, c, c12, ldc).compute();           //C12 = M6 = S2 T2
+            add(a, a12, lda, -1, x, 0, hk, x, 0, hk, hm, hk);             //S4 = A12 - S2
+            product(x, 0, hk, b, b22, ldb, c, c11, ldc).compute();        //C11 = M3 = S4 B22
+            product(a, a11, lda, b, b11, ldb, z, 0, hn).compute();        //Z = M1 = A11 B11
+            add(z, 0, hn, 1, c, c12, ldc, c, c12, ldc, hm, hn);           //C12 = U2 = M1 + M6
+            add(c, c12, ldc, 1, c, c21, ldc, c, c21, ldc, hm, hn);        //C21 = U3 = U2 + M7
+            add(c, c12, ldc, 1, c, c22, ldc, c, c12, ldc, hm, hn);        //C12 = U4 = U2 + M5
+            add(c, c21, ldc, 1, c, c22, ldc, c, c22, ldc, hm, hn);        //C22 = U7 = U3 + M5
+            add(c, c12, ldc, 1, c, c11, ldc, c, c12, ldc, hm, hn);        //C12 = U5 = U4 + M3
+            add(y, 0, hn, -1, b, b21, ldb, y, 0, hn, hk, hn);             //T4 = T2 - B21
+            product(a, a22, lda, y, 0, hn, c, c11, ldc).compute();        //C11 = M4 = A22 T4
+            add(c, c21, ldc, -1, c, c11, ldc, c, c21, ldc, hm, hn);       //C21 = U6 = U3 - M4
+            product(a, a12, lda, b, b21, ldb, c, c11, ldc).compute();     //C11 = M2 = A12 B21
+            add(z, 0, hn, 1, c, c11, ldc, c, c11, ldc, hm, hn);           //C11 = U1 = M1 + M2
+        }
+
+        /**
+         * Schema di Winograd con operandi e prodotti separati, i 7 prodotti sono task indipendenti
+         */
+        private void computeParallel() {
+            int hm = m / 2, hn = n / 2, hk = k / 2;
+            int a11 = aOff, a12 = aOff + hk, a21 = aOff + hm * lda, a22 = a21 + hk;
+            int b11 = bOff, b12 = bOff + hn, b21 = bOff + hk * ldb, b22 = b21 + hn;
+            int c11 = cOff, c12 = cOff + hn, c21 = cOff + hm * ldc, c22 = c21 + hn;
+            double[] s1 = new double[hm * hk], s2 = new double[hm * hk], s3 = new double[hm * hk], s4 = new double[hm * hk];
+            double[] t1 = new double[hk * hn], t2 = new double[hk * hn], t3 = new double[hk * hn], t4 = new double[hk * hn];
+            add(a, a21, lda, 1, a, a22, lda, s1, 0, hk, hm, hk);          //S1 = A21 + A22
+            add(s1, 0, hk, -1, a, a11, lda, s2, 0, hk, hm, hk);           //S2 = S1 - A11
+            add(a, a11, lda, -1, a, a21, lda, s3, 0, hk, hm, hk);         //S3 = A11 - A21
+            add(a, a12, lda, -1, s2, 0, hk, s4, 0, hk, hm, hk);           //S4 = A12 - S2
+            add(b, b12, ldb, -1, b, b11, ldb, t1, 0, hn, hk, hn);         //T1 = B12 - B11
+            add(b, b22, ldb, -1, t1, 0, hn, t2, 0, hn, hk, hn);           //T2 = B22 - T1
+            add(b, b22, ldb, -1, b, b12, ldb, t3, 0, hn, hk, hn);         //T3 = B22 - B12
+            add(t2, 0, hn, -1, b, b21, ldb, t4, 0, hn, hk, hn);           //T4 = T2 - B21
+
+            double[][] p = new double[7][hm * hn];
+            invokeAll(product(a, a11, lda, b, b11, ldb, p[0], 0, hn),     //M1 = A11 B11
+                    product(a, a12, lda, b, b21, ldb, p[1], 0, hn),       //M2 = A12 B21
+                    product(s4, 0, hk, b, b22, ldb, p[2], 0, hn),         //M3 = S4 B22
+                    product(a, a22, lda, t4, 0, hn, p[3], 0, hn),         //M4 = A22 T4
+                    product(s1, 0, hk, t1, 0, hn, p[4], 0, hn),           //M5 = S1 T1
+                    product(s2, 0, hk, t2, 0, hn, p[5], 0, hn),           //M6 = S2 T2
+                    product(s3, 0, hk, t3, 0, hn, p[6], 0, hn));          //M7 = S3 T3
+
+            add(p[0], 0, hn, 1, p[1], 0, hn, c, c11, ldc, hm, hn);        //C11 = U1 = M1 + M2
+            add(p[0], 0, hn, 1, p[5], 0, hn, p[5], 0, hn, hm, hn);        //U2 = M1 + M6
+            add(p[5], 0, hn, 1, p[6], 0, hn, p[6], 0, hn, hm, hn);        //U3 = U2 + M7
+            add(p[5], 0, hn, 1, p[4], 0, hn, c, c12, ldc, hm, hn);        //U4 = U2 + M5
+            add(c, c12, ldc, 1, p[2], 0, hn, c, c12, ldc, hm, hn);        //C12 = U5 = U4 + M3
+            add(p[6], 0, hn, -1, p[3], 0, hn, c, c21, ldc, hm, hn);       //C21 = U6 = U3 - M4
+            add(p[6], 0, hn, 1, p[4], 0, hn, c, c22, ldc, hm, hn);        //C22 = U7 = U3 + M5
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test della decomposizione spettrale completa e limitata alle prime k componenti:
+ * A V = V D, colonne di V ortonormali e autovalori in ordine decrescente
+ * @author Erik Gurzau
+ */
+class EigenDecompositionTest {
+
+    private static Matrix symmetric(int n, long seed) {
+        Matrix r = random(n, n, seed);
+        return r.sum(r.transposed());
+    }
+
+    /**
+     * Matrice simmetrica semidefinita positiva B Bᵀ di rango pari al numero di colonne di B
+     */
+    private static Matrix lowRank(int n, int rank, long seed) {
+        Matrix b = random(n, rank, seed);
+        return b.multiply(b.transposed());
+    }
+
+    private static void assertDecomposes(Matrix a, EigenDecomposition eigen, int k) {
+        int n = a.getNumRows();
+        Matrix v = eigen.getV(), d = eigen.getD();
+        assertEquals(n, v.getNumRows());
+        assertEquals(k, v.getNumColumns());
+        assertEquals(k, d.getNumRows());
+        double[] values = eigen.getEigenvalues();
+        for (int j = 1; j < k; j++) assertTrue(values[j - 1] >= values[j], "eigenvalues not decreasing at " + j);
+        double tolerance = 1e-12 * n * maxNorm(a);
+        assertMatrixEquals(a.multiply(v), v.multiply(d), tolerance);
+        assertOrthonormalColumns(v, 1e-12 * n);
+    }
+
+    @Test
+    void fullDecomposition() throws MatrixException {
+        for (int n: new int[]{1, 2, 7, 60}) {
+            Matrix a = symmetric(n, n);
+            EigenDecomposition eigen = a.eigen();
+            assertDecomposes(a, eigen, n);
+            double trace = 0, sum = 0;
+            for (int i = 0; i < n; i++) {
+                trace += a.get(i, i);
+                sum += eigen.getEigenvalues()[i];
+            }
+            assertEquals(trace, sum, 1e-12 * n * maxNorm(a));
+            //A = V D Vᵀ
+            Matrix v = eigen.getV();
+            assertMatrixEquals(a, v.multiply(eigen.getD()).multiply(v.transposed()), 1e-12 * n * maxNorm(a));
+        }
+    }
+
+    @Test
+    void topComponents() throws MatrixException {
+        Matrix a = symmetric(80, 1);
+        double[] all = a.eigen().getEigenvalues();
+        for (int k: new int[]{0, 1, 5, 79, 80}) {
+            EigenDecomposition eigen = a.eigen(k);
+            assertDecomposes(a, eigen, k);
+            for (int j = 0; j < k; j++) assertEquals(all[j], eigen.getEigenvalues()[j], 1e-12 * 80 * maxNorm(a));
+        }
+    }
+
+    @Test
+    void rankDeficient() throws MatrixException {
+        Matrix a = lowRank(50, 8, 2);
+        EigenDecomposition full = a.eigen();
+        assertDecomposes(a, full, 50);
+        for (int j = 8; j < 50; j++) assertEquals(0, full.getEigenvalues()[j], 1e-12 * 50 * maxNorm(a));
+        assertTrue(full.getEigenvalues()[7] > 1e-3);
+        for (int k: new int[]{3, 8, 12}) assertDecomposes(a, a.eigen(k), k);
+    }
+
+    @Test
+    void parallel() throws MatrixException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Matrix a = symmetric(300, 3);
+            double[] serial = a.eigen().getEigenvalues();
+            for (int k: new int[]{10, 300}) {
+                EigenDecomposition eigen = new EigenDecomposition(a, k, pool);
+                assertDecomposes(a, eigen, k);
+                for (int j = 0; j < k; j++) assertEquals(serial[j], eigen.getEigenvalues()[j], 1e-12 * 300 * maxNorm(a));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void illegalArguments() {
+        assertThrows(MatrixException.class, () -> new Matrix(3, 4).eigen());
+        assertThrows(MatrixException.class, () -> random(4, 4, 5).eigen());
+        assertThrows(RuntimeException.class, () -> symmetric(4, 6).eigen(5));
+        assertThrows(RuntimeException.class, () -> symmetric(4, 6).eigen(-1));
+    }
+}
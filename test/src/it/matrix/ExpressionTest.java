@@ -0,0 +1,103 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test delle espressioni differite, confrontate con le stesse operazioni eseguite subito
+ * @author Erik Gurzau
+ */
+class ExpressionTest {
+
+    @Test
+    void fusedChainMatchesEagerOperations() {
+        //Più colonne di una tessera, così che ogni riga sia calcolata in più passaggi
+        int columns = 2 * Expression.TILE + 37;
+        Matrix a = random(7, columns, 1), b = random(7, columns, 2), c = random(7, columns, 3);
+        Matrix expected = a.sum(b).diff(c).scaleInPlace(2).sum(1.0).diff(a);
+        Matrix actual = a.lazy().sum(b).diff(c).multiply(2).sum(1.0).diff(a).evaluate();
+        assertMatrixEquals(expected, actual, 1e-15);
+
+        Expression nested = a.lazy().multiply(3).sum(b.lazy().diff(c).multiply(-0.5)).diff(2.0);
+        assertMatrixEquals(a.copy(a).scaleInPlace(3).axpy(-0.5, b.diff(c)).diff(2.0), nested.evaluate(), 1e-15);
+    }
+
+    @Test
+    void operandsAreReadWhenEvaluated() {
+        Matrix a = new Matrix(new double[][]{{1, 2}, {3, 4}});
+        Expression e = a.lazy().sum(a).sum(1.0);
+        a.set(10, 0, 0);
+        assertMatrixEquals(new Matrix(new double[][]{{21, 5}, {7, 9}}), e.evaluate());
+    }
+
+    @Test
+    void productChainMatchesEagerProduct() {
+        Matrix a = random(30, 5, 4), b = random(5, 40, 5), c = random(40, 3, 6), d = random(3, 50, 7);
+        Matrix expected = a.multiply(b).multiply(c).multiply(d);
+        assertMatrixEquals(expected, a.lazy().multiply(b).multiply(c).multiply(d).evaluate(), 1e-13);
+        assertMatrixEquals(expected, a.lazy().multiply(b.lazy().multiply(c.lazy().multiply(d))).evaluate(), 1e-13);
+
+        //Prodotto scalato e sommato: accumulato nella destinazione
+        Matrix e = random(30, 50, 8);
+        Matrix combined = a.lazy().multiply(b).multiply(c).multiply(d).multiply(2).sum(e).evaluate();
+        assertMatrixEquals(expected.copy(expected).scaleInPlace(2).addInPlace(e), combined, 1e-13);
+        assertMatrixEquals(e.diff(expected), e.lazy().diff(a.lazy().multiply(b).multiply(c).multiply(d)).evaluate(), 1e-13);
+    }
+
+    @Test
+    void productChainIsReordered() {
+        //u * vᵀ * w: da sinistra a destra u * vᵀ = {{3e16, 3}, {3e16, 3}} e ogni riga per w vale 3e16 + 3,
+        //arrotondato a 3e16 + 4; l'ordine più economico calcola prima vᵀ * w = 1e16 + 1, arrotondato a 1e16
+        Matrix u = new Matrix(new double[]{3, 3}, 2);
+        Matrix vt = new Matrix(new double[][]{{1e16, 1}});
+        Matrix w = new Matrix(new double[]{1, 1}, 2);
+        assertEquals(3e16 + 4, u.multiply(vt).multiply(w).get(0, 0), 0);
+        assertMatrixEquals(new Matrix(new double[]{3e16, 3e16}, 2), u.lazy().multiply(vt).multiply(w).evaluate());
+        assertMatrixEquals(u.multiply(vt.multiply(w)), u.lazy().multiply(vt).multiply(w).evaluate());
+    }
+
+    @Test
+    void intoOperand() {
+        Matrix a = random(20, 20, 9), b = random(20, 20, 10);
+        Matrix expected = a.sum(b).diff(1.0);
+        Matrix dest = a.copy(a);
+        assertSame(dest, dest.lazy().sum(b).diff(1.0).into(dest));
+        assertMatrixEquals(expected, dest, 1e-15);
+
+        //La destinazione è un fattore del prodotto
+        Matrix product = a.multiply(b).sum(a);
+        dest = a.copy(a);
+        dest.lazy().multiply(b).sum(dest).into(dest);
+        assertMatrixEquals(product, dest, 1e-13);
+        dest = b.copy(b);
+        a.lazy().multiply(dest).multiply(2).into(dest);
+        assertMatrixEquals(a.multiply(b).scaleInPlace(2), dest, 1e-13);
+    }
+
+    @Test
+    void intoOverlappingDestination() {
+        Matrix big = random(9, 8, 11);
+        Matrix top = big.block(0, 0, 8, 8), bottom = big.block(1, 0, 8, 8);
+        Matrix expected = top.sum(top.multiply(top)).diff(2.0);
+        top.lazy().sum(top.lazy().multiply(top)).diff(2.0).into(bottom);
+        assertMatrixEquals(expected, bottom, 1e-13);
+
+        Matrix square = random(8, 8, 12);
+        expected = square.transposed().sum(square).scaleInPlace(0.5);
+        square.transposedView().lazy().sum(square).multiply(0.5).into(square);
+        assertMatrixEquals(expected, square, 1e-15);
+
+        square = random(8, 8, 13);
+        expected = square.transposed().multiply(square).sum(square);
+        square.transposedView().lazy().multiply(square).sum(square).into(square);
+        assertMatrixEquals(expected, square, 1e-13);
+    }
+
+    @Test
+    void illegalDimensions() {
+        Matrix a = new Matrix(2, 3);
+        assertThrows(RuntimeException.class, () -> a.lazy().sum(new Matrix(3, 2)));
+        assertThrows(RuntimeException.class, () -> a.lazy().multiply(new Matrix(2, 3)));
+        assertThrows(RuntimeException.class, () -> a.lazy().sum(1.0).into(new Matrix(3, 3)));
+    }
+}
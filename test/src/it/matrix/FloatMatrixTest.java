@@ -0,0 +1,106 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test delle matrici in singola precisione, confrontate con le stesse operazioni in doppia precisione
+ * @author Erik Gurzau
+ */
+class FloatMatrixTest {
+
+    private static FloatMatrix random(int rows, int columns, long seed) {
+        return FloatMatrix.of(MatrixAssert.random(rows, columns, seed));
+    }
+
+    /**
+     * Controlla che il prodotto in singola precisione disti dal prodotto esatto degli stessi elementi,
+     * calcolato in doppia precisione, al più K * eps(float) * (|A| * |B|) elemento per elemento
+     */
+    private static void assertProductAgrees(FloatMatrix a, FloatMatrix b, FloatMatrix product) {
+        Matrix expected = a.toMatrix().multiply(b.toMatrix());
+        Matrix magnitude = new Matrix(a.getNumRows(), b.getNumColumns());
+        for (int i = 0; i < a.getNumRows(); i++)
+            for (int j = 0; j < b.getNumColumns(); j++) {
+                double s = 0;
+                for (int p = 0; p < a.getNumColumns(); p++) s += Math.abs(a.get(i, p) * b.get(p, j));
+                magnitude.set(s, i, j);
+            }
+        int k = a.getNumColumns();
+        for (int i = 0; i < expected.getNumRows(); i++)
+            for (int j = 0; j < expected.getNumColumns(); j++)
+                assertEquals(expected.get(i, j), product.get(i, j), k * Math.ulp(1.0f) * magnitude.get(i, j) + Float.MIN_VALUE,
+                        "element (" + i + "," + j + ")");
+    }
+
+    @Test
+    void productAgreesWithDouble() {
+        int[][] sizes = {{1, 1, 1}, {7, 3, 5}, {37, 53, 29}, {130, 70, 150}, {64, 256, 64}};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int[] size: sizes) {
+                FloatMatrix a = random(size[0], size[1], size[0]), b = random(size[1], size[2], size[2]);
+                assertProductAgrees(a, b, a.multiply(b));
+                assertProductAgrees(a, b, a.multiply(b, pool));
+                FloatMatrix dest = new FloatMatrix(size[0], size[2]);
+                assertSame(dest, FloatMatrix.multiply(a, b, dest));
+                assertProductAgrees(a, b, dest);
+                assertMatrixEquals(a.toMatrix().multiply(b.toMatrix()), a.multiply(b.toMatrix()), 1e-12 * size[1]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void multiplyAdd() {
+        FloatMatrix a = random(20, 30, 1), b = random(30, 10, 2), c = random(20, 10, 3);
+        FloatMatrix expected = a.multiply(b).scaleInPlace(2).axpy(-0.5f, c);
+        FloatMatrix.multiplyAdd(a, b, c, 2, -0.5f, null);
+        assertMatrixEquals(expected.toMatrix(), c.toMatrix(), 1e-5);
+        assertThrows(RuntimeException.class, () -> FloatMatrix.multiplyAdd(a, b, new FloatMatrix(20, 11), 1, 0, null));
+        FloatMatrix square = random(5, 5, 4);
+        assertThrows(RuntimeException.class, () -> FloatMatrix.multiply(square, square, square));
+    }
+
+    @Test
+    void elementWise() {
+        FloatMatrix a = random(9, 11, 5), b = random(9, 11, 6);
+        FloatMatrix dest = new FloatMatrix(9, 11);
+        assertSame(dest, FloatMatrix.sum(a, b, dest));
+        for (int i = 0; i < 9; i++)
+            for (int j = 0; j < 11; j++) {
+                assertEquals(a.getFloat(i, j) + b.getFloat(i, j), dest.getFloat(i, j), 0f);
+                assertEquals(a.getFloat(i, j), a.get(i, j), 0);
+            }
+        assertMatrixEquals(a.diff(b).toMatrix(), FloatMatrix.diff(a, b, dest).toMatrix());
+        assertMatrixEquals(a.sum(b).toMatrix(), FloatMatrix.sum(a, b, a).toMatrix());
+        assertThrows(RuntimeException.class, () -> FloatMatrix.sum(a, b, new FloatMatrix(11, 9)));
+    }
+
+    @Test
+    void computedInDouble() throws MatrixException {
+        FloatMatrix m = random(6, 6, 7);
+        Matrix d = m.toMatrix();
+        assertMatrixEquals(FloatMatrix.of(d.adjugate()).toMatrix(), m.adjugate().toMatrix());
+        assertMatrixEquals(m.adjugate().transposed().toMatrix(), m.cofactors().toMatrix());
+        assertMatrixEquals(FloatMatrix.of(d.scale()).toMatrix(), m.scale().toMatrix());
+        assertMatrixEquals(FloatMatrix.of(d.reducedScale()).toMatrix(), m.reducedScale().toMatrix());
+        assertEquals(d.determinant(), m.determinant(), 0);
+        assertThrows(MatrixException.class, () -> new FloatMatrix(2, 3).adjugate());
+    }
+
+    @Test
+    void sharedInterface() {
+        FloatMatrix m = random(4, 6, 8);
+        RealMatrix r = m;
+        assertEquals(m.getFloat(1, 5), r.get(1, 5), 0);
+        assertMatrixEquals(m.toMatrix(), r.toDense());
+        assertMatrixEquals(m.toMatrix().transposed(), r.transposed().toDense());
+        Matrix other = MatrixAssert.random(6, 3, 9);
+        assertMatrixEquals(m.toMatrix().multiply(other), r.multiply(other));
+        assertFalse(r.isDiagonal());
+    }
+}
@@ -0,0 +1,154 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test delle matrici intere: calcolo esatto di determinante, rango e aggiunta anche quando
+ * i valori intermedi eccedono l'intervallo dei long
+ * @author Erik Gurzau
+ */
+class IntMatrixTest {
+
+    private static IntMatrix random(int rows, int columns, int bound, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        IntMatrix m = new IntMatrix(rows, columns);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++) m.set(random.nextInt(-bound, bound), i, j);
+        return m;
+    }
+
+    /**
+     * Determinante con lo sviluppo di Laplace sulla prima riga, indipendente dall'eliminazione di Bareiss
+     */
+    private static BigInteger laplace(IntMatrix m, int[] columns, int row) {
+        if (columns.length == 0) return BigInteger.ONE;
+        BigInteger det = BigInteger.ZERO;
+        for (int k = 0; k < columns.length; k++) {
+            int[] minor = new int[columns.length - 1];
+            for (int j = 0, p = 0; j < columns.length; j++) if (j != k) minor[p++] = columns[j];
+            BigInteger term = BigInteger.valueOf(m.getInt(row, columns[k])).multiply(laplace(m, minor, row + 1));
+            det = k % 2 == 0 ? det.add(term) : det.subtract(term);
+        }
+        return det;
+    }
+
+    private static BigInteger laplace(IntMatrix m) {
+        int[] columns = new int[m.getNumColumns()];
+        for (int j = 0; j < columns.length; j++) columns[j] = j;
+        return laplace(m, columns, 0);
+    }
+
+    @Test
+    void determinantOfSmallEntries() throws MatrixException {
+        for (int n = 1; n <= 6; n++) {
+            IntMatrix m = random(n, n, 10, n);
+            assertEquals(laplace(m).longValueExact(), m.determinant());
+            assertEquals(laplace(m), m.exactDeterminant());
+        }
+        assertEquals(1, new IntMatrix(0, 0).determinant());
+        assertEquals(0, new IntMatrix(new int[][]{{1, 2}, {2, 4}}).determinant());
+        assertEquals(-2, new IntMatrix(new int[][]{{0, 1}, {2, 0}}).determinant());
+        assertThrows(MatrixException.class, () -> new IntMatrix(2, 3).determinant());
+    }
+
+    @Test
+    void determinantBeyondLong() throws MatrixException {
+        //Elementi vicini a 2^30: già il secondo passo di Bareiss supera i long
+        IntMatrix m = random(6, 6, 1 << 30, 7);
+        BigInteger expected = laplace(m);
+        assertTrue(expected.bitLength() > 63);
+        assertEquals(expected, m.exactDeterminant());
+        assertThrows(ArithmeticException.class, m::determinant);
+        assertEquals(6, m.rank());
+    }
+
+    @Test
+    void overflowingIntermediatesWithSmallResult() throws MatrixException {
+        //La terza riga è la somma delle prime due: i minori intermedi superano i long, il determinante è nullo
+        IntMatrix m = random(4, 4, 1 << 29, 8);
+        for (int j = 0; j < 4; j++) m.set(m.getInt(0, j) + m.getInt(1, j), 2, j);
+        assertEquals(BigInteger.ZERO, laplace(m));
+        assertEquals(0, m.determinant());
+        assertEquals(3, m.rank());
+        assertEquals(3, m.transposed().rank());
+        IntMatrix wide = new IntMatrix(3, 4);
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 4; j++) wide.set(m.getInt(i, j), i, j);
+        assertEquals(2, wide.rank());
+    }
+
+    @Test
+    void adjugate() throws MatrixException {
+        for (int n = 1; n <= 7; n++) {
+            IntMatrix m = random(n, n, 10, 10 + n);
+            IntMatrix adjugate = m.adjugate();
+            IntMatrix expected = new IntMatrix(n, n);
+            for (int i = 0; i < n; i++) expected.set((int) m.determinant(), i, i);
+            assertEquals(expected.toLineString(), m.multiply(adjugate).toLineString());
+            assertEquals(expected.toLineString(), adjugate.multiply(m).toLineString());
+            assertEquals(adjugate.transposed().toLineString(), m.cofactors().toLineString());
+            assertMatrixEquals(m.toMatrix().adjugate(), adjugate.toMatrix(), 1e-6 * maxNorm(adjugate.toMatrix()));
+        }
+        //Con rango n-1 l'aggiunta è non nulla, con rango inferiore è nulla
+        IntMatrix singular = new IntMatrix(new int[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}});
+        assertEquals("{-3,6,-3},{6,-12,6},{-3,6,-3}", singular.adjugate().toLineString());
+        assertTrue(new IntMatrix(new int[][]{{1, 2, 3}, {2, 4, 6}, {3, 6, 9}}).adjugate().isNull());
+        assertEquals("{1}", new IntMatrix(new int[][]{{5}}).adjugate().toLineString());
+        assertThrows(MatrixException.class, () -> new IntMatrix(2, 3).adjugate());
+    }
+
+    @Test
+    void arithmetic() {
+        IntMatrix a = random(5, 7, 100, 20), b = random(5, 7, 100, 21);
+        IntMatrix expected = new IntMatrix(5, 7);
+        for (int i = 0; i < 5; i++)
+            for (int j = 0; j < 7; j++) expected.set(a.getInt(i, j) - 3 * b.getInt(i, j), i, j);
+        assertEquals(expected.toLineString(), a.sum(new IntMatrix(5, 7)).axpy(-3, b).toLineString());
+        assertEquals(a.multiply(-4).toLineString(), a.sum(new IntMatrix(5, 7)).scaleInPlace(-4).toLineString());
+        IntMatrix dest = new IntMatrix(5, 7);
+        assertSame(dest, IntMatrix.sum(a, b, dest));
+        assertEquals(a.sum(b).toLineString(), dest.toLineString());
+        assertEquals(a.diff(b).toLineString(), IntMatrix.diff(a, b, dest).toLineString());
+        //La destinazione può coincidere con un operando
+        IntMatrix c = a.sum(new IntMatrix(5, 7));
+        assertEquals(a.sum(b).toLineString(), IntMatrix.sum(c, b, c).toLineString());
+        assertThrows(RuntimeException.class, () -> IntMatrix.sum(a, b, new IntMatrix(7, 5)));
+    }
+
+    @Test
+    void product() {
+        IntMatrix a = random(37, 23, 1000, 30), b = random(23, 41, 1000, 31);
+        Matrix expected = a.toMatrix().multiply(b.toMatrix());
+        assertMatrixEquals(expected, a.multiply(b).toMatrix());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            IntMatrix dest = new IntMatrix(37, 41);
+            assertSame(dest, IntMatrix.multiply(a, b, dest, pool));
+            assertMatrixEquals(expected, dest.toMatrix());
+            assertMatrixEquals(expected, a.multiply(b, pool).toMatrix());
+        } finally {
+            pool.shutdown();
+        }
+        assertThrows(RuntimeException.class, () -> a.multiply(a));
+        IntMatrix square = random(4, 4, 10, 32);
+        assertThrows(RuntimeException.class, () -> IntMatrix.multiply(square, square, square, null));
+    }
+
+    @Test
+    void sharedInterface() {
+        IntMatrix m = random(4, 6, 50, 40);
+        RealMatrix r = m;
+        assertEquals(m.getInt(2, 3), r.get(2, 3), 0);
+        assertMatrixEquals(m.toMatrix(), r.toDense());
+        assertMatrixEquals(m.toMatrix().transposed(), r.transposed().toDense());
+        Matrix other = MatrixAssert.random(6, 3, 41);
+        assertMatrixEquals(m.toMatrix().multiply(other), r.multiply(other));
+        assertFalse(r.isSquare());
+        assertFalse(r.isNull());
+    }
+}
@@ -0,0 +1,77 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test della matrice inversa calcolata con Gauss-Jordan, anche in una destinazione esistente
+ * @author Erik Gurzau
+ */
+class InverseTest {
+    private static final double[][] TRIDIAGONAL = {{4, 1, 0}, {1, 3, 1}, {0, 1, 2}};
+    /**
+     * Inversa di {@link #TRIDIAGONAL}, di determinante 18
+     */
+    private static final double[][] TRIDIAGONAL_INVERSE = {{5 / 18.0, -2 / 18.0, 1 / 18.0}, {-2 / 18.0, 8 / 18.0, -4 / 18.0}, {1 / 18.0, -4 / 18.0, 11 / 18.0}};
+
+    @Test
+    void inverseOfKnownMatrices() throws MatrixException {
+        assertMatrixEquals(new Matrix(new double[][]{{-2, 1}, {1.5, -0.5}}), new Matrix(new double[][]{{1, 2}, {3, 4}}).inverse(), 1e-15);
+        assertMatrixEquals(new Matrix(TRIDIAGONAL_INVERSE), new Matrix(TRIDIAGONAL).inverse(), 1e-15);
+        //Il primo pivot è nullo, serve uno scambio di righe
+        assertMatrixEquals(new Matrix(new double[][]{{0, 1, 0}, {0, 0, 1}, {1, 0, 0}}),
+                new Matrix(new double[][]{{0, 0, 1}, {1, 0, 0}, {0, 1, 0}}).inverse());
+    }
+
+    @Test
+    void productWithInverseIsIdentity() throws MatrixException {
+        Matrix a = random(90, 90, 5);
+        Matrix identity = new Matrix(90, 90);
+        for (int i = 0; i < 90; i++) identity.set(1, i, i);
+        assertMatrixEquals(identity, a.multiply(a.inverse()), 1e-10);
+        assertMatrixEquals(a.inverse(), a.lu().inverse(), 1e-10);
+    }
+
+    @Test
+    void inverseIntoItself() throws MatrixException {
+        Matrix a = new Matrix(TRIDIAGONAL);
+        assertSame(a, a.inverseInto(a));
+        assertMatrixEquals(new Matrix(TRIDIAGONAL_INVERSE), a, 1e-15);
+    }
+
+    @Test
+    void inverseIntoView() throws MatrixException {
+        Matrix a = new Matrix(TRIDIAGONAL);
+        Matrix big = new Matrix(5, 5);
+        a.inverseInto(big.block(1, 2, 3, 3));
+        assertMatrixEquals(new Matrix(TRIDIAGONAL_INVERSE), big.block(1, 2, 3, 3), 1e-15);
+        assertEquals(0, big.get(0, 2), 0);
+        assertEquals(0, big.get(4, 4), 0);
+
+        Matrix transposed = new Matrix(3, 3);
+        new Matrix(new double[][]{{1, 2, 0}, {0, 1, 0}, {0, 0, 2}}).inverseInto(transposed.transposedView());
+        assertMatrixEquals(new Matrix(new double[][]{{1, 0, 0}, {-2, 1, 0}, {0, 0, 0.5}}), transposed);
+    }
+
+    @Test
+    void inverseIntoOverlappingBlock() throws MatrixException {
+        double[][] values = {{4, 1, 0}, {1, 3, 1}, {0, 1, 2}, {0, 0, 0}};
+        Matrix big = new Matrix(values);
+        big.block(0, 0, 3, 3).inverseInto(big.block(1, 0, 3, 3));
+        assertMatrixEquals(new Matrix(TRIDIAGONAL_INVERSE), big.block(1, 0, 3, 3), 1e-15);
+        assertArrayEquals(new double[]{4, 1, 0}, big.getRow(0));
+
+        Matrix square = new Matrix(TRIDIAGONAL);
+        square.inverseInto(square.transposedView());
+        assertMatrixEquals(new Matrix(TRIDIAGONAL_INVERSE), square, 1e-15);
+    }
+
+    @Test
+    void inverseOfSingularMatrix() {
+        assertThrows(MatrixException.class, () -> new Matrix(new double[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}).inverse());
+        assertThrows(MatrixException.class, () -> new Matrix(4, 4).inverseInto(new Matrix(4, 4)));
+        assertThrows(MatrixException.class, () -> new Matrix(2, 3).inverse());
+        assertThrows(RuntimeException.class, () -> new Matrix(3, 3).inverseInto(new Matrix(3, 4)));
+    }
+}
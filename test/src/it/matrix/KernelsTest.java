@@ -0,0 +1,80 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test dei kernel su lunghezze e posizioni che non riempiono un numero intero di vettori.
+ * Verificano l'implementazione attiva: quella vettoriale se la JVM è avviata con
+ * {@code --add-modules jdk.incubator.vector}, altrimenti i cicli scalari
+ * @author Erik Gurzau
+ */
+class KernelsTest {
+
+    private static double[] random(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) x[i] = random.nextDouble(-1, 1);
+        return x;
+    }
+
+    @Test
+    void dotMatchesExactSum() {
+        double[] a = random(300, 1), b = random(300, 2);
+        for (int n = 0; n <= 67; n++)
+            for (int ai = 0; ai < 4; ai++) {
+                int bi = 7 - ai;
+                BigDecimal exact = BigDecimal.ZERO;
+                double magnitude = 0;
+                for (int j = 0; j < n; j++) {
+                    exact = exact.add(new BigDecimal(a[ai + j]).multiply(new BigDecimal(b[bi + j])));
+                    magnitude += Math.abs(a[ai + j] * b[bi + j]);
+                }
+                assertEquals(exact.doubleValue(), Kernels.dot(a, ai, b, bi, n), 2 * n * Math.ulp(1.0) * magnitude, "n = " + n);
+            }
+        assertEquals(0, Kernels.dot(a, 0, b, 0, 0), 0);
+        //Una somma di interi piccoli è esatta in qualsiasi ordine
+        double[] ones = new double[1001];
+        Arrays.fill(ones, 1);
+        assertEquals(1001, Kernels.dot(ones, 0, ones, 0, 1001), 0);
+    }
+
+    @Test
+    void elementWiseKernels() {
+        double[] a = random(100, 3), b = random(100, 4);
+        for (int n: new int[]{0, 1, 3, 8, 17, 64, 93}) {
+            for (double beta: new double[]{1, -1, 0.5}) {
+                double[] d = new double[n + 5];
+                Kernels.combine(a, 2, beta, b, 5, d, 5, n);
+                for (int j = 0; j < n; j++) assertEquals(a[2 + j] + beta * b[5 + j], d[5 + j], 0);
+            }
+            for (double[] as: new double[][]{{1, 0}, {1, 2.5}, {-3, 0}, {0.5, -1}}) {
+                double[] d = a.clone();
+                Kernels.affine(d, 1, as[0], as[1], d, 1, n);
+                for (int j = 0; j < n; j++) assertEquals(as[0] * a[1 + j] + as[1], d[1 + j], 0);
+                assertEquals(a[1 + n], d[1 + n], 0);
+            }
+        }
+        //Con alpha diverso da 1 e shift nullo lo zero negativo viene conservato
+        double[] z = {-0.0, 1};
+        Kernels.affine(z, 0, 2, 0, z, 0, 2);
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(z[0]));
+    }
+
+    @Test
+    void singleAndIntegerKernels() {
+        float[] fa = {1.5f, -2, 3, 4.25f, 5, 6, 7, 8, 9}, fd = new float[9];
+        Kernels.combine(fa, 0, 2f, fa, 0, fd, 0, 9);
+        for (int j = 0; j < 9; j++) assertEquals(3 * fa[j], fd[j], 0f);
+        Kernels.affine(fa, 1, -1f, 0.5f, fd, 0, 8);
+        for (int j = 0; j < 8; j++) assertEquals(-fa[j + 1] + 0.5f, fd[j], 0f);
+
+        int[] ia = {Integer.MAX_VALUE, -7, 3, 11, 0}, id = new int[5];
+        Kernels.combine(ia, 0, 3, ia, 0, id, 0, 5);
+        for (int j = 0; j < 5; j++) assertEquals(4 * ia[j], id[j]);
+        Kernels.affine(ia, 0, 2, 1, id, 0, 5);
+        for (int j = 0; j < 5; j++) assertEquals(2 * ia[j] + 1, id[j]);
+    }
+}
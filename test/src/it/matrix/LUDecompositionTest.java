@@ -0,0 +1,180 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test della decomposizione LU e del determinante, confrontati con valori noti
+ * @author Erik Gurzau
+ */
+class LUDecompositionTest {
+
+    @Test
+    void determinantOfSmallMatrices() throws MatrixException {
+        assertEquals(-7.5, new Matrix(new double[][]{{-7.5}}).determinant(), 0);
+        assertEquals(-2, new Matrix(new double[][]{{1, 2}, {3, 4}}).determinant(), 0);
+        assertEquals(49, new Matrix(new double[][]{{2, -3, 1}, {2, 0, -1}, {1, 4, 5}}).determinant(), 0);
+    }
+
+    @Test
+    void determinantIsNotTruncated() throws MatrixException {
+        //Lo sviluppo di Laplace accumulava il determinante in un int e per questa matrice restituiva 5
+        Matrix m = new Matrix(new double[][]{{1.5, 2, 0, 1}, {0.5, 1, 1, 0}, {2, 0, 1, 0.5}, {1, 1, 0, 2}});
+        assertEquals(6.25, m.determinant(), 1e-14);
+        assertEquals(6.25, m.lu().determinant(), 1e-14);
+        assertEquals(0.5, new Matrix(new double[]{0.5, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1}, 4).determinant(), 0);
+    }
+
+    @Test
+    void determinantOfHilbertMatrix() throws MatrixException {
+        double[][] h = new double[5][5];
+        for (int i = 0; i < 5; i++)
+            for (int j = 0; j < 5; j++) h[i][j] = 1.0 / (i + j + 1);
+        double expected = 1.0 / 266716800000L;
+        assertEquals(expected, new Matrix(h).determinant(), expected * 1e-9);
+    }
+
+    @Test
+    void determinantOfVandermondeMatrix() throws MatrixException {
+        //det V(1, 2, ..., 6) = 1! 2! 3! 4! 5!
+        double[][] v = new double[6][6];
+        for (int i = 0; i < 6; i++)
+            for (int j = 0; j < 6; j++) v[i][j] = Math.pow(i + 1, j);
+        assertEquals(34560, new Matrix(v).determinant(), 34560 * 1e-12);
+    }
+
+    @Test
+    void determinantOfLargeMatrixWithKnownFactors() throws MatrixException {
+        //Oltre 2 * BLOCK colonne la fattorizzazione procede a blocchi
+        int n = 3 * LUDecomposition.BLOCK + 7;
+        double[] diagonal = new double[n];
+        double expected = 1;
+        for (int i = 0; i < n; i++) {
+            diagonal[i] = (i % 2 == 0 ? 1 : -1) * (1 + 0.002 * i);
+            expected *= diagonal[i];
+        }
+        Matrix a = withDeterminant(diagonal, 7);
+        assertEquals(expected, a.determinant(), Math.abs(expected) * 1e-9);
+        assertEquals(expected, a.determinant(ForkJoinPool.commonPool()), Math.abs(expected) * 1e-9);
+        assertEquals(-expected, Matrix.swap(a.copy(a), 0, n - 1).determinant(), Math.abs(expected) * 1e-9);
+    }
+
+    @Test
+    void factorsReconstructPermutedMatrix() throws MatrixException {
+        Matrix a = random(150, 150, 11);
+        for (ForkJoinPool pool: new ForkJoinPool[]{null, ForkJoinPool.commonPool()}) {
+            LUDecomposition lu = new LUDecomposition(a, pool);
+            int[] pivot = lu.getPivot();
+            Matrix pa = new Matrix(150, 150);
+            for (int i = 0; i < 150; i++) pa.setRow(a.getRow(pivot[i]), i);
+            assertTrue(lu.getL().isLowerTriangular());
+            assertTrue(lu.getU().isUpperTriangular());
+            assertMatrixEquals(pa, lu.getL().multiply(lu.getU()), 1e-12);
+        }
+    }
+
+    @Test
+    void singularMatrices() throws MatrixException {
+        assertEquals(0, new Matrix(new double[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}).determinant(), 0);
+
+        Matrix m = new Matrix(new double[][]{{1, 2, 1, 0}, {2, 1, -1, 3}, {1, 1, 0, 1}, {-2, 1, 3, -5}});
+        assertEquals(0, m.determinant(), 1e-14);
+        assertTrue(m.lu().isSingular());
+
+        Matrix duplicated = random(200, 200, 3);
+        duplicated.setRow(duplicated.getRow(17), 150);
+        assertTrue(new LUDecomposition(duplicated).isSingular());
+        assertEquals(0, new Matrix(200, 200).determinant(), 0);
+    }
+
+    @Test
+    void determinantOfNonSquareMatrix() {
+        assertThrows(MatrixException.class, () -> new Matrix(2, 3).determinant());
+        assertThrows(MatrixException.class, () -> new Matrix(5, 4).determinant(ForkJoinPool.commonPool()));
+        assertThrows(MatrixException.class, () -> new LUDecomposition(new Matrix(3, 4)));
+    }
+
+    @Test
+    void solveKnownSystem() throws MatrixException {
+        Matrix a = new Matrix(new double[][]{{2, 1}, {1, 1}});
+        assertMatrixEquals(new Matrix(new double[]{1, 2}, 2), a.solve(new Matrix(new double[]{4, 3}, 2)), 1e-15);
+        Matrix x = new Matrix(new double[][]{{4, 1, 0}, {1, 3, 1}, {0, 1, 2}}).solve(new Matrix(new double[]{5, 5, 3}, 3));
+        assertMatrixEquals(new Matrix(new double[]{1, 1, 1}, 3), x, 1e-15);
+    }
+
+    @Test
+    void solveSingleAndMultipleRightHandSides() throws MatrixException {
+        for (int n: new int[]{1, 5, 64, 2 * LUDecomposition.BLOCK + 3}) {
+            Matrix a = random(n, n, n);
+            Matrix b = random(n, 1, n + 1);
+            assertSolves(a, a.solve(b), b);
+            Matrix many = random(n, 9, n + 2);
+            Matrix x = a.solve(many);
+            assertSolves(a, x, many);
+            //Ogni colonna risolta insieme alle altre coincide con la soluzione del sistema singolo
+            assertMatrixEquals(a.solve(many.columnView(4).materialize()), x.columnView(4), 1e-12);
+        }
+    }
+
+    @Test
+    void solveIntoRightHandSide() throws MatrixException {
+        Matrix a = random(40, 40, 21), b = random(40, 3, 22);
+        Matrix x = b.copy(b);
+        assertSame(x, a.lu().solveInto(x, x));
+        assertSolves(a, x, b);
+
+        //Destinazione non contigua: la trasposta di una matrice 3x40
+        Matrix t = new Matrix(3, 40);
+        a.lu().solveInto(b, t.transposedView());
+        assertMatrixEquals(x, t.transposed(), 0);
+    }
+
+    @Test
+    void inverseFromFactorization() throws MatrixException {
+        int n = 3 * LUDecomposition.BLOCK;
+        Matrix a = random(n, n, 31);
+        Matrix identity = new Matrix(n, n);
+        for (int i = 0; i < n; i++) identity.set(1, i, i);
+        Matrix serial = a.lu().inverse();
+        assertSolves(a, serial, identity);
+        assertMatrixEquals(serial, new LUDecomposition(a).inverse(ForkJoinPool.commonPool()), 1e-10);
+        assertEquals(0, new LUDecomposition(new Matrix(0, 0)).inverse().getNumRows());
+    }
+
+    @Test
+    void solveSingularSystem() {
+        Matrix singular = new Matrix(new double[][]{{1, 2}, {2, 4}});
+        Matrix b = new Matrix(new double[]{1, 2}, 2);
+        assertThrows(MatrixException.class, () -> singular.solve(b));
+        assertThrows(MatrixException.class, () -> singular.lu().solveInto(b, b));
+        assertThrows(MatrixException.class, () -> singular.lu().inverse(ForkJoinPool.commonPool()));
+        assertThrows(MatrixException.class, () -> new Matrix(2, 3).solve(b));
+        assertThrows(RuntimeException.class, () -> new Matrix(new double[][]{{1, 0}, {0, 1}}).solve(new Matrix(3, 1)));
+    }
+
+    @Test
+    void factorizationIsCachedUntilModified() throws MatrixException {
+        Matrix a = new Matrix(new double[][]{{2, 0}, {0, 4}});
+        Matrix b = new Matrix(new double[]{2, 4}, 2);
+        LUDecomposition lu = a.lu();
+        assertSame(lu, a.lu());
+        assertMatrixEquals(new Matrix(new double[]{1, 1}, 2), a.solve(b));
+
+        a.set(1, 0, 0);
+        assertNotSame(lu, a.lu());
+        assertMatrixEquals(new Matrix(new double[]{2, 1}, 2), a.solve(b));
+
+        //Una modifica attraverso una vista invalida la fattorizzazione della matrice di partenza
+        lu = a.lu();
+        a.rowView(1).set(2, 0, 1);
+        assertNotSame(lu, a.lu());
+        assertMatrixEquals(new Matrix(new double[]{2, 2}, 2), a.solve(b));
+
+        lu = a.lu();
+        a.transposedView().addInPlace(a);
+        assertNotSame(lu, a.lu());
+        assertMatrixEquals(new Matrix(new double[]{1, 1}, 2), a.solve(new Matrix(new double[]{2, 4}, 2)));
+    }
+}
@@ -0,0 +1,102 @@
+package it.matrix;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserzioni e matrici di prova condivise dai test
+ * @author Erik Gurzau
+ */
+final class MatrixAssert {
+    private MatrixAssert() {
+    }
+
+    /**
+     * Controlla che due matrici abbiano le stesse dimensioni e gli stessi elementi a meno di una tolleranza
+     * @param expected Matrice attesa
+     * @param actual Matrice ottenuta
+     * @param tolerance Differenza massima ammessa tra due elementi
+     */
+    static void assertMatrixEquals(Matrix expected, Matrix actual, double tolerance) {
+        assertEquals(expected.getNumRows(), actual.getNumRows(), "rows");
+        assertEquals(expected.getNumColumns(), actual.getNumColumns(), "columns");
+        for (int i = 0; i < expected.getNumRows(); i++)
+            for (int j = 0; j < expected.getNumColumns(); j++)
+                assertEquals(expected.get(i, j), actual.get(i, j), tolerance, "element (" + i + "," + j + ")");
+    }
+
+    /**
+     * Controlla che due matrici abbiano le stesse dimensioni e gli stessi elementi, bit per bit
+     * @param expected Matrice attesa
+     * @param actual Matrice ottenuta
+     */
+    static void assertMatrixEquals(Matrix expected, Matrix actual) {
+        assertMatrixEquals(expected, actual, 0);
+    }
+
+    /**
+     * Massimo valore assoluto degli elementi di una matrice
+     * @param m Matrice
+     * @return La norma del massimo
+     */
+    static double maxNorm(Matrix m) {
+        double max = 0;
+        for (int i = 0; i < m.getNumRows(); i++)
+            for (int j = 0; j < m.getNumColumns(); j++) max = Math.max(max, Math.abs(m.get(i, j)));
+        return max;
+    }
+
+    /**
+     * Controlla che il residuo relativo max|AX - B| / (max|A| * max|X| + max|B|) sia trascurabile
+     * @param a Matrice dei coefficienti
+     * @param x Soluzione calcolata
+     * @param b Termini noti
+     */
+    static void assertSolves(Matrix a, Matrix x, Matrix b) {
+        double residual = maxNorm(a.multiply(x).diff(b));
+        double scale = maxNorm(a) * maxNorm(x) + maxNorm(b);
+        assertTrue(residual <= 1e-12 * a.getNumRows() * scale, "residual " + residual + " for scale " + scale);
+    }
+
+    /**
+     * Controlla che le colonne di una matrice siano ortonormali
+     * @param q Matrice con colonne ortonormali
+     * @param tolerance Differenza massima ammessa da QᵀQ = I
+     */
+    static void assertOrthonormalColumns(Matrix q, double tolerance) {
+        Matrix gram = q.transposed().multiply(q);
+        for (int i = 0; i < gram.getNumRows(); i++)
+            for (int j = 0; j < gram.getNumColumns(); j++)
+                assertEquals(i == j ? 1 : 0, gram.get(i, j), tolerance, "Q^T Q (" + i + "," + j + ")");
+    }
+
+    /**
+     * Genera una matrice con elementi uniformi in [-1, 1), riproducibile a partire dal seme
+     * @param rows Numero di righe
+     * @param columns Numero di colonne
+     * @param seed Seme del generatore
+     * @return La matrice generata
+     */
+    static Matrix random(int rows, int columns, long seed) {
+        return new MatrixRandom(seed).uniform(rows, columns, -1, 1);
+    }
+
+    /**
+     * Genera una matrice quadrata LU con L triangolare inferiore a diagonale unitaria e
+     * U triangolare superiore con la diagonale indicata, di cui il determinante è noto.
+     * Gli elementi di L sotto la diagonale sono ridotti di un fattore n, così che L resti ben condizionata
+     * @param diagonal Diagonale di U
+     * @param seed Seme del generatore
+     * @return Il prodotto LU
+     */
+    static Matrix withDeterminant(double[] diagonal, long seed) {
+        int n = diagonal.length;
+        Matrix l = random(n, n, seed), u = random(n, n, seed + 1);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) l.set(l.get(i, j) / n, i, j);
+            for (int j = i; j < n; j++) l.set(i == j ? 1 : 0, i, j);
+            for (int j = 0; j < i; j++) u.set(0, i, j);
+            u.set(diagonal[i], i, i);
+        }
+        return l.multiply(u);
+    }
+}
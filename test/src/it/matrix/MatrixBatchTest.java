@@ -0,0 +1,136 @@
+package it.matrix;
+import it.matrix.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test degli insiemi di matrici di piccolo ordine, confrontati matrice per matrice con {@link Matrix}.
+ * L'insieme è abbastanza grande da essere suddiviso in più task quando viene fornito un pool
+ * @author Erik Gurzau
+ */
+class MatrixBatchTest {
+    private static final int COUNT = 9001;
+
+    private static MatrixBatch random(int order, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] elements = new double[order * order * COUNT];
+        for (int e = 0; e < elements.length; e++) elements[e] = random.nextDouble(-1, 1);
+        return new MatrixBatch(order, elements);
+    }
+
+    @Test
+    void layout() {
+        Matrix a = new Matrix(new double[][]{{1, 2}, {3, 4}}), b = new Matrix(new double[][]{{5, 6}, {7, 8}});
+        MatrixBatch batch = MatrixBatch.of(a, b);
+        assertEquals(2, batch.getOrder());
+        assertEquals(2, batch.getCount());
+        assertArrayEquals(new double[]{1, 5, 2, 6, 3, 7, 4, 8}, batch.getData(), 0);
+        assertEquals(7, batch.get(1, 1, 0), 0);
+        batch.set(9, 0, 1, 1);
+        assertMatrixEquals(new Matrix(new double[][]{{1, 2}, {3, 9}}), batch.getMatrix(0));
+        batch.setMatrix(a, 1);
+        assertMatrixEquals(a, batch.getMatrix(1));
+        assertMatrixEquals(a.transposed(), MatrixBatch.of(a.transposedView()).getMatrix(0));
+    }
+
+    @Test
+    void determinantsAndInverses() throws MatrixException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int order = 2; order <= 4; order++) {
+                MatrixBatch batch = random(order, order);
+                double[] determinants = batch.determinants();
+                MatrixBatch inverses = batch.inverse();
+                //Ogni matrice è calcolata dallo stesso kernel, per cui il risultato non dipende dalla suddivisione
+                assertArrayEquals(determinants, batch.determinants(pool), 0);
+                assertArrayEquals(inverses.getData(), batch.inverse(pool).getData(), 0);
+                for (int b = 0; b < COUNT; b++) {
+                    Matrix m = batch.getMatrix(b);
+                    assertEquals(m.determinant(), determinants[b], 1e-14 * order, "matrix " + b);
+                    Matrix inverse = inverses.getMatrix(b);
+                    double norm = maxNorm(inverse);
+                    assertMatrixEquals(m.inverse(), inverse, 1e-14 * order * maxNorm(m) * norm * norm);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void singularMatrices() {
+        MatrixBatch batch = MatrixBatch.of(new Matrix(new double[][]{{1, 2}, {2, 4}}), new Matrix(new double[][]{{2, 0}, {0, 4}}));
+        assertArrayEquals(new double[]{0, 8}, batch.determinants(), 0);
+        MatrixBatch inverses = batch.inverse();
+        assertFalse(Double.isFinite(inverses.get(0, 0, 0)));
+        assertMatrixEquals(new Matrix(new double[][]{{0.5, 0}, {0, 0.25}}), inverses.getMatrix(1));
+        double[] x = batch.solve(new double[]{1, 2, 1, 4});
+        assertFalse(Double.isFinite(x[0]));
+        assertArrayEquals(new double[]{1, 1}, new double[]{x[1], x[3]}, 0);
+    }
+
+    @Test
+    void solve() throws MatrixException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int order = 2; order <= 4; order++) {
+                MatrixBatch batch = random(order, 10 + order);
+                SplittableRandom random = new SplittableRandom(order);
+                double[] y = new double[order * COUNT];
+                for (int e = 0; e < y.length; e++) y[e] = random.nextDouble(-1, 1);
+                double[] x = batch.solve(y);
+                assertArrayEquals(x, batch.solve(y, pool), 0);
+                for (int b = 0; b < COUNT; b++) {
+                    Matrix xb = new Matrix(order, 1), yb = new Matrix(order, 1);
+                    for (int i = 0; i < order; i++) {
+                        xb.set(x[i * COUNT + b], i, 0);
+                        yb.set(y[i * COUNT + b], i, 0);
+                    }
+                    Matrix m = batch.getMatrix(b);
+                    double norm = maxNorm(m.inverse());
+                    assertMatrixEquals(m.solve(yb), xb, 1e-14 * order * maxNorm(m) * norm * maxNorm(xb));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void product() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int order = 2; order <= 4; order++) {
+                MatrixBatch a = random(order, 20 + order), b = random(order, 30 + order);
+                MatrixBatch product = a.multiply(b);
+                assertArrayEquals(product.getData(), a.multiply(b, pool).getData(), 0);
+                for (int m = 0; m < COUNT; m++)
+                    assertMatrixEquals(a.getMatrix(m).multiply(b.getMatrix(m)), product.getMatrix(m), 1e-15 * order);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void illegalArguments() {
+        assertThrows(RuntimeException.class, () -> new MatrixBatch(1, 10));
+        assertThrows(RuntimeException.class, () -> new MatrixBatch(5, 10));
+        assertThrows(RuntimeException.class, () -> new MatrixBatch(3, -1));
+        assertThrows(RuntimeException.class, () -> new MatrixBatch(4, Integer.MAX_VALUE / 8));
+        assertThrows(RuntimeException.class, () -> new MatrixBatch(3, new double[10]));
+        assertThrows(RuntimeException.class, () -> MatrixBatch.of());
+        assertThrows(RuntimeException.class, () -> MatrixBatch.of(new Matrix(2, 2), new Matrix(3, 3)));
+        assertThrows(RuntimeException.class, () -> MatrixBatch.of(new Matrix(2, 3)));
+        MatrixBatch batch = new MatrixBatch(3, 4);
+        assertThrows(RuntimeException.class, () -> batch.get(4, 0, 0));
+        assertThrows(RuntimeException.class, () -> batch.set(1, 0, 3, 0));
+        assertThrows(RuntimeException.class, () -> batch.solve(new double[11]));
+        assertThrows(RuntimeException.class, () -> batch.multiply(new MatrixBatch(3, 5)));
+        assertThrows(RuntimeException.class, () -> batch.multiply(new MatrixBatch(2, 4)));
+        assertEquals(0, new MatrixBatch(2, 0).determinants().length);
+    }
+}
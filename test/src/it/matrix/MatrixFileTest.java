@@ -0,0 +1,177 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test dei file binari: scrittura e rilettura esatta in entrambe le disposizioni e rifiuto delle intestazioni corrotte
+ * @author Erik Gurzau
+ */
+class MatrixFileTest {
+
+    /**
+     * Matrice con valori che un formato non esatto non conserverebbe
+     */
+    private static Matrix special() {
+        Matrix m = random(5, 7, 1);
+        m.set(-0.0, 0, 0);
+        m.set(Double.MIN_VALUE, 1, 2);
+        m.set(Double.MAX_VALUE, 2, 3);
+        m.set(Double.NEGATIVE_INFINITY, 3, 4);
+        m.set(Double.NaN, 4, 6);
+        m.set(0.1, 4, 5);
+        return m;
+    }
+
+    /**
+     * Confronta gli elementi bit per bit, così che -0.0 e NaN vengano distinti
+     */
+    private static void assertSameBits(Matrix expected, Matrix actual) {
+        assertEquals(expected.getNumRows(), actual.getNumRows());
+        assertEquals(expected.getNumColumns(), actual.getNumColumns());
+        for (int i = 0; i < expected.getNumRows(); i++)
+            for (int j = 0; j < expected.getNumColumns(); j++)
+                assertEquals(Double.doubleToRawLongBits(expected.get(i, j)), Double.doubleToRawLongBits(actual.get(i, j)));
+    }
+
+    /**
+     * Scrive un file composto da un'intestazione e da un numero di elementi nulli
+     */
+    private static Path file(int magic, short version, byte type, byte layout, long rows, long columns, int elements) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MatrixFile.HEADER_SIZE + elements * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(magic).putShort(version).put(type).put(layout).putLong(rows).putLong(columns).putLong(0);
+        Path path = Files.createTempFile("matrix", ".mtrx");
+        Files.write(path, buffer.array());
+        return path;
+    }
+
+    private static Path file(long rows, long columns, int elements) throws IOException {
+        return file(0x5852544D, MatrixFile.VERSION, (byte) 1, (byte) 0, rows, columns, elements);
+    }
+
+    @Test
+    void rowMajorRoundTrip() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtrx");
+        try {
+            Matrix m = special();
+            MatrixFile.save(m, path);
+            assertEquals(MatrixFile.HEADER_SIZE + 35 * Double.BYTES, Files.size(path));
+            assertSameBits(m, MatrixFile.load(path));
+            try (MatrixFile file = MatrixFile.open(path)) {
+                assertEquals(MatrixFile.Layout.ROW_MAJOR, file.getLayout());
+                assertTrue(file.getMatrix().isOffHeap());
+                assertSameBits(m, file.getMatrix());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void columnMajorRoundTrip() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtrx");
+        try {
+            Matrix m = special();
+            MatrixFile.save(m, path, MatrixFile.Layout.COLUMN_MAJOR);
+            assertSameBits(m, MatrixFile.load(path));
+            //Gli elementi sono scritti per colonne
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(m.get(1, 0), bytes.getDouble(MatrixFile.HEADER_SIZE + Double.BYTES), 0);
+            assertEquals(m.get(0, 1), bytes.getDouble(MatrixFile.HEADER_SIZE + 5 * Double.BYTES), 0);
+            try (MatrixFile file = MatrixFile.open(path)) {
+                assertEquals(MatrixFile.Layout.COLUMN_MAJOR, file.getLayout());
+                assertSameBits(m, file.getMatrix());
+            }
+
+            //Più blocchi di colonne trasposti sulla matrice di appoggio, l'ultimo incompleto
+            Matrix large = random(3000, 2 * Matrix.STAGING_ELEMENTS / 3000 + 17, 2);
+            MatrixFile.save(large, path, MatrixFile.Layout.COLUMN_MAJOR);
+            assertMatrixEquals(large, MatrixFile.load(path));
+            MatrixFile.save(large.transposedView(), path, MatrixFile.Layout.COLUMN_MAJOR);
+            assertMatrixEquals(large.transposed(), MatrixFile.load(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void writableMapping() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtrx");
+        try {
+            try (MatrixFile file = MatrixFile.create(path, 3, 4, MatrixFile.Layout.COLUMN_MAJOR)) {
+                assertTrue(file.getMatrix().isNull());
+                file.getMatrix().set(2.5, 2, 1);
+            }
+            try (MatrixFile file = MatrixFile.open(path, true)) {
+                assertEquals(2.5, file.getMatrix().get(2, 1), 0);
+                file.getMatrix().addInPlace(1);
+            }
+            Matrix expected = new Matrix(3, 4).sum(1.0);
+            expected.set(3.5, 2, 1);
+            assertMatrixEquals(expected, MatrixFile.load(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void emptyMatrix() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtrx");
+        try {
+            MatrixFile.save(new Matrix(0, 5), path, MatrixFile.Layout.COLUMN_MAJOR);
+            Matrix m = MatrixFile.load(path);
+            assertEquals(0, m.getNumRows());
+            assertEquals(5, m.getNumColumns());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void corruptHeaders() throws IOException {
+        Path[] corrupt = {
+                file(0x12345678, MatrixFile.VERSION, (byte) 1, (byte) 0, 1, 1, 1),
+                file(0x5852544D, (short) 2, (byte) 1, (byte) 0, 1, 1, 1),
+                file(0x5852544D, MatrixFile.VERSION, (byte) 2, (byte) 0, 1, 1, 1),
+                file(0x5852544D, MatrixFile.VERSION, (byte) 1, (byte) 2, 1, 1, 1),
+                file(-1, 1, 0),
+                file(1, -1, 0),
+                file(1L << 31, 1, 0),
+                //Il prodotto delle dimensioni supera il long e diventa piccolo
+                file(1L << 32, 1L << 32, 0),
+                file(Long.MAX_VALUE, 2, 0),
+                file(50_000, 50_000, 0),
+                //Il file contiene meno elementi di quelli dichiarati
+                file(4, 4, 15)
+        };
+        try {
+            for (Path path: corrupt)
+                assertThrows(IOException.class, () -> MatrixFile.open(path), path.toString());
+        } finally {
+            for (Path path: corrupt) Files.delete(path);
+        }
+
+        Path truncated = Files.createTempFile("matrix", ".mtrx");
+        try {
+            Files.write(truncated, new byte[]{'M', 'T', 'R', 'X', 1, 0});
+            assertThrows(IOException.class, () -> MatrixFile.load(truncated));
+        } finally {
+            Files.delete(truncated);
+        }
+    }
+
+    @Test
+    void validHandWrittenHeader() throws IOException {
+        Path path = file(4, 4, 16);
+        try {
+            assertTrue(MatrixFile.load(path).isNull());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
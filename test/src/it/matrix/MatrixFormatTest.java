@@ -0,0 +1,112 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del formato testuale: scrittura e rilettura esatta, arrotondamento e rifiuto del testo malformato
+ * @author Erik Gurzau
+ */
+class MatrixFormatTest {
+
+    /**
+     * Matrice con valori che richiedono tutte le cifre per essere riletti esattamente
+     */
+    private static Matrix special() {
+        Matrix m = random(4, 6, 1);
+        m.set(0.1, 0, 0);
+        m.set(1.0 / 3, 0, 1);
+        m.set(-0.0, 1, 1);
+        m.set(Double.MIN_VALUE, 1, 2);
+        m.set(-Double.MAX_VALUE, 2, 3);
+        m.set(1e-300, 2, 4);
+        m.set(Math.nextUp(1.0), 3, 5);
+        m.set(Double.POSITIVE_INFINITY, 3, 0);
+        m.set(Double.NaN, 3, 1);
+        return m;
+    }
+
+    private static void assertSameBits(Matrix expected, Matrix actual) {
+        assertEquals(expected.getNumRows(), actual.getNumRows());
+        assertEquals(expected.getNumColumns(), actual.getNumColumns());
+        for (int i = 0; i < expected.getNumRows(); i++)
+            for (int j = 0; j < expected.getNumColumns(); j++)
+                assertEquals(Double.doubleToRawLongBits(expected.get(i, j)), Double.doubleToRawLongBits(actual.get(i, j)));
+    }
+
+    @Test
+    void csvRoundTrip() throws IOException {
+        Matrix m = special();
+        assertSameBits(m, MatrixFormat.CSV.parse(MatrixFormat.CSV.format(m)));
+        MatrixFormat semicolon = MatrixFormat.CSV.withDelimiter(';');
+        assertSameBits(m, semicolon.parse(semicolon.format(m)));
+        assertSameBits(m.transposedView(), MatrixFormat.CSV.parse(MatrixFormat.CSV.format(m.transposedView())));
+    }
+
+    @Test
+    void lineRoundTrip() throws IOException {
+        Matrix m = special();
+        String text = MatrixFormat.LINE.format(m);
+        assertTrue(text.startsWith("{0.1,0.3333333333333333,"));
+        assertSameBits(m, MatrixFormat.LINE.parse(text));
+        assertSameBits(m, MatrixFormat.LINE.parse("{" + text + "}"));
+    }
+
+    @Test
+    void roundTripAcrossBuffers() throws IOException {
+        //Molte più cifre della dimensione dei buffer di scrittura e lettura
+        Matrix m = random(120, 90, 2);
+        for (MatrixFormat format: new MatrixFormat[]{MatrixFormat.CSV, MatrixFormat.LINE}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            format.write(m, Channels.newChannel(bytes));
+            assertTrue(bytes.size() > 100_000);
+            assertSameBits(m, format.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+    }
+
+    @Test
+    void precision() throws IOException {
+        Matrix m = new Matrix(new double[][]{{1.23456, -2.5}, {1e20, 0.126}});
+        assertEquals("1.23,-2.5\n1.0E20,0.13\n", MatrixFormat.CSV.withPrecision(2).format(m));
+        assertEquals("{1.0,-2.0},{1.0E20,0.0}", MatrixFormat.LINE.withPrecision(0).format(m));
+        assertSameBits(m, MatrixFormat.CSV.withPrecision(2).withPrecision(-1).parse(MatrixFormat.CSV.format(m)));
+        assertThrows(RuntimeException.class, () -> MatrixFormat.CSV.withPrecision(MatrixFormat.MAX_PRECISION + 1));
+        assertThrows(RuntimeException.class, () -> MatrixFormat.CSV.withDelimiter('.'));
+        assertThrows(RuntimeException.class, () -> MatrixFormat.LINE.withDelimiter(';'));
+    }
+
+    @Test
+    void lenientWhitespace() throws IOException {
+        Matrix expected = new Matrix(new double[][]{{1, 2}, {3, 4}});
+        assertMatrixEquals(expected, MatrixFormat.CSV.parse("\n 1 ,\t2\r\n\n3,4"));
+        assertMatrixEquals(expected, MatrixFormat.LINE.parse(" { {1, 2} ,\n{ 3,4 } } "));
+        assertEquals(0, MatrixFormat.CSV.parse("").getNumRows());
+        Matrix empty = MatrixFormat.LINE.parse("{},{}");
+        assertEquals(2, empty.getNumRows());
+        assertEquals(0, empty.getNumColumns());
+    }
+
+    @Test
+    void malformedCsv() {
+        String[] malformed = {"1,,2", "1,2,", ",1,2", "1,2\n3", "1,2\n3,4,5", "1,a", "1 2,3", "1,2\n3,--4",
+                "1,2;3", "1," + "1".repeat(100)};
+        for (String text: malformed)
+            assertThrows(IOException.class, () -> MatrixFormat.CSV.parse(text), text);
+        IOException e = assertThrows(IOException.class, () -> MatrixFormat.CSV.parse("1,2\n\n3,x"));
+        assertTrue(e.getMessage().endsWith("at line 3"), e.getMessage());
+    }
+
+    @Test
+    void malformedLine() {
+        String[] malformed = {"{1,2}{3,4}", "{1,2},", "{1,2", "1,2}", "{1,2},{3}", "{{1,2},{3,4}", "{1,2}}",
+                "{1,,2}", "{1,2,}", "{,1}", "{1 2}", "{{1},{2}},{3}", "{1,2},x"};
+        for (String text: malformed)
+            assertThrows(IOException.class, () -> MatrixFormat.LINE.parse(text), text);
+        IOException e = assertThrows(IOException.class, () -> MatrixFormat.LINE.parse("{1,2}\n{3,4}"));
+        assertEquals("Illegal matrix text: missing ',' between rows at line 2", e.getMessage());
+    }
+}
@@ -0,0 +1,113 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test della decomposizione ai valori singolari completa e limitata alle prime k componenti,
+ * su matrici alte, larghe e di rango non pieno: A V = U S, Aᵀ U = V S e colonne di U e V ortonormali
+ * @author Erik Gurzau
+ */
+class SingularValueDecompositionTest {
+
+    /**
+     * Matrice MxN di rango pari a rank, prodotto di due fattori casuali
+     */
+    private static Matrix lowRank(int rows, int columns, int rank, long seed) {
+        return random(rows, rank, seed).multiply(random(rank, columns, seed + 1));
+    }
+
+    private static void assertDecomposes(Matrix a, SingularValueDecomposition svd, int k) {
+        int m = a.getNumRows(), n = a.getNumColumns();
+        Matrix u = svd.getU(), s = svd.getS(), v = svd.getV();
+        assertEquals(m, u.getNumRows());
+        assertEquals(k, u.getNumColumns());
+        assertEquals(n, v.getNumRows());
+        assertEquals(k, v.getNumColumns());
+        double[] values = svd.getSingularValues();
+        assertEquals(k, values.length);
+        for (int j = 0; j < k; j++) {
+            assertTrue(values[j] >= 0, "negative singular value at " + j);
+            if (j > 0) assertTrue(values[j - 1] >= values[j], "singular values not decreasing at " + j);
+            assertEquals(values[j], s.get(j, j), 0);
+        }
+        double tolerance = 1e-12 * Math.max(m, n) * maxNorm(a);
+        assertMatrixEquals(a.multiply(v), u.multiply(s), tolerance);
+        assertMatrixEquals(a.transposed().multiply(u), v.multiply(s), tolerance);
+        assertOrthonormalColumns(u, 1e-12 * Math.max(m, n));
+        assertOrthonormalColumns(v, 1e-12 * Math.max(m, n));
+    }
+
+    /**
+     * Decomposizione completa e prime k componenti, con i valori singolari che coincidono
+     */
+    private static void assertAllComponents(Matrix a, int... ks) {
+        SingularValueDecomposition full = a.svd();
+        int q = Math.min(a.getNumRows(), a.getNumColumns());
+        assertDecomposes(a, full, q);
+        assertMatrixEquals(a, full.getU().multiply(full.getS()).multiply(full.getV().transposed()), 1e-12 * q * maxNorm(a));
+        for (int k: ks) {
+            SingularValueDecomposition top = a.svd(k);
+            assertDecomposes(a, top, k);
+            for (int j = 0; j < k; j++)
+                assertEquals(full.getSingularValues()[j], top.getSingularValues()[j], 1e-12 * q * full.norm2());
+            assertEquals(full.rank(), top.rank());
+        }
+    }
+
+    @Test
+    void tall() {
+        assertAllComponents(random(90, 35, 1), 0, 1, 6, 35);
+        assertAllComponents(random(5, 1, 2), 1);
+    }
+
+    @Test
+    void wide() {
+        assertAllComponents(random(35, 90, 3), 0, 1, 6, 35);
+        assertAllComponents(random(1, 5, 4), 1);
+    }
+
+    @Test
+    void square() {
+        Matrix a = random(40, 40, 5);
+        assertAllComponents(a, 4, 40);
+        assertEquals(40, a.svd().rank());
+    }
+
+    @Test
+    void rankDeficient() {
+        for (Matrix a: new Matrix[]{lowRank(60, 40, 7, 6), lowRank(40, 60, 7, 8)}) {
+            //Le prime 12 componenti comprendono valori singolari nulli
+            assertAllComponents(a, 3, 7, 12);
+            SingularValueDecomposition svd = a.svd();
+            assertEquals(7, svd.rank());
+            assertTrue(svd.condition() > 1e12, "condition " + svd.condition());
+            for (int j = 7; j < 40; j++) assertEquals(0, svd.getSingularValues()[j], 1e-12 * 60 * svd.norm2());
+        }
+        assertEquals(0, new Matrix(4, 3).svd().rank());
+        assertAllComponents(new Matrix(4, 3), 2);
+    }
+
+    @Test
+    void parallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Matrix a = random(400, 250, 10);
+            double[] serial = a.svd().getSingularValues();
+            for (int k: new int[]{8, 250}) {
+                SingularValueDecomposition svd = new SingularValueDecomposition(a, k, pool);
+                assertDecomposes(a, svd, k);
+                for (int j = 0; j < k; j++) assertEquals(serial[j], svd.getSingularValues()[j], 1e-12 * 400 * serial[0]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void illegalArguments() {
+        assertThrows(RuntimeException.class, () -> random(5, 3, 11).svd(4));
+        assertThrows(RuntimeException.class, () -> random(3, 5, 12).svd(-1));
+    }
+}
@@ -0,0 +1,164 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test delle matrici sparse nei formati CSR e CSC, confrontate con le stesse operazioni sulle copie dense
+ * @author Erik Gurzau
+ */
+class SparseMatrixTest {
+    private static final SparseMatrix.Format[] FORMATS = SparseMatrix.Format.values();
+
+    /**
+     * Matrice densa con circa un elemento non nullo su cinque
+     */
+    private static Matrix sparseDense(int rows, int columns, long seed) {
+        Matrix m = random(rows, columns, seed), mask = random(rows, columns, seed + 100);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < columns; j++)
+                if (mask.get(i, j) < 0.6) m.set(0, i, j);
+        return m;
+    }
+
+    /**
+     * Controlla che la matrice sparsa abbia gli elementi della matrice densa e che non memorizzi elementi nulli
+     */
+    private static void assertSparseEquals(Matrix expected, SparseMatrix actual, double tolerance) {
+        assertMatrixEquals(expected, actual.toDense(), tolerance);
+        int nonZeros = 0;
+        for (int i = 0; i < expected.getNumRows(); i++)
+            for (int j = 0; j < expected.getNumColumns(); j++) {
+                if (actual.get(i, j) != 0) nonZeros++;
+                assertEquals(expected.get(i, j), actual.get(i, j), tolerance);
+            }
+        assertEquals(nonZeros, actual.nonZeros(), "stored elements");
+    }
+
+    @Test
+    void conversions() {
+        Matrix dense = sparseDense(13, 9, 1);
+        for (SparseMatrix.Format format: FORMATS) {
+            SparseMatrix s = SparseMatrix.of(dense, format);
+            assertEquals(format, s.getFormat());
+            assertSparseEquals(dense, s, 0);
+            for (SparseMatrix.Format other: FORMATS) assertSparseEquals(dense, s.toFormat(other), 0);
+            SparseMatrix t = s.transposed();
+            assertEquals(format == SparseMatrix.Format.CSR ? SparseMatrix.Format.CSC : SparseMatrix.Format.CSR, t.getFormat());
+            assertSparseEquals(dense.transposed(), t, 0);
+        }
+    }
+
+    @Test
+    void builderSumsDuplicatesAndDropsZeros() {
+        for (SparseMatrix.Format format: FORMATS) {
+            SparseMatrix s = new SparseMatrix.Builder(3, 4)
+                    .add(2, 2, 3).add(1, 0, 1).add(0, 1, 1).add(5, 1, 2).add(-5, 1, 2).add(1.5, 0, 1)
+                    .build(format);
+            Matrix expected = new Matrix(3, 4);
+            expected.set(2.5, 0, 1);
+            expected.set(2, 2, 3);
+            assertSparseEquals(expected, s, 0);
+        }
+        assertThrows(RuntimeException.class, () -> new SparseMatrix.Builder(3, 4).add(1, 3, 0));
+        assertThrows(RuntimeException.class, () -> new SparseMatrix.Builder(3, 4).add(1, 0, -1));
+    }
+
+    @Test
+    void productWithDenseMatrix() {
+        Matrix dense = sparseDense(20, 15, 2), b = random(15, 6, 3);
+        Matrix expected = dense.multiply(b);
+        for (SparseMatrix.Format format: FORMATS) {
+            assertMatrixEquals(expected, SparseMatrix.of(dense, format).multiply(b), 1e-14);
+            assertMatrixEquals(expected, SparseMatrix.of(dense, format).multiply(b.transposedView().transposedView()), 1e-14);
+        }
+        assertThrows(RuntimeException.class, () -> SparseMatrix.of(dense, SparseMatrix.Format.CSR).multiply(new Matrix(14, 2)));
+    }
+
+    @Test
+    void productOfSparseMatrices() {
+        Matrix a = sparseDense(17, 11, 4), b = sparseDense(11, 19, 5);
+        Matrix expected = a.multiply(b);
+        for (SparseMatrix.Format fa: FORMATS)
+            for (SparseMatrix.Format fb: FORMATS)
+                assertSparseEquals(expected, SparseMatrix.of(a, fa).multiply(SparseMatrix.of(b, fb)), 1e-14);
+
+        //Contributi che si annullano non vengono memorizzati
+        SparseMatrix u = new SparseMatrix.Builder(1, 2).add(1, 0, 0).add(1, 0, 1).build(SparseMatrix.Format.CSR);
+        SparseMatrix v = new SparseMatrix.Builder(2, 1).add(1, 0, 0).add(-1, 1, 0).build(SparseMatrix.Format.CSC);
+        assertEquals(0, u.multiply(v).nonZeros());
+    }
+
+    @Test
+    void elementWiseOperations() {
+        Matrix a = sparseDense(12, 14, 6), b = sparseDense(12, 14, 7);
+        //Elementi in comune che si annullano nella somma
+        a.set(1, 3, 3);
+        b.set(-1, 3, 3);
+        for (SparseMatrix.Format fa: FORMATS)
+            for (SparseMatrix.Format fb: FORMATS) {
+                SparseMatrix sa = SparseMatrix.of(a, fa), sb = SparseMatrix.of(b, fb);
+                assertSparseEquals(a.sum(b), sa.sum(sb), 0);
+                assertSparseEquals(a.diff(b), sa.diff(sb), 0);
+                Matrix hadamard = new Matrix(12, 14);
+                for (int i = 0; i < 12; i++)
+                    for (int j = 0; j < 14; j++) hadamard.set(a.get(i, j) * b.get(i, j), i, j);
+                assertSparseEquals(hadamard, sa.elementMultiply(sb), 0);
+                assertEquals(fa, sa.sum(sb).getFormat());
+            }
+        assertThrows(RuntimeException.class, () -> SparseMatrix.of(a, SparseMatrix.Format.CSR).sum(SparseMatrix.identity(12, SparseMatrix.Format.CSR)));
+    }
+
+    @Test
+    void scalarProductDropsUnderflow() {
+        Matrix dense = sparseDense(8, 8, 8);
+        dense.set(Double.MIN_VALUE, 2, 5);
+        dense.set(1e-300, 6, 1);
+        for (SparseMatrix.Format format: FORMATS) {
+            SparseMatrix s = SparseMatrix.of(dense, format);
+            assertSparseEquals(dense.copy(dense).scaleInPlace(-2.5), s.multiply(-2.5), 0);
+            //Double.MIN_VALUE * 0.25 e 1e-300 * 1e-100 si annullano
+            SparseMatrix tiny = s.multiply(0.25).multiply(1e-100);
+            assertEquals(s.nonZeros() - 2, tiny.nonZeros());
+            assertSparseEquals(dense.copy(dense).scaleInPlace(0.25).scaleInPlace(1e-100), tiny, 0);
+            assertTrue(s.multiply(0).isNull());
+        }
+    }
+
+    @Test
+    void structuralPredicates() {
+        for (SparseMatrix.Format format: FORMATS) {
+            assertTrue(SparseMatrix.identity(5, format).isIdentity());
+            assertTrue(SparseMatrix.identity(5, format).multiply(3).isDiagonal());
+            assertFalse(SparseMatrix.identity(5, format).multiply(3).isIdentity());
+
+            Matrix upper = random(6, 6, 9);
+            for (int i = 0; i < 6; i++)
+                for (int j = 0; j < i; j++) upper.set(0, i, j);
+            SparseMatrix s = SparseMatrix.of(upper, format);
+            assertEquals(upper.isUpperTriangular(), s.isUpperTriangular());
+            assertTrue(s.isUpperTriangular());
+            assertFalse(s.isLowerTriangular());
+            assertTrue(s.transposed().isLowerTriangular());
+            assertFalse(s.isDiagonal());
+
+            //Un elemento della diagonale che si annulla per underflow non la rende più diagonale
+            SparseMatrix d = new SparseMatrix.Builder(2, 2).add(Double.MIN_VALUE, 0, 0).add(1, 1, 1).build(format);
+            assertTrue(d.isDiagonal());
+            assertFalse(d.multiply(0.25).isDiagonal());
+            assertTrue(new SparseMatrix.Builder(3, 3).build(format).isNull());
+        }
+    }
+
+    @Test
+    void sharedInterface() {
+        Matrix dense = sparseDense(7, 5, 10);
+        for (RealMatrix m: new RealMatrix[]{dense, SparseMatrix.of(dense, SparseMatrix.Format.CSR), SparseMatrix.of(dense, SparseMatrix.Format.CSC)}) {
+            assertEquals(7, m.getNumRows());
+            assertEquals(5, m.getNumColumns());
+            assertMatrixEquals(dense, m.toDense());
+            assertMatrixEquals(dense.transposed(), m.transposed().toDense());
+            assertMatrixEquals(dense.multiply(dense.transposed()), m.multiply(dense.transposed()), 1e-14);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package it.matrix;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+import static it.matrix.MatrixAssert.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del prodotto di Strassen-Winograd confrontato con il kernel classico, con e senza pool,
+ * entro la stima d'errore in norma riportata in {@link Strassen}
+ * @author Erik Gurzau
+ */
+class StrassenTest {
+    private static final Matrix.MultiplicationStrategy WINOGRAD = Matrix.MultiplicationStrategy.STRASSEN_WINOGRAD;
+
+    /**
+     * Stima [(k/k0)^log2(18) * (k0² + 6 * k0) - 6 * k] * u * max|A| * max|B| per un prodotto MxK per KxN
+     */
+    private static double bound(Matrix a, Matrix b) {
+        int m = a.getNumRows(), k = a.getNumColumns(), n = b.getNumColumns();
+        int levels = Strassen.levels(m, n, k), step = 1 << levels;
+        int paddedK = (k + step - 1) / step * step;
+        double k0 = paddedK >> levels;
+        double constant = Math.pow(paddedK / k0, Math.log(18) / Math.log(2)) * (k0 * k0 + 6 * k0) - 6 * paddedK;
+        return constant * Math.ulp(1.0) / 2 * maxNorm(a) * maxNorm(b);
+    }
+
+    private static void assertProductAgrees(Matrix a, Matrix b, ForkJoinPool pool) {
+        Matrix expected = a.multiply(b, Matrix.MultiplicationStrategy.CLASSICAL, null);
+        Matrix actual = a.multiply(b, WINOGRAD, pool);
+        double error = maxNorm(expected.diff(actual));
+        assertTrue(error <= bound(a, b), "error " + error + " over the bound " + bound(a, b));
+    }
+
+    @Test
+    void levels() {
+        assertEquals(0, Strassen.levels(511, 4096, 4096));
+        assertEquals(1, Strassen.levels(512, 512, 512));
+        assertEquals(1, Strassen.levels(1023, 2000, 3000));
+        assertEquals(2, Strassen.levels(1024, 1024, 1024));
+    }
+
+    @Test
+    void agreesWithClassical() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            //Dimensioni pari, dispari (completate con zeri) e con due livelli di ricorsione
+            int[][] sizes = {{512, 512, 512}, {517, 601, 530}, {700, 513, 515}, {1024, 1031, 1027}};
+            for (int[] size: sizes) {
+                Matrix a = random(size[0], size[1], size[0]), b = random(size[1], size[2], size[2]);
+                assertProductAgrees(a, b, null);
+                assertProductAgrees(a, b, pool);
+            }
+            //Il risultato differisce da quello classico: il prodotto passa davvero dallo schema di Winograd
+            Matrix a = random(512, 512, 7), b = random(512, 512, 8);
+            assertFalse(maxNorm(a.multiply(b, WINOGRAD, null).diff(a.multiply(b))) == 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void belowThresholdIsClassical() {
+        Matrix a = random(300, 700, 1), b = random(700, 600, 2);
+        assertMatrixEquals(a.multiply(b, Matrix.MultiplicationStrategy.CLASSICAL, null), a.multiply(b, WINOGRAD, null));
+    }
+
+    @Test
+    void multiplyAddAndViews() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Matrix a = random(530, 520, 3), b = random(520, 515, 4), c = random(530, 515, 5);
+            Matrix expected = Matrix.multiplyAdd(a, b, c.copy(c), 2, -0.5, null, Matrix.MultiplicationStrategy.CLASSICAL);
+            for (ForkJoinPool p: new ForkJoinPool[]{null, pool}) {
+                Matrix actual = Matrix.multiplyAdd(a, b, c.copy(c), 2, -0.5, p, WINOGRAD);
+                assertMatrixEquals(expected, actual, 2 * bound(a, b) + 1e-15);
+            }
+            //Operando trasposto e destinazione con righe più lunghe del risultato
+            Matrix bt = random(515, 520, 6);
+            Matrix target = new Matrix(530, 600);
+            Matrix.multiplyAdd(a, bt.transposedView(), target.block(0, 40, 530, 515), 1, 0, pool, WINOGRAD);
+            assertMatrixEquals(a.multiply(bt.transposed()), target.block(0, 40, 530, 515), bound(a, bt.transposed()));
+            assertTrue(target.block(0, 0, 530, 40).isNull());
+            assertTrue(target.block(0, 555, 530, 45).isNull());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package it.matrix;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Prodotto scalare di {@link Kernels} scritto con la Vector API (modulo jdk.incubator.vector), sulla dimensione
+ * di vettore preferita dal processore: 2 double con SSE, 4 con AVX2, 8 con AVX-512.
+ * Due vettori di somme parziali indipendenti vengono ridotti solo alla fine, cosa che il compilatore JIT
+ * non fa da solo sul ciclo scalare; gli elementi che non riempiono un vettore sono sommati uno alla volta.
+ * I kernel elemento per elemento restano scalari, poiché il JIT li vettorizza già.
+ * La classe è compilata separatamente dal resto della libreria, con {@code --add-modules jdk.incubator.vector},
+ * e viene caricata per riflessione da {@link Kernels} solo se il modulo è disponibile
+ * @author Erik Gurzau
+ */
+final class VectorKernels extends Kernels.Backend {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    double dot(double[] a, int ai, double[] b, int bi, int n) {
+        int step = SPECIES.length(), j = 0;
+        DoubleVector s0 = DoubleVector.zero(SPECIES), s1 = DoubleVector.zero(SPECIES);
+        for (; j + 2 * step <= n; j += 2 * step) {
+            s0 = s0.add(DoubleVector.fromArray(SPECIES, a, ai + j).mul(DoubleVector.fromArray(SPECIES, b, bi + j)));
+            s1 = s1.add(DoubleVector.fromArray(SPECIES, a, ai + j + step).mul(DoubleVector.fromArray(SPECIES, b, bi + j + step)));
+        }
+        if (j + step <= n) {
+            s0 = s0.add(DoubleVector.fromArray(SPECIES, a, ai + j).mul(DoubleVector.fromArray(SPECIES, b, bi + j)));
+            j += step;
+        }
+        double s = s0.add(s1).reduceLanes(VectorOperators.ADD);
+        for (; j < n; j++) s += a[ai + j] * b[bi + j];
+        return s;
+    }
+}